@@ -4,6 +4,7 @@ import com.jediterm.app.JediTerm;
 import com.jediterm.app.TtyConnectorWaitFor;
 import com.jediterm.core.compatibility.Point;
 import com.jediterm.terminal.CursorShape;
+import com.jediterm.terminal.RecordingTtyConnector;
 import com.jediterm.terminal.Terminal;
 import com.jediterm.terminal.TtyConnector;
 import com.jediterm.terminal.model.SelectionUtil;
@@ -129,8 +130,11 @@ public abstract class AbstractTerminalFrame {
 
   public void openSession(TerminalWidget terminal, TtyConnector ttyConnector) {
     JediTermWidget session = terminal.createTerminalSession(ttyConnector);
-    if (ttyConnector instanceof JediTerm.LoggingPtyProcessTtyConnector) {
-      ((JediTerm.LoggingPtyProcessTtyConnector) ttyConnector).setWidget(session);
+    TtyConnector connector = ttyConnector instanceof RecordingTtyConnector
+                             ? ((RecordingTtyConnector)ttyConnector).getDelegate()
+                             : ttyConnector;
+    if (connector instanceof JediTerm.LoggingPtyProcessTtyConnector) {
+      ((JediTerm.LoggingPtyProcessTtyConnector) connector).setWidget(session);
     }
     session.start();
   }
@@ -1,6 +1,5 @@
 package com.jediterm.ui.debug;
 
-import com.jediterm.terminal.LoggingTtyConnector;
 import com.jediterm.terminal.LoggingTtyConnector.TerminalState;
 import com.jediterm.terminal.model.LinesStorageKt;
 import com.jediterm.terminal.ui.TerminalSession;
@@ -14,7 +13,7 @@ import java.util.List;
 public enum DebugBufferType {
   Screen() {
     public @NotNull String getValue(TerminalSession session, int stateIndex) {
-      List<TerminalState> states = ((LoggingTtyConnector) session.getTtyConnector()).getStates();
+      List<TerminalState> states = TerminalDebugUtil.getLoggingTtyConnector(session).getStates();
       if (stateIndex == states.size()) {
         return session.getTerminalTextBuffer().getScreenLines();
       } else {
@@ -24,7 +23,7 @@ public enum DebugBufferType {
   },
   BackStyle() {
     public @NotNull String getValue(TerminalSession session, int stateIndex) {
-      List<TerminalState> states = ((LoggingTtyConnector) session.getTtyConnector()).getStates();
+      List<TerminalState> states = TerminalDebugUtil.getLoggingTtyConnector(session).getStates();
       if (stateIndex == states.size()) {
         return TerminalDebugUtil.getStyleLines(session.getTerminalTextBuffer());
       } else {
@@ -34,7 +33,7 @@ public enum DebugBufferType {
   },
   History() {
     public @NotNull String getValue(TerminalSession session, int stateIndex) {
-      List<TerminalState> states = ((LoggingTtyConnector) session.getTtyConnector()).getStates();
+      List<TerminalState> states = TerminalDebugUtil.getLoggingTtyConnector(session).getStates();
       if (stateIndex == states.size()) {
         return LinesStorageKt.getLinesAsString(session.getTerminalTextBuffer().getHistoryLinesStorage());
       } else {
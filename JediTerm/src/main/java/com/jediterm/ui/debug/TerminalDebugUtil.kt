@@ -1,13 +1,22 @@
 package com.jediterm.ui.debug
 
+import com.jediterm.terminal.LoggingTtyConnector
+import com.jediterm.terminal.RecordingTtyConnector
 import com.jediterm.terminal.StyledTextConsumerAdapter
 import com.jediterm.terminal.TextStyle
 import com.jediterm.terminal.model.CharBuffer
 import com.jediterm.terminal.model.TerminalTextBuffer
 import com.jediterm.terminal.model.processLines
+import com.jediterm.terminal.ui.TerminalSession
 
 object TerminalDebugUtil {
 
+  @JvmStatic
+  fun getLoggingTtyConnector(session: TerminalSession): LoggingTtyConnector {
+    val connector = session.ttyConnector
+    return (if (connector is RecordingTtyConnector) connector.delegate else connector) as LoggingTtyConnector
+  }
+
   @JvmStatic
   fun getStyleLines(textBuffer: TerminalTextBuffer): String {
     val style2IdMap: MutableMap<Int, Int> = HashMap()
@@ -7,7 +7,7 @@ import java.util.concurrent.CopyOnWriteArrayList
 import javax.swing.*
 
 class TerminalDebugView(private val terminal: TerminalSession) {
-  private val loggingTtyConnector: LoggingTtyConnector = terminal.getTtyConnector() as LoggingTtyConnector
+  private val loggingTtyConnector: LoggingTtyConnector = TerminalDebugUtil.getLoggingTtyConnector(terminal)
   private val typeComboBox: JComboBox<DebugBufferType> = JComboBox(DebugBufferType.entries.toTypedArray())
   private val controlSequenceSettingsView: ControlSequenceSettingsView = ControlSequenceSettingsView()
   private val slider: JSlider
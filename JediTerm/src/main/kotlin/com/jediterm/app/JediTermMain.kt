@@ -1,8 +1,10 @@
 package com.jediterm.app
 
+import com.jediterm.core.util.TermSize
 import com.jediterm.pty.PtyProcessTtyConnector
 import com.jediterm.terminal.LoggingTtyConnector
 import com.jediterm.terminal.LoggingTtyConnector.TerminalState
+import com.jediterm.terminal.RecordingTtyConnector
 import com.jediterm.terminal.TtyConnector
 import com.jediterm.terminal.model.JediTerminal
 import com.jediterm.terminal.model.getLinesAsString
@@ -15,6 +17,7 @@ import com.pty4j.PtyProcessBuilder
 import java.io.IOException
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
+import java.nio.file.Files
 import java.nio.file.Path
 import java.util.*
 import java.util.logging.ConsoleHandler
@@ -58,19 +61,22 @@ class JediTerm : AbstractTerminalFrame() {
         if (isMacOS()) arrayOf(shell, "--login") else arrayOf(shell)
       }
       val workingDirectory = Path.of(".").toAbsolutePath().normalize().pathString
+      val termSize = TermSize(120, 20)
 
       LOG.info("Starting ${command.joinToString()} in $workingDirectory")
       val process = PtyProcessBuilder()
         .setDirectory(workingDirectory)
-        .setInitialColumns(120)
-        .setInitialRows(20)
+        .setInitialColumns(termSize.columns)
+        .setInitialRows(termSize.rows)
         .setCommand(command)
         .setEnvironment(envs)
         .setConsole(false)
         .setUseWinConPty(true)
         .start()
 
-      return LoggingPtyProcessTtyConnector(process, StandardCharsets.UTF_8, command.toList())
+      val connector = LoggingPtyProcessTtyConnector(process, StandardCharsets.UTF_8, command.toList())
+      val recordingFile = System.getProperty(RECORDING_FILE_PROPERTY) ?: return connector
+      return startRecording(connector, termSize, Path.of(recordingFile))
     }
     catch (e: Exception) {
       throw IllegalStateException(e)
@@ -78,6 +84,20 @@ class JediTerm : AbstractTerminalFrame() {
 
   }
 
+  /**
+   * Records the output to replay it later, e.g. in the benchmarks. The recording is saved on exit.
+   */
+  private fun startRecording(connector: TtyConnector, termSize: TermSize, file: Path): TtyConnector {
+    LOG.info("Recording the output to $file")
+    val recordingConnector = RecordingTtyConnector(connector, termSize)
+    Runtime.getRuntime().addShutdownHook(Thread {
+      Files.newOutputStream(file).use {
+        recordingConnector.recording.write(it)
+      }
+    })
+    return recordingConnector
+  }
+
   private fun configureEnvironmentVariables(): Map<String, String> {
     val envs = HashMap(System.getenv())
     if (isMacOS()) {
@@ -97,6 +117,13 @@ class JediTerm : AbstractTerminalFrame() {
     return widget
   }
 
+  companion object {
+    /**
+     * The file to record the output of the shell to, see [com.jediterm.terminal.TtyRecording].
+     */
+    const val RECORDING_FILE_PROPERTY = "jediterm.recording.file"
+  }
+
   class LoggingPtyProcessTtyConnector(
     process: PtyProcess,
     charset: Charset,
@@ -0,0 +1,78 @@
+plugins {
+  java
+}
+
+sourceSets {
+  main {
+    java.srcDirs("src")
+  }
+}
+
+val jmhVersion = "1.37"
+
+dependencies {
+  implementation(project(":core"))
+  implementation(project(":ui"))
+  implementation(project(":JediTerm"))
+  implementation("org.jetbrains:annotations:24.0.1")
+  implementation("org.openjdk.jmh:jmh-core:$jmhVersion")
+  annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+  runtimeOnly("org.slf4j:slf4j-nop:2.0.9")
+}
+
+tasks {
+  compileJava {
+    sourceCompatibility = "11"
+    targetCompatibility = "11"
+  }
+
+  // Runs the benchmarks matching the `jmh.include` regexp, e.g. `./gradlew :benchmarks:jmh -Pjmh.include=Emulator`.
+  // The gc profiler reports the allocations per operation as `gc.alloc.rate.norm`.
+  register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks"
+    dependsOn(classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    val resultFile = layout.buildDirectory.file("jmh-result.json").get().asFile
+    args = listOfNotNull(project.findProperty("jmh.include") as String?) +
+           listOf("-prof", "gc", "-rf", "json", "-rff", resultFile.path)
+  }
+
+  // Replays a recording made with `-Djediterm.recording.file`, e.g. `./gradlew :benchmarks:replay -Precording=vim.rec`.
+  // Add `-Preplay.realTime` to feed the output at the recorded speed.
+  register<JavaExec>("replay") {
+    group = "benchmark"
+    description = "Replays a recorded terminal output"
+    dependsOn(classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "com.jediterm.benchmarks.ReplayDriver"
+    args = listOfNotNull(project.findProperty("recording") as String?,
+                         if (project.hasProperty("replay.realTime")) "--real-time" else null)
+  }
+
+  // Reports the threads of the sessions with and without the shared executors, e.g. `./gradlew :benchmarks:threads -Psessions=10,100`.
+  register<JavaExec>("threads") {
+    group = "benchmark"
+    description = "Reports the thread count versus the session count"
+    dependsOn(classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "com.jediterm.benchmarks.SessionThreadsBenchmark"
+    args = listOfNotNull(project.findProperty("sessions") as String?)
+  }
+
+  // Replays a recording in 1000 sessions at once with platform and virtual threads, e.g. `./gradlew :benchmarks:scaling -Psessions=500`.
+  // The virtual threads are measured when Gradle runs on Java 21 or later.
+  register<JavaExec>("scaling") {
+    group = "benchmark"
+    description = "Reports the scaling of many replayed sessions with platform and virtual threads"
+    dependsOn(classes)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = "com.jediterm.benchmarks.VirtualThreadScalingBenchmark"
+    args = listOfNotNull(project.findProperty("sessions") as String?)
+  }
+}
+
+tasks.withType<JavaCompile> {
+  options.encoding = Charsets.UTF_8.name()
+}
@@ -0,0 +1,59 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the emulator parsing the output and applying it to the text buffer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EmulatorBenchmark {
+  private static final int COLUMNS = 160;
+  private static final int ROWS = 50;
+
+  @Param({"plain", "sgr", "cursor"})
+  public String workload;
+
+  private char[] myOutput;
+  private int myOutputBytes;
+  private JediTerminal myTerminal;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    String output;
+    switch (workload) {
+      case "plain":
+        output = Workloads.plainText(10000);
+        break;
+      case "sgr":
+        output = Workloads.sgrHeavy(5000);
+        break;
+      case "cursor":
+        output = Workloads.cursorAddressing(50000, COLUMNS, ROWS);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown workload: " + workload);
+    }
+    myOutput = output.toCharArray();
+    myOutputBytes = Workloads.utf8Length(output);
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(COLUMNS, ROWS, styleState, 5000);
+    myTerminal = new JediTerminal(new BenchmarkTerminalDisplay(), textBuffer, styleState);
+  }
+
+  @Benchmark
+  public void process(ByteCounter counter) throws IOException {
+    Workloads.process(myTerminal, myOutput);
+    counter.bytes += myOutputBytes;
+  }
+}
@@ -0,0 +1,71 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.app.UrlFilter;
+import com.jediterm.terminal.HyperlinkStyle;
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.model.hyperlinks.LinkResult;
+import com.jediterm.terminal.model.hyperlinks.TextProcessing;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the URLs in the output as it arrives, the hyperlink filters are applied to every completed line.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HyperlinkBenchmark {
+  private static final int LINES_COUNT = 5000;
+
+  private char[] myOutput;
+  private int myOutputBytes;
+  private String[] myLines;
+  private JediTerminal myTerminal;
+  private final UrlFilter myUrlFilter = new UrlFilter();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    String output = Workloads.withUrls(LINES_COUNT);
+    myOutput = output.toCharArray();
+    myOutputBytes = Workloads.utf8Length(output);
+    myLines = output.split("\r\n");
+
+    StyleState styleState = new StyleState();
+    TextProcessing textProcessing = new TextProcessing(new TextStyle(TerminalColor.index(4), null), HyperlinkStyle.HighlightMode.HOVER);
+    textProcessing.addHyperlinkFilter(myUrlFilter);
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(160, 50, styleState, 5000, textProcessing);
+    textProcessing.setTerminalTextBuffer(textBuffer);
+    myTerminal = new JediTerminal(new BenchmarkTerminalDisplay(), textBuffer, styleState);
+  }
+
+  @Benchmark
+  public void processOutput(ByteCounter counter) throws IOException {
+    Workloads.process(myTerminal, myOutput);
+    counter.bytes += myOutputBytes;
+  }
+
+  /**
+   * The filter alone, without building the lines from the text buffer.
+   */
+  @Benchmark
+  public int urlFilter(ByteCounter counter) {
+    int linksCount = 0;
+    for (String line : myLines) {
+      LinkResult result = myUrlFilter.apply(line);
+      if (result != null) {
+        linksCount += result.getItems().size();
+      }
+    }
+    counter.bytes += myOutputBytes;
+    return linksCount;
+  }
+}
@@ -0,0 +1,213 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.core.typeahead.TerminalTypeAheadManager;
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.*;
+import com.jediterm.terminal.model.JediTermTypeAheadModel;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.JediTermExecutorServiceManager;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Replays a {@link TtyRecording} through {@link TerminalStarter} and reports the end-to-end time, the hash of
+ * the final screen and the peak heap usage, so that a change can be checked for both correctness and speed
+ * on real terminal traffic. Recordings are made by running the JediTerm app with
+ * {@code -Djediterm.recording.file=<file>}.
+ * <p/>
+ * Arguments: recording file [--real-time] [history lines count].
+ */
+public final class ReplayDriver {
+  public static void main(String[] args) throws Exception {
+    if (args.length == 0) {
+      System.err.println("Usage: ReplayDriver <recording file> [--real-time] [history lines count]");
+      System.exit(1);
+    }
+    boolean realTime = false;
+    int historyLinesCount = 5000;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals("--real-time")) {
+        realTime = true;
+      }
+      else {
+        historyLinesCount = Integer.parseInt(args[i]);
+      }
+    }
+    TtyRecording recording;
+    try (InputStream in = Files.newInputStream(Path.of(args[0]))) {
+      recording = TtyRecording.read(in);
+    }
+    TermSize termSize = recording.getTermSize();
+    System.out.printf(Locale.ROOT, "%dx%d cells, %d chunks, %d chars, recorded in %.1f ms%n",
+                      termSize.getColumns(), termSize.getRows(), recording.getChunks().size(), recording.getCharCount(),
+                      recording.getDurationNanos() / 1e6);
+    Result result = replay(recording, realTime, historyLinesCount);
+    System.out.println(result);
+  }
+
+  /**
+   * Replays the recording on the current thread and returns once the whole recording has been processed.
+   *
+   * @param realTime whether to feed the chunks at the times they were recorded instead of as fast as possible
+   */
+  public static @NotNull Result replay(@NotNull TtyRecording recording, boolean realTime, int historyLinesCount) {
+    TermSize termSize = recording.getTermSize();
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(termSize.getColumns(), termSize.getRows(), styleState,
+                                                           historyLinesCount);
+    JediTerminal terminal = new JediTerminal(new BenchmarkTerminalDisplay(), textBuffer, styleState);
+    TerminalTypeAheadManager typeAheadManager =
+      new TerminalTypeAheadManager(new JediTermTypeAheadModel(terminal, textBuffer, new DefaultSettingsProvider()));
+    JediTermExecutorServiceManager executorServiceManager = new JediTermExecutorServiceManager();
+    ReplayTtyConnector connector = new ReplayTtyConnector(recording, realTime);
+    TerminalStarter starter = new TerminalStarter(terminal, connector, new TtyBasedArrayDataStream(connector),
+                                                  typeAheadManager, executorServiceManager);
+    try {
+      resetPeakHeapUsage();
+      long start = System.nanoTime();
+      starter.start();
+      long elapsedNanos = System.nanoTime() - start;
+      return new Result(elapsedNanos, recording.getCharCount(), getScreenHash(textBuffer, terminal), getPeakHeapUsage());
+    }
+    finally {
+      executorServiceManager.shutdownWhenAllExecuted();
+    }
+  }
+
+  /**
+   * @return the hash of the text, the styles and the cursor position of the screen, as a hex string
+   */
+  public static @NotNull String getScreenHash(@NotNull TerminalTextBuffer textBuffer, @NotNull JediTerminal terminal) {
+    MessageDigest digest = createDigest();
+    StringBuilder text = new StringBuilder();
+    textBuffer.lock();
+    try {
+      for (int row = 0; row < textBuffer.getHeight(); row++) {
+        TerminalLine line = textBuffer.getLine(row);
+        text.setLength(0);
+        text.append(row).append(line.isWrapped() ? '+' : '|');
+        for (TerminalLine.TextEntry entry : line.getEntries()) {
+          appendStyle(text, entry.getStyle());
+          text.append(entry.getText()).append('\u0000');
+        }
+        digest.update(text.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      String cursor = terminal.getCursorX() + "," + terminal.getCursorY();
+      digest.update(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+    finally {
+      textBuffer.unlock();
+    }
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(String.format(Locale.ROOT, "%02x", b));
+    }
+    return hash.toString();
+  }
+
+  private static void appendStyle(@NotNull StringBuilder text, @NotNull TextStyle style) {
+    appendColor(text, style.getForeground());
+    appendColor(text, style.getBackground());
+    for (TextStyle.Option option : TextStyle.Option.values()) {
+      if (style.hasOption(option)) {
+        text.append(option.ordinal()).append(',');
+      }
+    }
+    text.append(':');
+  }
+
+  private static void appendColor(@NotNull StringBuilder text, @Nullable TerminalColor color) {
+    if (color == null) {
+      text.append('-');
+    }
+    else if (color.isIndexed()) {
+      text.append(color.getColorIndex());
+    }
+    else {
+      text.append('#').append(Integer.toHexString(color.toColor().getRGB()));
+    }
+    text.append(';');
+  }
+
+  private static @NotNull MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void resetPeakHeapUsage() {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) {
+        pool.resetPeakUsage();
+      }
+    }
+  }
+
+  /**
+   * @return the sum of the peak usages of the heap pools, an upper bound of the peak heap usage
+   * since the pools may peak at different times
+   */
+  private static long getPeakHeapUsage() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getPeakUsage() : null;
+      if (usage != null) {
+        peak += usage.getUsed();
+      }
+    }
+    return peak;
+  }
+
+  public static final class Result {
+    private final long myElapsedNanos;
+    private final long myCharCount;
+    private final String myScreenHash;
+    private final long myPeakHeapBytes;
+
+    Result(long elapsedNanos, long charCount, @NotNull String screenHash, long peakHeapBytes) {
+      myElapsedNanos = elapsedNanos;
+      myCharCount = charCount;
+      myScreenHash = screenHash;
+      myPeakHeapBytes = peakHeapBytes;
+    }
+
+    public long getElapsedNanos() {
+      return myElapsedNanos;
+    }
+
+    public @NotNull String getScreenHash() {
+      return myScreenHash;
+    }
+
+    public long getPeakHeapBytes() {
+      return myPeakHeapBytes;
+    }
+
+    @Override
+    public String toString() {
+      double seconds = myElapsedNanos / 1e9;
+      return String.format(Locale.ROOT, "replayed in %.1f ms (%.1f M chars/s)%nscreen hash: %s%npeak heap: %.1f MB",
+                           myElapsedNanos / 1e6, myCharCount / seconds / 1e6, myScreenHash, myPeakHeapBytes / 1e6);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.RequestOrigin;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reflowing the history when the terminal width changes, e.g. while the user drags the window border.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResizeBenchmark {
+  private static final int ROWS = 50;
+
+  @Param({"10000", "100000"})
+  public int historyLinesCount;
+
+  private JediTerminal myTerminal;
+  private long myTextBytes;
+  private boolean myWide;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(160, ROWS, styleState, historyLinesCount);
+    myTerminal = new JediTerminal(new BenchmarkTerminalDisplay(), textBuffer, styleState);
+    for (int i = 0; i < historyLinesCount + ROWS; i++) {
+      String line = Workloads.logLine(i);
+      myTerminal.writeCharacters(line);
+      myTerminal.carriageReturn();
+      myTerminal.newLine();
+      myTextBytes += Workloads.utf8Length(line);
+    }
+  }
+
+  @Benchmark
+  public void resize(ByteCounter counter) {
+    // the lines are longer than the narrow width, so they are wrapped and unwrapped by turns
+    myWide = !myWide;
+    myTerminal.resize(new TermSize(myWide ? 160 : 60, ROWS), RequestOrigin.User);
+    counter.bytes += myTextBytes;
+  }
+}
@@ -0,0 +1,58 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scrolling the whole screen into the history, and inserting and deleting lines in a scroll region,
+ * e.g. in a pager or an editor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScrollBenchmark {
+  private static final int COLUMNS = 160;
+  private static final int ROWS = 50;
+
+  private JediTerminal myTerminal;
+  private String myLine;
+  private int myLineBytes;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(COLUMNS, ROWS, styleState, 5000);
+    myTerminal = new JediTerminal(new BenchmarkTerminalDisplay(), textBuffer, styleState);
+    myLine = Workloads.logLine(42);
+    myLineBytes = Workloads.utf8Length(myLine);
+    for (int i = 0; i < ROWS; i++) {
+      myTerminal.writeCharacters(Workloads.logLine(i));
+      myTerminal.carriageReturn();
+      myTerminal.newLine();
+    }
+  }
+
+  @Benchmark
+  public void fullScreenScroll(ByteCounter counter) {
+    myTerminal.writeCharacters(myLine);
+    myTerminal.carriageReturn();
+    myTerminal.newLine();
+    counter.bytes += myLineBytes;
+  }
+
+  @Benchmark
+  public void scrollRegionInsertDeleteLines() {
+    myTerminal.setScrollingRegion(5, ROWS - 5);
+    myTerminal.cursorPosition(1, 10);
+    myTerminal.insertLines(3);
+    myTerminal.deleteLines(3);
+    myTerminal.resetScrollRegions();
+  }
+}
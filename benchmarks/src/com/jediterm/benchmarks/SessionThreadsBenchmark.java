@@ -0,0 +1,181 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.RequestOrigin;
+import com.jediterm.terminal.TerminalExecutorServiceManager;
+import com.jediterm.terminal.TerminalStarter;
+import com.jediterm.terminal.TtyConnector;
+import com.jediterm.terminal.ui.JediTermExecutorServiceManager;
+import com.jediterm.terminal.ui.JediTermWidget;
+import com.jediterm.terminal.ui.SharedTerminalExecutorServiceManager;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Reports the threads started by {@link JediTermWidget} sessions versus the number of sessions, with an executor
+ * service manager per session ({@link JediTermExecutorServiceManager}) and with the shared one
+ * ({@link SharedTerminalExecutorServiceManager}).
+ * <p/>
+ * Every session runs its emulator on an idle process, which blocks the reading thread as a shell waiting for input
+ * does, and sends a key and a resize to it to start the threads writing to the process.
+ * <p/>
+ * Arguments: comma-separated session counts, 1,10,30,60,100 by default.
+ */
+public final class SessionThreadsBenchmark {
+  public static void main(String[] args) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int[] sessionCounts = parseSessionCounts(args.length > 0 ? args[0] : "1,10,30,60,100");
+    // start the threads of Swing before measuring
+    runSessions(1, JediTermExecutorServiceManager::new, () -> {});
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    int baseline = waitForThreadCount(threadBean, Integer.MAX_VALUE);
+
+    System.out.printf(Locale.ROOT, "%10s %20s %20s%n", "sessions", "per-session threads", "shared threads");
+    int[] perSessionThreads = new int[sessionCounts.length];
+    for (int i = 0; i < sessionCounts.length; i++) {
+      perSessionThreads[i] = measure(sessionCounts[i], JediTermExecutorServiceManager::new, threadBean) - baseline;
+      waitForThreadCount(threadBean, baseline);
+    }
+    for (int i = 0; i < sessionCounts.length; i++) {
+      int sharedThreads = measure(sessionCounts[i], SharedTerminalExecutorServiceManager::new, threadBean) - baseline;
+      System.out.printf(Locale.ROOT, "%10d %20d %20d%n", sessionCounts[i], perSessionThreads[i], sharedThreads);
+    }
+    System.exit(0);
+  }
+
+  private static int measure(int sessionCount,
+                             @NotNull Supplier<TerminalExecutorServiceManager> managerFactory,
+                             @NotNull ThreadMXBean threadBean) throws Exception {
+    int[] threadCount = new int[1];
+    runSessions(sessionCount, managerFactory, () -> threadCount[0] = threadBean.getThreadCount());
+    return threadCount[0];
+  }
+
+  /**
+   * Starts the sessions, lets them settle, calls the given measurement, and closes them.
+   */
+  private static void runSessions(int sessionCount,
+                                  @NotNull Supplier<TerminalExecutorServiceManager> managerFactory,
+                                  @NotNull Runnable measurement) throws Exception {
+    List<JediTermWidget> widgets = new ArrayList<>();
+    for (int i = 0; i < sessionCount; i++) {
+      JediTermWidget widget = new JediTermWidget(new DefaultSettingsProvider()) {
+        @Override
+        protected @NotNull TerminalExecutorServiceManager createExecutorServiceManager() {
+          return managerFactory.get();
+        }
+      };
+      widget.setTtyConnector(new IdleTtyConnector());
+      widget.start();
+      widgets.add(widget);
+    }
+    for (JediTermWidget widget : widgets) {
+      TerminalStarter starter = Objects.requireNonNull(widget.getTerminalStarter());
+      starter.sendString("x", true);
+      starter.postResize(new TermSize(100, 30), RequestOrigin.User);
+    }
+    Thread.sleep(500);
+    measurement.run();
+    for (JediTermWidget widget : widgets) {
+      widget.close();
+    }
+  }
+
+  /**
+   * Waits until the count of live threads is at most the given one, or stops changing.
+   *
+   * @return the count of live threads
+   */
+  private static int waitForThreadCount(@NotNull ThreadMXBean threadBean, int maxThreadCount) throws InterruptedException {
+    int threadCount = threadBean.getThreadCount();
+    for (int i = 0; i < 50 && threadCount > maxThreadCount; i++) {
+      Thread.sleep(100);
+      threadCount = threadBean.getThreadCount();
+    }
+    if (maxThreadCount == Integer.MAX_VALUE) {
+      int previousThreadCount;
+      do {
+        previousThreadCount = threadCount;
+        Thread.sleep(500);
+        threadCount = threadBean.getThreadCount();
+      }
+      while (threadCount < previousThreadCount);
+    }
+    return threadCount;
+  }
+
+  private static int @NotNull [] parseSessionCounts(@NotNull String sessionCounts) {
+    String[] counts = sessionCounts.split(",");
+    int[] result = new int[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      result[i] = Integer.parseInt(counts[i].trim());
+    }
+    return result;
+  }
+
+  /**
+   * A process that does not output anything until it is closed, as a shell waiting for input.
+   */
+  private static final class IdleTtyConnector implements TtyConnector {
+    private final CountDownLatch myClosed = new CountDownLatch(1);
+
+    @Override
+    public int read(char[] buf, int offset, int length) throws InterruptedIOException {
+      try {
+        myClosed.await();
+      }
+      catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+      return -1;
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+    }
+
+    @Override
+    public void write(String string) {
+    }
+
+    @Override
+    public boolean isConnected() {
+      return myClosed.getCount() > 0;
+    }
+
+    @Override
+    public void resize(@NotNull TermSize termSize) {
+    }
+
+    @Override
+    public int waitFor() throws InterruptedException {
+      myClosed.await();
+      return 0;
+    }
+
+    @Override
+    public boolean ready() {
+      return false;
+    }
+
+    @Override
+    public String getName() {
+      return "idle";
+    }
+
+    @Override
+    public void close() {
+      myClosed.countDown();
+    }
+  }
+}
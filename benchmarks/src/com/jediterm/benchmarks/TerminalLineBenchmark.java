@@ -0,0 +1,57 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.TerminalLine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Editing a line with several style runs, as the emulator does for every printed chunk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TerminalLineBenchmark {
+  private static final int WIDTH = 160;
+  private static final TextStyle[] STYLES = {
+    TextStyle.EMPTY,
+    new TextStyle(TerminalColor.index(1), null),
+    new TextStyle(TerminalColor.index(2), TerminalColor.index(0)),
+    new TextStyle(null, null, java.util.EnumSet.of(TextStyle.Option.BOLD))
+  };
+
+  private final CharBuffer myText = new CharBuffer("processed request id=42");
+  private TerminalLine myLine;
+  private int myStep;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    myLine = new TerminalLine();
+    for (int x = 0; x < WIDTH; x += 20) {
+      myLine.writeString(x, new CharBuffer("01234567890123456789"), STYLES[x / 20 % STYLES.length]);
+    }
+  }
+
+  @Benchmark
+  public TerminalLine writeString(ByteCounter counter) {
+    int x = myStep++ * 7 % (WIDTH - myText.length());
+    myLine.writeString(x, myText, STYLES[myStep % STYLES.length]);
+    counter.bytes += myText.length();
+    return myLine;
+  }
+
+  @Benchmark
+  public TerminalLine insertAndDelete(ByteCounter counter) {
+    int x = myStep++ * 7 % (WIDTH - myText.length());
+    myLine.insertString(x, myText, STYLES[myStep % STYLES.length]);
+    myLine.deleteCharacters(x, myText.length(), TextStyle.EMPTY);
+    counter.bytes += myText.length();
+    return myLine;
+  }
+}
@@ -0,0 +1,124 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.core.typeahead.TerminalTypeAheadManager;
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.ReplayTtyConnector;
+import com.jediterm.terminal.TerminalExecutorServiceManager;
+import com.jediterm.terminal.TerminalStarter;
+import com.jediterm.terminal.TtyBasedArrayDataStream;
+import com.jediterm.terminal.TtyRecording;
+import com.jediterm.terminal.model.JediTermTypeAheadModel;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.JediTermExecutorServiceManager;
+import com.jediterm.terminal.ui.SharedTerminalExecutorServiceManager;
+import com.jediterm.terminal.ui.VirtualThreadTerminalExecutorServiceManager;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Replays the same recording in many sessions at once, at the recorded speed, as many idle-most-of-the-time shells do,
+ * and reports the wall time, the peak count of platform threads and whether all sessions ended with the same screen,
+ * with platform threads per session ({@link JediTermExecutorServiceManager}), with the shared platform threads
+ * ({@link SharedTerminalExecutorServiceManager}) and with virtual threads
+ * ({@link VirtualThreadTerminalExecutorServiceManager}, Java 21 or later).
+ * <p/>
+ * Arguments: [session count, 1000 by default].
+ */
+public final class VirtualThreadScalingBenchmark {
+  private static final TermSize TERM_SIZE = new TermSize(80, 24);
+  private static final int CHUNK_COUNT = 100;
+  private static final long CHUNK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  public static void main(String[] args) throws Exception {
+    int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    TtyRecording recording = createRecording();
+    System.out.printf(Locale.ROOT, "%d sessions replaying %d chunks in %.1f s each%n", sessionCount, CHUNK_COUNT,
+                      recording.getDurationNanos() / 1e9);
+    System.out.printf(Locale.ROOT, "%-12s %12s %22s %14s%n", "threads", "wall time", "peak platform threads", "same screens");
+    // the threads of the shared pools stay idle for a minute after the run, so that one is the last
+    if (VirtualThreadTerminalExecutorServiceManager.isSupported()) {
+      run("virtual", VirtualThreadTerminalExecutorServiceManager::new, recording, sessionCount);
+    }
+    else {
+      System.out.printf(Locale.ROOT, "%-12s %12s%n", "virtual", "requires Java 21");
+    }
+    run("per-session", JediTermExecutorServiceManager::new, recording, sessionCount);
+    run("shared", SharedTerminalExecutorServiceManager::new, recording, sessionCount);
+    System.exit(0);
+  }
+
+  private static void run(@NotNull String name,
+                          @NotNull Supplier<TerminalExecutorServiceManager> managerFactory,
+                          @NotNull TtyRecording recording,
+                          int sessionCount) throws Exception {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    // wait for the threads of the previous run to end
+    for (int i = 0; i < 50 && threadBean.getThreadCount() > 50; i++) {
+      Thread.sleep(100);
+    }
+    threadBean.resetPeakThreadCount();
+    List<Session> sessions = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < sessionCount; i++) {
+      sessions.add(new Session(recording, managerFactory.get()));
+    }
+    Set<String> screenHashes = new HashSet<>();
+    for (Session session : sessions) {
+      session.myFuture.get();
+      screenHashes.add(ReplayDriver.getScreenHash(session.myTextBuffer, session.myTerminal));
+    }
+    long elapsedNanos = System.nanoTime() - start;
+    // virtual threads are not counted by the thread MXBean
+    int peakThreadCount = threadBean.getPeakThreadCount();
+    for (Session session : sessions) {
+      session.myExecutorServiceManager.shutdownWhenAllExecuted();
+    }
+    System.out.printf(Locale.ROOT, "%-12s %10.2f s %22d %14s%n", name, elapsedNanos / 1e9, peakThreadCount,
+                      screenHashes.size() == 1 ? "yes" : "no");
+  }
+
+  private static @NotNull TtyRecording createRecording() {
+    String output = Workloads.sgrHeavy(CHUNK_COUNT * 2);
+    List<TtyRecording.Chunk> chunks = new ArrayList<>();
+    int chunkLength = (output.length() + CHUNK_COUNT - 1) / CHUNK_COUNT;
+    for (int i = 0; i < CHUNK_COUNT; i++) {
+      int from = i * chunkLength;
+      char[] data = output.substring(from, Math.min(output.length(), from + chunkLength)).toCharArray();
+      chunks.add(new TtyRecording.Chunk(i * CHUNK_INTERVAL_NANOS, data));
+    }
+    return new TtyRecording(TERM_SIZE, chunks);
+  }
+
+  private static final class Session {
+    private final TerminalTextBuffer myTextBuffer;
+    private final JediTerminal myTerminal;
+    private final TerminalExecutorServiceManager myExecutorServiceManager;
+    private final Future<?> myFuture;
+
+    Session(@NotNull TtyRecording recording, @NotNull TerminalExecutorServiceManager executorServiceManager) {
+      StyleState styleState = new StyleState();
+      myTextBuffer = new TerminalTextBuffer(TERM_SIZE.getColumns(), TERM_SIZE.getRows(), styleState, 1000);
+      myTerminal = new JediTerminal(new BenchmarkTerminalDisplay(), myTextBuffer, styleState);
+      TerminalTypeAheadManager typeAheadManager =
+        new TerminalTypeAheadManager(new JediTermTypeAheadModel(myTerminal, myTextBuffer, new DefaultSettingsProvider()));
+      myExecutorServiceManager = executorServiceManager;
+      ReplayTtyConnector connector = new ReplayTtyConnector(recording, true);
+      TerminalStarter starter = new TerminalStarter(myTerminal, connector, new TtyBasedArrayDataStream(connector),
+                                                    typeAheadManager, executorServiceManager);
+      myFuture = executorServiceManager.getUnboundedExecutorService().submit(starter::start);
+    }
+  }
+}
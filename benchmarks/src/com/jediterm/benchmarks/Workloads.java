@@ -0,0 +1,101 @@
+package com.jediterm.benchmarks;
+
+import com.jediterm.terminal.ArrayTerminalDataStream;
+import com.jediterm.terminal.emulator.Emulator;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.model.JediTerminal;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates the terminal output the benchmarks process, deterministically, so that the results are comparable.
+ */
+public final class Workloads {
+  private static final String ESC = "\u001b";
+
+  private Workloads() {
+  }
+
+  /**
+   * Log lines without escape sequences, e.g. a build log.
+   */
+  public static @NotNull String plainText(int linesCount) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < linesCount; i++) {
+      result.append(logLine(i)).append("\r\n");
+    }
+    return result.toString();
+  }
+
+  /**
+   * Colored output with short style runs, e.g. {@code ls --color} or a syntax-highlighted diff.
+   */
+  public static @NotNull String sgrHeavy(int linesCount) {
+    Random random = new Random(42);
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < linesCount; i++) {
+      for (int word = 0; word < 12; word++) {
+        int color = random.nextInt(8);
+        if (random.nextBoolean()) {
+          result.append(ESC).append("[1;3").append(color).append('m');
+        }
+        else {
+          result.append(ESC).append("[38;5;").append(random.nextInt(256)).append(";48;5;").append(random.nextInt(256)).append('m');
+        }
+        result.append("word").append(word).append(ESC).append("[0m ");
+      }
+      result.append("\r\n");
+    }
+    return result.toString();
+  }
+
+  /**
+   * Full-screen application output, e.g. {@code top} or an editor: every cell update is preceded by a cursor move.
+   */
+  public static @NotNull String cursorAddressing(int updatesCount, int columns, int rows) {
+    Random random = new Random(42);
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < updatesCount; i++) {
+      result.append(ESC).append('[').append(random.nextInt(rows) + 1).append(';').append(random.nextInt(columns - 10) + 1).append('H');
+      result.append(ESC).append("[7m").append(random.nextInt(100000)).append(ESC).append("[0m");
+      if (i % 50 == 0) {
+        result.append(ESC).append("[2K");
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Log lines with URLs for the hyperlink filters to find.
+   */
+  public static @NotNull String withUrls(int linesCount) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < linesCount; i++) {
+      result.append(logLine(i));
+      if (i % 3 == 0) {
+        result.append(" see https://example.com/builds/").append(i).append("/log?tab=tests#failure");
+      }
+      result.append("\r\n");
+    }
+    return result.toString();
+  }
+
+  public static @NotNull String logLine(int index) {
+    return "[" + index + "] INFO com.example.Service - processed request id=" + (index * 31L % 1000003) +
+           (index % 1000 == 0 ? " status=FAILED" : " status=OK");
+  }
+
+  public static int utf8Length(@NotNull String output) {
+    return output.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  public static void process(@NotNull JediTerminal terminal, char @NotNull [] output) throws IOException {
+    Emulator emulator = new JediEmulator(new ArrayTerminalDataStream(output), terminal);
+    while (emulator.hasNext()) {
+      emulator.next();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.benchmarks.BenchmarkTerminalDisplay;
+import com.jediterm.benchmarks.ByteCounter;
+import com.jediterm.benchmarks.Workloads;
+import com.jediterm.terminal.SubstringFinder;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching the whole history, the search utilities are package-private, hence the package.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TerminalSearchBenchmark {
+  private static final int LINES_COUNT = 100000;
+
+  @Param({"status=FAILED", "request"})
+  public String pattern;
+
+  @Param({"false", "true"})
+  public boolean ignoreCase;
+
+  private TerminalTextBuffer myTextBuffer;
+  private long myTextBytes;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(160, 50, styleState, LINES_COUNT);
+    JediTerminal terminal = new JediTerminal(new BenchmarkTerminalDisplay(), myTextBuffer, styleState);
+    for (int i = 0; i < LINES_COUNT; i++) {
+      String line = Workloads.logLine(i);
+      terminal.writeCharacters(line);
+      terminal.carriageReturn();
+      terminal.newLine();
+      myTextBytes += Workloads.utf8Length(line);
+    }
+  }
+
+  @Benchmark
+  public SubstringFinder.FindResult search(ByteCounter counter) {
+    myTextBuffer.lock();
+    try {
+      counter.bytes += myTextBytes;
+      return TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, pattern, ignoreCase);
+    }
+    finally {
+      myTextBuffer.unlock();
+    }
+  }
+}
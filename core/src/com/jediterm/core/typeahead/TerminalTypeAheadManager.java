@@ -2,6 +2,7 @@ package com.jediterm.core.typeahead;
 
 import com.jediterm.core.typeahead.TypeAheadTerminalModel.LineWithCursorX;
 import com.jediterm.core.util.Ascii;
+import com.jediterm.terminal.metrics.TerminalMetrics;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -32,11 +33,16 @@ public class TerminalTypeAheadManager {
   private Integer myLeftMostCursorPosition = null;
   private boolean myIsNotPasswordPrompt = false;
   private @Nullable TypeAheadPrediction myLastSuccessfulPrediction = null;
+  private @NotNull TerminalMetrics myMetrics = TerminalMetrics.NOOP;
 
   public TerminalTypeAheadManager(@NotNull TypeAheadTerminalModel terminalModel) {
     myTerminalModel = terminalModel;
   }
 
+  public void setMetrics(@NotNull TerminalMetrics metrics) {
+    myMetrics = metrics;
+  }
+
   public void onTerminalStateChanged() {
     if (!myTerminalModel.isTypeAheadEnabled() || myOutOfSyncDetected) return;
 
@@ -65,9 +71,13 @@ public class TerminalTypeAheadManager {
       }
 
       if (myPredictions.isEmpty()) {
+        if (!removedPredictions.isEmpty()) {
+          myMetrics.typeAheadPredictionsChecked(0, removedPredictions.size());
+        }
         myOutOfSyncDetected = true;
         resetState();
       } else {
+        myMetrics.typeAheadPredictionsChecked(1, removedPredictions.size());
         myLastSuccessfulPrediction = myPredictions.remove(0);
         removedPredictions.add(myLastSuccessfulPrediction);
         for (TypeAheadPrediction prediction : removedPredictions) {
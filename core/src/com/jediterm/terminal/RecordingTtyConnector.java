@@ -0,0 +1,99 @@
+package com.jediterm.terminal;
+
+import com.jediterm.core.util.TermSize;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the output read from the wrapped connector with the times it was read, see {@link TtyRecording}.
+ */
+public class RecordingTtyConnector implements TtyConnector {
+  private final TtyConnector myDelegate;
+  private final long myStartNanos = System.nanoTime();
+  // guarded by this
+  private final List<TtyRecording.Chunk> myChunks = new ArrayList<>();
+  private @NotNull TermSize myTermSize;
+  private boolean myTermSizeRecorded;
+
+  /**
+   * @param termSize the size of the terminal until it is resized
+   */
+  public RecordingTtyConnector(@NotNull TtyConnector delegate, @NotNull TermSize termSize) {
+    myDelegate = delegate;
+    myTermSize = termSize;
+  }
+
+  public @NotNull TtyConnector getDelegate() {
+    return myDelegate;
+  }
+
+  /**
+   * @return the output read so far, recorded at the terminal size the first chunk was read at
+   */
+  public synchronized @NotNull TtyRecording getRecording() {
+    return new TtyRecording(myTermSize, myChunks);
+  }
+
+  @Override
+  public int read(char[] buf, int offset, int length) throws IOException {
+    int count = myDelegate.read(buf, offset, length);
+    if (count > 0) {
+      long timeNanos = System.nanoTime() - myStartNanos;
+      char[] data = Arrays.copyOfRange(buf, offset, offset + count);
+      synchronized (this) {
+        myChunks.add(new TtyRecording.Chunk(timeNanos, data));
+        myTermSizeRecorded = true;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void write(byte[] bytes) throws IOException {
+    myDelegate.write(bytes);
+  }
+
+  @Override
+  public void write(String string) throws IOException {
+    myDelegate.write(string);
+  }
+
+  @Override
+  public boolean isConnected() {
+    return myDelegate.isConnected();
+  }
+
+  @Override
+  public void resize(@NotNull TermSize termSize) {
+    synchronized (this) {
+      if (!myTermSizeRecorded) {
+        myTermSize = termSize;
+      }
+    }
+    myDelegate.resize(termSize);
+  }
+
+  @Override
+  public int waitFor() throws InterruptedException {
+    return myDelegate.waitFor();
+  }
+
+  @Override
+  public boolean ready() throws IOException {
+    return myDelegate.ready();
+  }
+
+  @Override
+  public String getName() {
+    return myDelegate.getName();
+  }
+
+  @Override
+  public void close() {
+    myDelegate.close();
+  }
+}
@@ -0,0 +1,114 @@
+package com.jediterm.terminal;
+
+import com.jediterm.core.util.TermSize;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a {@link TtyRecording} to the emulator as if it was read from a TTY, and ignores the input and the resizes.
+ * The connector is disconnected once the whole recording has been read.
+ * Should be read from a single thread, i.e. the emulator thread.
+ */
+public class ReplayTtyConnector implements TtyConnector {
+  private final List<TtyRecording.Chunk> myChunks;
+  private final boolean myRealTime;
+  private final CountDownLatch myFinished = new CountDownLatch(1);
+  private volatile boolean myClosed;
+
+  // accessed on the reading thread only
+  private long myStartNanos = -1;
+  private int myChunkIndex;
+  private int myChunkOffset;
+
+  /**
+   * @param realTime whether to return the chunks at the times they were recorded,
+   *                 otherwise they are returned as fast as they are read
+   */
+  public ReplayTtyConnector(@NotNull TtyRecording recording, boolean realTime) {
+    myChunks = recording.getChunks();
+    myRealTime = realTime;
+  }
+
+  @Override
+  public int read(char[] buf, int offset, int length) throws InterruptedIOException {
+    if (myStartNanos == -1) {
+      myStartNanos = System.nanoTime();
+    }
+    if (myClosed || myChunkIndex >= myChunks.size()) {
+      myFinished.countDown();
+      return -1;
+    }
+    TtyRecording.Chunk chunk = myChunks.get(myChunkIndex);
+    if (myRealTime && myChunkOffset == 0) {
+      long delayNanos = myStartNanos + chunk.getTimeNanos() - System.nanoTime();
+      if (delayNanos > 0) {
+        try {
+          TimeUnit.NANOSECONDS.sleep(delayNanos);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+    char[] data = chunk.getData();
+    int count = Math.min(length, data.length - myChunkOffset);
+    System.arraycopy(data, myChunkOffset, buf, offset, count);
+    myChunkOffset += count;
+    if (myChunkOffset == data.length) {
+      myChunkIndex++;
+      myChunkOffset = 0;
+    }
+    return count;
+  }
+
+  @Override
+  public void write(byte[] bytes) {
+  }
+
+  @Override
+  public void write(String string) {
+  }
+
+  @Override
+  public boolean isConnected() {
+    return !myClosed && myFinished.getCount() > 0;
+  }
+
+  @Override
+  public void resize(@NotNull TermSize termSize) {
+  }
+
+  /**
+   * Waits until the whole recording has been read or the connector is closed.
+   */
+  @Override
+  public int waitFor() throws InterruptedException {
+    myFinished.await();
+    return 0;
+  }
+
+  @Override
+  public boolean ready() {
+    if (myClosed || myChunkIndex >= myChunks.size()) {
+      return false;
+    }
+    return !myRealTime || myChunkOffset > 0 ||
+           myStartNanos != -1 && System.nanoTime() - myStartNanos >= myChunks.get(myChunkIndex).getTimeNanos();
+  }
+
+  @Override
+  public String getName() {
+    return "Replay";
+  }
+
+  @Override
+  public void close() {
+    myClosed = true;
+    myFinished.countDown();
+  }
+}
@@ -5,6 +5,7 @@ import com.jediterm.core.typeahead.TerminalTypeAheadManager;
 import com.jediterm.core.util.TermSize;
 import com.jediterm.terminal.emulator.Emulator;
 import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.metrics.TerminalMetrics;
 import com.jediterm.terminal.model.JediTerminal;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -47,6 +48,13 @@ public class TerminalStarter implements TerminalOutputStream {
     myTerminal = terminal;
     myTerminal.setTerminalOutput(this);
     myEmulator = createEmulator(dataStream, terminal);
+    TerminalMetrics metrics = terminal.getTerminalTextBuffer().getMetrics();
+    if (dataStream instanceof TtyBasedArrayDataStream) {
+      ((TtyBasedArrayDataStream)dataStream).setMetrics(metrics);
+    }
+    if (myEmulator instanceof JediEmulator) {
+      ((JediEmulator)myEmulator).setMetrics(metrics);
+    }
     myTypeAheadManager = typeAheadManager;
     mySingleThreadScheduledExecutor = executorServiceManager.getSingleThreadScheduledExecutor();
   }
@@ -1,6 +1,9 @@
 package com.jediterm.terminal;
 
+import com.jediterm.terminal.jfr.EmulatorChunkEvent;
+import com.jediterm.terminal.metrics.TerminalMetrics;
 import com.jediterm.terminal.util.CharUtils;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
@@ -11,6 +14,9 @@ import java.io.IOException;
 public class TtyBasedArrayDataStream extends ArrayTerminalDataStream {
   private final TtyConnector myTtyConnector;
   private final @Nullable Runnable myOnBeforeBlockingWait;
+  private @NotNull TerminalMetrics myMetrics = TerminalMetrics.NOOP;
+  // the chunk being processed, if the event is enabled
+  private @Nullable EmulatorChunkEvent myChunkEvent;
 
   public TtyBasedArrayDataStream(final TtyConnector ttyConnector, final @Nullable Runnable onBeforeBlockingWait) {
     super(new char[1024], 0, 0);
@@ -24,7 +30,12 @@ public class TtyBasedArrayDataStream extends ArrayTerminalDataStream {
     myOnBeforeBlockingWait = null;
   }
 
+  public void setMetrics(@NotNull TerminalMetrics metrics) {
+    myMetrics = metrics;
+  }
+
   private void fillBuf() throws IOException {
+    commitChunkEvent();
     myOffset = 0;
 
     if (!myTtyConnector.ready() && myOnBeforeBlockingWait != null) {
@@ -36,13 +47,39 @@ public class TtyBasedArrayDataStream extends ArrayTerminalDataStream {
       myLength = 0;
       throw new EOF();
     }
+    myMetrics.charsParsed(myLength);
+    EmulatorChunkEvent chunkEvent = new EmulatorChunkEvent();
+    if (chunkEvent.isEnabled()) {
+      chunkEvent.chars = myLength;
+      chunkEvent.begin();
+      myChunkEvent = chunkEvent;
+    }
+  }
+
+  /**
+   * Commits the event of the chunk once its chars are consumed, so that the last chunk is recorded even if
+   * the next read throws {@link EOF} or the emulator is stopped before it.
+   */
+  private void commitChunkEvent() {
+    EmulatorChunkEvent chunkEvent = myChunkEvent;
+    if (chunkEvent != null) {
+      myChunkEvent = null;
+      chunkEvent.end();
+      if (chunkEvent.shouldCommit()) {
+        chunkEvent.commit();
+      }
+    }
   }
 
   public char getChar() throws IOException {
     if (myLength == 0) {
       fillBuf();
     }
-    return super.getChar();
+    char c = super.getChar();
+    if (myLength == 0) {
+      commitChunkEvent();
+    }
+    return c;
   }
 
   public String readNonControlCharacters(int maxChars) throws IOException {
@@ -50,7 +87,11 @@ public class TtyBasedArrayDataStream extends ArrayTerminalDataStream {
       fillBuf();
     }
 
-    return super.readNonControlCharacters(maxChars);
+    String nonControlCharacters = super.readNonControlCharacters(maxChars);
+    if (myLength == 0) {
+      commitChunkEvent();
+    }
+    return nonControlCharacters;
   }
 
   @Override
@@ -0,0 +1,117 @@
+package com.jediterm.terminal;
+
+import com.jediterm.core.util.TermSize;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Output of a TTY as the chunks returned by {@link TtyConnector#read(char[], int, int)} with the times they were read,
+ * to replay real terminal traffic reproducibly, e.g. in performance tests, see {@link RecordingTtyConnector}
+ * and {@link ReplayTtyConnector}.
+ * <p/>
+ * The binary format is: the magic number, the format version, the terminal columns and rows,
+ * the chunk count, then for every chunk the time since the recording started in nanoseconds,
+ * the length and the chars as UTF-16.
+ */
+public final class TtyRecording {
+  private static final int MAGIC = 0x4A545243; // "JTRC"
+  private static final int VERSION = 1;
+
+  private final TermSize myTermSize;
+  private final List<Chunk> myChunks;
+
+  public TtyRecording(@NotNull TermSize termSize, @NotNull List<Chunk> chunks) {
+    myTermSize = termSize;
+    myChunks = Collections.unmodifiableList(new ArrayList<>(chunks));
+  }
+
+  /**
+   * @return the terminal size the output was recorded at
+   */
+  public @NotNull TermSize getTermSize() {
+    return myTermSize;
+  }
+
+  public @NotNull List<Chunk> getChunks() {
+    return myChunks;
+  }
+
+  public long getDurationNanos() {
+    return myChunks.isEmpty() ? 0 : myChunks.get(myChunks.size() - 1).getTimeNanos();
+  }
+
+  public long getCharCount() {
+    long count = 0;
+    for (Chunk chunk : myChunks) {
+      count += chunk.getData().length;
+    }
+    return count;
+  }
+
+  public void write(@NotNull OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(myTermSize.getColumns());
+    data.writeInt(myTermSize.getRows());
+    data.writeInt(myChunks.size());
+    for (Chunk chunk : myChunks) {
+      data.writeLong(chunk.getTimeNanos());
+      char[] chars = chunk.getData();
+      data.writeInt(chars.length);
+      for (char c : chars) {
+        data.writeChar(c);
+      }
+    }
+    data.flush();
+  }
+
+  public static @NotNull TtyRecording read(@NotNull InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    int magic = data.readInt();
+    if (magic != MAGIC) {
+      throw new IOException("Not a TTY recording: " + Integer.toHexString(magic));
+    }
+    int version = data.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported TTY recording version: " + version);
+    }
+    TermSize termSize = new TermSize(data.readInt(), data.readInt());
+    int count = data.readInt();
+    List<Chunk> chunks = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      long timeNanos = data.readLong();
+      char[] chars = new char[data.readInt()];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = data.readChar();
+      }
+      chunks.add(new Chunk(timeNanos, chars));
+    }
+    return new TtyRecording(termSize, chunks);
+  }
+
+  public static final class Chunk {
+    private final long myTimeNanos;
+    private final char[] myData;
+
+    public Chunk(long timeNanos, char @NotNull [] data) {
+      myTimeNanos = timeNanos;
+      myData = data;
+    }
+
+    /**
+     * @return the time since the recording started
+     */
+    public long getTimeNanos() {
+      return myTimeNanos;
+    }
+
+    public char @NotNull [] getData() {
+      return myData;
+    }
+  }
+}
@@ -6,6 +6,8 @@ import com.jediterm.core.util.TermSize;
 import com.jediterm.terminal.*;
 import com.jediterm.terminal.emulator.mouse.MouseFormat;
 import com.jediterm.terminal.emulator.mouse.MouseMode;
+import com.jediterm.terminal.metrics.TerminalMetrics;
+import com.jediterm.terminal.metrics.TerminalMetrics.SequenceType;
 import com.jediterm.terminal.model.JediTerminal;
 import com.jediterm.terminal.util.CharUtils;
 import org.jetbrains.annotations.NotNull;
@@ -32,12 +34,21 @@ public class JediEmulator extends DataStreamIteratingEmulator {
   private static final int logThrottlerRatio = 100;
   private static int logThrottlerLimit = logThrottlerRatio;
 
+  private @NotNull TerminalMetrics myMetrics = TerminalMetrics.NOOP;
+
   public JediEmulator(TerminalDataStream dataStream, Terminal terminal) {
     super(dataStream, terminal);
   }
 
+  public void setMetrics(@NotNull TerminalMetrics metrics) {
+    myMetrics = metrics;
+  }
+
   @Override
   public void processChar(char ch, Terminal terminal) throws IOException {
+    if (ch <= Ascii.US && ch != Ascii.ESC) {
+      myMetrics.sequenceParsed(SequenceType.CONTROL_CHARACTER);
+    }
     switch (ch) {
       case 0:
         break;
@@ -78,6 +89,7 @@ public class JediEmulator extends DataStreamIteratingEmulator {
         processEscapeSequence(myDataStream.getChar(), myTerminal);
         break;
       case SystemCommandSequence.OSC:
+        myMetrics.sequenceParsed(SequenceType.OSC);
         processOsc();
         break;
       default:
@@ -131,6 +143,7 @@ public class JediEmulator extends DataStreamIteratingEmulator {
   }
 
   private void processEscapeSequence(char ch, Terminal terminal) throws IOException {
+    myMetrics.sequenceParsed(ch == '[' ? SequenceType.CSI : ch == ']' ? SequenceType.OSC : ch == 'P' ? SequenceType.DCS : SequenceType.ESC);
     switch (ch) {
       case '[': // Control Sequence Introducer (CSI)
         ControlSequence args = new ControlSequence(myDataStream);
@@ -3,6 +3,7 @@ package com.jediterm.terminal.emulator
 import com.jediterm.terminal.ArrayTerminalDataStream
 import com.jediterm.terminal.Terminal
 import com.jediterm.terminal.TerminalDataStream
+import com.jediterm.terminal.jfr.SynchronizedOutputEvent
 import com.jediterm.terminal.model.JediTerminal
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -62,11 +63,19 @@ internal class SynchronizedOutput(
       dataStream.pushBackBuffer(charArray, charArray.size)
     }
     else {
+      val event = SynchronizedOutputEvent()
+      event.begin()
       // Ensure the text buffer is not accessed during applying the synchronized output.
       // Otherwise, the inconsistent state of the text buffer will be observed, leading to flickering.
       terminal.terminalTextBuffer.modify {
         applySyncOutput(charArray, terminal)
       }
+      event.end()
+      if (event.shouldCommit()) {
+        event.chars = charArray.size
+        event.bufferingMillis = System.currentTimeMillis() - startTime
+        event.commit()
+      }
     }
   }
 
@@ -0,0 +1,18 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A chunk of the TTY output processed by the emulator, from reading it until the emulator needs the next one.
+ * Disabled by default since it is emitted for every read, enable it in the JFR settings.
+ */
+@Name("com.jediterm.EmulatorChunk")
+@Label("Emulator Chunk")
+@Category({"JediTerm", "Emulator"})
+@Description("A chunk of the TTY output processed by the emulator")
+@Enabled(false)
+@StackTrace(false)
+public final class EmulatorChunkEvent extends Event {
+  @Label("Chars")
+  public int chars;
+}
@@ -0,0 +1,23 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * The hyperlink filters applied to a changed line. The asynchronous filters may complete later,
+ * the duration covers starting them.
+ * Disabled by default since it is emitted for every line written, enable it in the JFR settings.
+ */
+@Name("com.jediterm.HyperlinkBatch")
+@Label("Hyperlink Batch")
+@Category({"JediTerm", "Model"})
+@Description("The hyperlink filters applied to a changed line")
+@Enabled(false)
+@StackTrace(false)
+public final class HyperlinkBatchEvent extends Event {
+  @Label("Filters")
+  public int filters;
+
+  @Label("Lines")
+  @Description("The count of the soft-wrapped lines the filters are applied to as one line")
+  public int lines;
+}
@@ -0,0 +1,22 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A frame painted by the terminal panel, on the EDT or on the offscreen render thread.
+ * Disabled by default since it is emitted for every frame, enable it in the JFR settings.
+ */
+@Name("com.jediterm.PanelPaint")
+@Label("Panel Paint")
+@Category({"JediTerm", "UI"})
+@Description("A frame painted by the terminal panel")
+@Enabled(false)
+@StackTrace(false)
+public final class PanelPaintEvent extends Event {
+  @Label("Rows")
+  @Description("The count of the rows painted, drawn or copied from the row image cache")
+  public int rows;
+
+  @Label("Offscreen")
+  public boolean offscreen;
+}
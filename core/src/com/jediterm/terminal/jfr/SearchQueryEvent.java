@@ -0,0 +1,28 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A search in the text buffer, or a page of a regular expression search. The pattern itself is not recorded.
+ */
+@Name("com.jediterm.SearchQuery")
+@Label("Search Query")
+@Category({"JediTerm", "Search"})
+@Description("A search in the text buffer")
+@StackTrace(false)
+public final class SearchQueryEvent extends Event {
+  @Label("Pattern Length")
+  public int patternLength;
+
+  @Label("Regular Expression")
+  public boolean regex;
+
+  @Label("Ignore Case")
+  public boolean ignoreCase;
+
+  @Label("Parallel")
+  public boolean parallel;
+
+  @Label("Matches")
+  public int matches;
+}
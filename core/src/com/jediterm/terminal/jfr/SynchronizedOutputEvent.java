@@ -0,0 +1,21 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A synchronized output frame, i.e. the output buffered between {@code CSI ? 2026 h} and {@code CSI ? 2026 l},
+ * applied to the text buffer at once.
+ */
+@Name("com.jediterm.SynchronizedOutput")
+@Label("Synchronized Output Frame")
+@Category({"JediTerm", "Emulator"})
+@Description("A synchronized output frame applied to the text buffer")
+@StackTrace(false)
+public final class SynchronizedOutputEvent extends Event {
+  @Label("Chars")
+  public int chars;
+
+  @Label("Buffering Time")
+  @Timespan(Timespan.MILLISECONDS)
+  public long bufferingMillis;
+}
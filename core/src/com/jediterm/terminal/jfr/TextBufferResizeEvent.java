@@ -0,0 +1,32 @@
+package com.jediterm.terminal.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * A resize of the text buffer, reflowing the lines if the width changed.
+ */
+@Name("com.jediterm.TextBufferResize")
+@Label("Text Buffer Resize")
+@Category({"JediTerm", "Model"})
+@Description("A resize of the text buffer, reflowing the lines if the width changed")
+@StackTrace(false)
+public final class TextBufferResizeEvent extends Event {
+  @Label("Old Columns")
+  public int oldColumns;
+
+  @Label("Old Rows")
+  public int oldRows;
+
+  @Label("New Columns")
+  public int newColumns;
+
+  @Label("New Rows")
+  public int newRows;
+
+  @Label("Alternate Buffer")
+  public boolean alternateBuffer;
+
+  @Label("Lines Reflowed")
+  @Description("The count of the history and screen lines reflowed to the new width, 0 if the width didn't change")
+  public int linesReflowed;
+}
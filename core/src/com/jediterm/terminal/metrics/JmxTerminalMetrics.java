@@ -0,0 +1,160 @@
+package com.jediterm.terminal.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of a session published as an MBean by {@link JmxTerminalMetricsProvider}.
+ */
+final class JmxTerminalMetrics implements TerminalMetrics, TerminalMetricsMXBean {
+  private static final SequenceType[] SEQUENCE_TYPES = SequenceType.values();
+
+  private final JmxTerminalMetricsProvider myProvider;
+  private final String mySessionName;
+  private final LongAdder myCharsParsed = new LongAdder();
+  private final LongAdder[] mySequenceCounts = new LongAdder[SEQUENCE_TYPES.length];
+  private final LongAdder myLinesAddedToHistory = new LongAdder();
+  private final LongAdder myHistoryLinesDiscarded = new LongAdder();
+  private final LongAdder myLockAcquisitions = new LongAdder();
+  private final LongAdder myLockHoldNanos = new LongAdder();
+  private final LongAccumulator myMaxLockHoldNanos = new LongAccumulator(Math::max, 0);
+  private final LongAdder myHyperlinkFilterInvocations = new LongAdder();
+  private final LongAdder myTypeAheadPredictionHits = new LongAdder();
+  private final LongAdder myTypeAheadPredictionMisses = new LongAdder();
+
+  JmxTerminalMetrics(@NotNull JmxTerminalMetricsProvider provider, @NotNull String sessionName) {
+    myProvider = provider;
+    mySessionName = sessionName;
+    for (int i = 0; i < mySequenceCounts.length; i++) {
+      mySequenceCounts[i] = new LongAdder();
+    }
+  }
+
+  @NotNull String getSessionName() {
+    return mySessionName;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void charsParsed(int count) {
+    myCharsParsed.add(count);
+  }
+
+  @Override
+  public void sequenceParsed(@NotNull SequenceType type) {
+    mySequenceCounts[type.ordinal()].increment();
+  }
+
+  @Override
+  public void linesAddedToHistory(int count) {
+    myLinesAddedToHistory.add(count);
+  }
+
+  @Override
+  public void linesDiscardedFromHistory(int count) {
+    myHistoryLinesDiscarded.add(count);
+  }
+
+  @Override
+  public void lockHeld(long holdNanos) {
+    myLockAcquisitions.increment();
+    myLockHoldNanos.add(holdNanos);
+    myMaxLockHoldNanos.accumulate(holdNanos);
+  }
+
+  @Override
+  public void hyperlinkFilterInvoked() {
+    myHyperlinkFilterInvocations.increment();
+  }
+
+  @Override
+  public void typeAheadPredictionsChecked(int hits, int misses) {
+    myTypeAheadPredictionHits.add(hits);
+    myTypeAheadPredictionMisses.add(misses);
+  }
+
+  @Override
+  public void dispose() {
+    myProvider.sessionDisposed(this);
+  }
+
+  /**
+   * Adds the metrics to the given ones, to keep the totals of the disposed sessions.
+   */
+  void addTo(@NotNull JmxTerminalMetrics metrics) {
+    metrics.myCharsParsed.add(getCharsParsed());
+    for (int i = 0; i < mySequenceCounts.length; i++) {
+      metrics.mySequenceCounts[i].add(mySequenceCounts[i].sum());
+    }
+    metrics.myLinesAddedToHistory.add(getLinesAddedToHistory());
+    metrics.myHistoryLinesDiscarded.add(getHistoryLinesDiscarded());
+    metrics.myLockAcquisitions.add(getLockAcquisitions());
+    metrics.myLockHoldNanos.add(getLockHoldNanos());
+    metrics.myMaxLockHoldNanos.accumulate(getMaxLockHoldNanos());
+    metrics.myHyperlinkFilterInvocations.add(getHyperlinkFilterInvocations());
+    metrics.myTypeAheadPredictionHits.add(getTypeAheadPredictionHits());
+    metrics.myTypeAheadPredictionMisses.add(getTypeAheadPredictionMisses());
+  }
+
+  @Override
+  public long getCharsParsed() {
+    return myCharsParsed.sum();
+  }
+
+  @Override
+  public Map<String, Long> getSequenceCounts() {
+    Map<String, Long> counts = new LinkedHashMap<>();
+    for (SequenceType type : SEQUENCE_TYPES) {
+      counts.put(type.name(), mySequenceCounts[type.ordinal()].sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public long getLinesAddedToHistory() {
+    return myLinesAddedToHistory.sum();
+  }
+
+  @Override
+  public long getHistoryLinesDiscarded() {
+    return myHistoryLinesDiscarded.sum();
+  }
+
+  @Override
+  public long getLockAcquisitions() {
+    return myLockAcquisitions.sum();
+  }
+
+  @Override
+  public long getLockHoldNanos() {
+    return myLockHoldNanos.sum();
+  }
+
+  @Override
+  public long getMaxLockHoldNanos() {
+    return myMaxLockHoldNanos.get();
+  }
+
+  @Override
+  public long getHyperlinkFilterInvocations() {
+    return myHyperlinkFilterInvocations.sum();
+  }
+
+  @Override
+  public long getTypeAheadPredictionHits() {
+    return myTypeAheadPredictionHits.sum();
+  }
+
+  @Override
+  public long getTypeAheadPredictionMisses() {
+    return myTypeAheadPredictionMisses.sum();
+  }
+}
@@ -0,0 +1,180 @@
+package com.jediterm.terminal.metrics;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Publishes the metrics of every session as an MBean named {@code com.jediterm:type=TerminalMetrics,name="<session>"},
+ * and the totals of all sessions, including the closed ones, as {@code com.jediterm:type=TerminalMetrics,name=Total}.
+ * <p/>
+ * Enable it with {@code TerminalMetricsProvider.setInstance(new JmxTerminalMetricsProvider())} before creating the sessions.
+ */
+public class JmxTerminalMetricsProvider implements TerminalMetricsProvider {
+  private static final Logger LOG = LoggerFactory.getLogger(JmxTerminalMetricsProvider.class);
+  private static final String DOMAIN = "com.jediterm";
+
+  private final MBeanServer myServer;
+  // guarded by this
+  private final List<JmxTerminalMetrics> mySessions = new ArrayList<>();
+  private final JmxTerminalMetrics myDisposedSessions = new JmxTerminalMetrics(this, "Disposed");
+  private final TerminalMetricsMXBean myTotals = new Totals();
+
+  public JmxTerminalMetricsProvider() {
+    this(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public JmxTerminalMetricsProvider(@NotNull MBeanServer server) {
+    myServer = server;
+    register(createObjectName("Total"), myTotals);
+  }
+
+  @Override
+  public @NotNull TerminalMetrics createSessionMetrics(@NotNull String sessionName) {
+    JmxTerminalMetrics metrics = new JmxTerminalMetrics(this, sessionName);
+    synchronized (this) {
+      mySessions.add(metrics);
+    }
+    register(createSessionObjectName(sessionName), metrics);
+    return metrics;
+  }
+
+  /**
+   * @return the totals of all sessions, including the disposed ones
+   */
+  public @NotNull TerminalMetricsMXBean getTotals() {
+    return myTotals;
+  }
+
+  /**
+   * Unregisters the MBean of the totals, the MBeans of the sessions are unregistered when they are disposed.
+   */
+  public void dispose() {
+    unregister(createObjectName("Total"));
+  }
+
+  void sessionDisposed(@NotNull JmxTerminalMetrics metrics) {
+    synchronized (this) {
+      if (!mySessions.remove(metrics)) {
+        return;
+      }
+      metrics.addTo(myDisposedSessions);
+    }
+    unregister(createSessionObjectName(metrics.getSessionName()));
+  }
+
+  private static @NotNull ObjectName createSessionObjectName(@NotNull String sessionName) {
+    return createObjectName(ObjectName.quote(sessionName));
+  }
+
+  private static @NotNull ObjectName createObjectName(@NotNull String name) {
+    try {
+      return new ObjectName(DOMAIN + ":type=TerminalMetrics,name=" + name);
+    }
+    catch (JMException e) {
+      throw new IllegalArgumentException(name, e);
+    }
+  }
+
+  private void register(@NotNull ObjectName name, @NotNull Object mbean) {
+    try {
+      myServer.registerMBean(mbean, name);
+    }
+    catch (JMException e) {
+      LOG.warn("Cannot register MBean " + name, e);
+    }
+  }
+
+  private void unregister(@NotNull ObjectName name) {
+    try {
+      myServer.unregisterMBean(name);
+    }
+    catch (JMException e) {
+      LOG.debug("Cannot unregister MBean " + name, e);
+    }
+  }
+
+  private final class Totals implements TerminalMetricsMXBean {
+    @Override
+    public long getCharsParsed() {
+      return sum(TerminalMetricsMXBean::getCharsParsed);
+    }
+
+    @Override
+    public Map<String, Long> getSequenceCounts() {
+      synchronized (JmxTerminalMetricsProvider.this) {
+        Map<String, Long> counts = new LinkedHashMap<>(myDisposedSessions.getSequenceCounts());
+        for (JmxTerminalMetrics session : mySessions) {
+          session.getSequenceCounts().forEach((type, count) -> counts.merge(type, count, Long::sum));
+        }
+        return counts;
+      }
+    }
+
+    @Override
+    public long getLinesAddedToHistory() {
+      return sum(TerminalMetricsMXBean::getLinesAddedToHistory);
+    }
+
+    @Override
+    public long getHistoryLinesDiscarded() {
+      return sum(TerminalMetricsMXBean::getHistoryLinesDiscarded);
+    }
+
+    @Override
+    public long getLockAcquisitions() {
+      return sum(TerminalMetricsMXBean::getLockAcquisitions);
+    }
+
+    @Override
+    public long getLockHoldNanos() {
+      return sum(TerminalMetricsMXBean::getLockHoldNanos);
+    }
+
+    @Override
+    public long getMaxLockHoldNanos() {
+      synchronized (JmxTerminalMetricsProvider.this) {
+        long max = myDisposedSessions.getMaxLockHoldNanos();
+        for (JmxTerminalMetrics session : mySessions) {
+          max = Math.max(max, session.getMaxLockHoldNanos());
+        }
+        return max;
+      }
+    }
+
+    @Override
+    public long getHyperlinkFilterInvocations() {
+      return sum(TerminalMetricsMXBean::getHyperlinkFilterInvocations);
+    }
+
+    @Override
+    public long getTypeAheadPredictionHits() {
+      return sum(TerminalMetricsMXBean::getTypeAheadPredictionHits);
+    }
+
+    @Override
+    public long getTypeAheadPredictionMisses() {
+      return sum(TerminalMetricsMXBean::getTypeAheadPredictionMisses);
+    }
+
+    private long sum(@NotNull ToLongFunction<TerminalMetricsMXBean> getter) {
+      synchronized (JmxTerminalMetricsProvider.this) {
+        long sum = getter.applyAsLong(myDisposedSessions);
+        for (JmxTerminalMetrics session : mySessions) {
+          sum += getter.applyAsLong(session);
+        }
+        return sum;
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.jediterm.terminal.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the statistics of a terminal session, e.g. to find out what the sessions of a long-lived process cost.
+ * <p/>
+ * The methods are called on the hot paths of the emulator and the text buffer, from the emulator thread,
+ * the EDT and the executor threads, so implementations should be thread-safe and cheap, e.g. increment adders.
+ * Instances are created by {@link TerminalMetricsProvider} per session.
+ */
+public interface TerminalMetrics {
+  /**
+   * Ignores everything. The callers skip the measurements they would do for the metrics,
+   * e.g. timing the text buffer lock, so the sessions not measured don't pay for them.
+   */
+  TerminalMetrics NOOP = new TerminalMetrics() {
+    @Override
+    public boolean isEnabled() {
+      return false;
+    }
+
+    @Override
+    public void charsParsed(int count) {
+    }
+
+    @Override
+    public void sequenceParsed(@NotNull SequenceType type) {
+    }
+
+    @Override
+    public void linesAddedToHistory(int count) {
+    }
+
+    @Override
+    public void linesDiscardedFromHistory(int count) {
+    }
+
+    @Override
+    public void lockHeld(long holdNanos) {
+    }
+
+    @Override
+    public void hyperlinkFilterInvoked() {
+    }
+
+    @Override
+    public void typeAheadPredictionsChecked(int hits, int misses) {
+    }
+
+    @Override
+    public void dispose() {
+    }
+  };
+
+  enum SequenceType {
+    /**
+     * A C0 control character, e.g. CR, LF or BS.
+     */
+    CONTROL_CHARACTER,
+    /**
+     * An escape sequence other than CSI, OSC and DCS, e.g. {@code ESC 7} or {@code ESC ( B}.
+     */
+    ESC,
+    CSI,
+    OSC,
+    DCS
+  }
+
+  /**
+   * @return false if the callers may skip the measurements, see {@link #NOOP}
+   */
+  boolean isEnabled();
+
+  /**
+   * @param count the count of the chars read from the TTY and passed to the emulator
+   */
+  void charsParsed(int count);
+
+  void sequenceParsed(@NotNull SequenceType type);
+
+  void linesAddedToHistory(int count);
+
+  void linesDiscardedFromHistory(int count);
+
+  /**
+   * Called when the text buffer lock is released by the thread that acquired it, i.e. once per outermost acquisition.
+   */
+  void lockHeld(long holdNanos);
+
+  void hyperlinkFilterInvoked();
+
+  /**
+   * Called when the terminal output is checked against the pending type-ahead predictions.
+   *
+   * @param hits   the count of the predictions matching the output, 0 or 1
+   * @param misses the count of the predictions dropped since they don't match the output
+   */
+  void typeAheadPredictionsChecked(int hits, int misses);
+
+  /**
+   * Called when the session is closed, e.g. to unregister the MBean of the session.
+   */
+  void dispose();
+}
@@ -0,0 +1,31 @@
+package com.jediterm.terminal.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of a terminal session, or the totals of all sessions, published by {@link JmxTerminalMetricsProvider}.
+ */
+public interface TerminalMetricsMXBean {
+  long getCharsParsed();
+
+  /**
+   * @return the counts of the parsed sequences by {@link TerminalMetrics.SequenceType} name
+   */
+  Map<String, Long> getSequenceCounts();
+
+  long getLinesAddedToHistory();
+
+  long getHistoryLinesDiscarded();
+
+  long getLockAcquisitions();
+
+  long getLockHoldNanos();
+
+  long getMaxLockHoldNanos();
+
+  long getHyperlinkFilterInvocations();
+
+  long getTypeAheadPredictionHits();
+
+  long getTypeAheadPredictionMisses();
+}
@@ -0,0 +1,32 @@
+package com.jediterm.terminal.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ServiceLoader;
+
+/**
+ * Creates the {@link TerminalMetrics} of the terminal sessions.
+ * <p/>
+ * The provider of the process is set with {@link #setInstance(TerminalMetricsProvider)}, or found with
+ * {@link ServiceLoader} when first used. If there is none, the sessions are not measured,
+ * see {@link TerminalMetrics#NOOP}. {@link JmxTerminalMetricsProvider} publishes the metrics as MBeans.
+ */
+public interface TerminalMetricsProvider {
+  TerminalMetricsProvider NOOP = sessionName -> TerminalMetrics.NOOP;
+
+  /**
+   * @param sessionName identifies the session, unique in the process
+   */
+  @NotNull TerminalMetrics createSessionMetrics(@NotNull String sessionName);
+
+  static @NotNull TerminalMetricsProvider getInstance() {
+    return TerminalMetricsProviderHolder.getInstance();
+  }
+
+  /**
+   * Sets the provider of the sessions created afterward.
+   */
+  static void setInstance(@NotNull TerminalMetricsProvider provider) {
+    TerminalMetricsProviderHolder.setInstance(provider);
+  }
+}
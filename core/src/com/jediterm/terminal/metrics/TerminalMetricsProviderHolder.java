@@ -0,0 +1,32 @@
+package com.jediterm.terminal.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+final class TerminalMetricsProviderHolder {
+  private static volatile TerminalMetricsProvider ourInstance;
+
+  private TerminalMetricsProviderHolder() {
+  }
+
+  static @NotNull TerminalMetricsProvider getInstance() {
+    TerminalMetricsProvider instance = ourInstance;
+    if (instance == null) {
+      synchronized (TerminalMetricsProviderHolder.class) {
+        instance = ourInstance;
+        if (instance == null) {
+          Iterator<TerminalMetricsProvider> providers = ServiceLoader.load(TerminalMetricsProvider.class).iterator();
+          instance = providers.hasNext() ? providers.next() : TerminalMetricsProvider.NOOP;
+          ourInstance = instance;
+        }
+      }
+    }
+    return instance;
+  }
+
+  static void setInstance(@NotNull TerminalMetricsProvider provider) {
+    ourInstance = provider;
+  }
+}
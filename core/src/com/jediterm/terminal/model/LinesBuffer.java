@@ -194,7 +194,7 @@ public class LinesBuffer implements LinesStorage {
 
   public void clearTypeAheadPredictions() {
     for (TerminalLine line : myLines) {
-      line.myTypeAheadLine = null;
+      line.setTypeAheadLine(null);
     }
   }
 
@@ -0,0 +1,268 @@
+package com.jediterm.terminal.model;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the history of all the sessions of the process within a byte budget: when the estimated bytes retained by
+ * the histories (see {@link TerminalTextBuffer#estimateHistoryRetainedBytes()}) exceed the budget, the oldest lines
+ * are discarded from the sessions viewed least recently first, the visible sessions last.
+ * <p/>
+ * The budget is checked in the background each time the histories grew by a sixteenth of it, and on demand with
+ * {@link #enforceBudget()}. With {@link #monitorHeap(double)}, it is also checked when the heap is still used above
+ * a threshold after a GC, and the histories are then trimmed to half the budget.
+ * <p/>
+ * The trimmed lines are reported as discarded from the history, see
+ * {@link TextBufferChangesListener#linesDiscardedFromHistory(List)}, so that the hyperlinks and the search are
+ * updated as when the history capacity is exceeded.
+ * <p/>
+ * The governor of the process is set with {@link #setInstance(ScrollbackMemoryGovernor)} before creating the sessions,
+ * {@code JediTermWidget} registers its session with it.
+ */
+public final class ScrollbackMemoryGovernor {
+  private static final Logger LOG = LoggerFactory.getLogger(ScrollbackMemoryGovernor.class);
+
+  private static volatile @Nullable ScrollbackMemoryGovernor ourInstance;
+
+  private final long myBudgetBytes;
+  private final long myCheckIntervalBytes;
+  private final Executor myExecutor;
+  private final Set<Session> mySessions = ConcurrentHashMap.newKeySet();
+  private final AtomicLong myAddedBytesSinceCheck = new AtomicLong();
+  private final AtomicBoolean myCheckScheduled = new AtomicBoolean();
+  private final NotificationListener myHeapListener = this::heapNotified;
+  private final AtomicBoolean myHeapMonitored = new AtomicBoolean();
+
+  /**
+   * @param budgetBytes the estimated bytes the histories of all the sessions may retain
+   */
+  public ScrollbackMemoryGovernor(long budgetBytes) {
+    this(budgetBytes, createExecutor());
+  }
+
+  ScrollbackMemoryGovernor(long budgetBytes, @NotNull Executor executor) {
+    if (budgetBytes < 0) {
+      throw new IllegalArgumentException("Negative budget: " + budgetBytes);
+    }
+    myBudgetBytes = budgetBytes;
+    myCheckIntervalBytes = Math.max(1, budgetBytes / 16);
+    myExecutor = executor;
+  }
+
+  public static @Nullable ScrollbackMemoryGovernor getInstance() {
+    return ourInstance;
+  }
+
+  /**
+   * Sets the governor the sessions created afterward are registered with, null to leave them ungoverned.
+   */
+  public static void setInstance(@Nullable ScrollbackMemoryGovernor governor) {
+    ourInstance = governor;
+  }
+
+  public long getBudgetBytes() {
+    return myBudgetBytes;
+  }
+
+  /**
+   * Governs the history of the session until {@link Session#dispose()}.
+   * The session is considered viewed when registered, then when it is visible, see {@link Session#setVisible(boolean)}.
+   */
+  public @NotNull Session register(@NotNull TerminalTextBuffer textBuffer) {
+    Session session = new Session(textBuffer);
+    mySessions.add(session);
+    textBuffer.addChangesListener(session.myHistoryListener);
+    return session;
+  }
+
+  /**
+   * @return the estimated bytes retained by the histories of the registered sessions
+   */
+  public long getRetainedBytes() {
+    long bytes = 0;
+    for (Session session : mySessions) {
+      bytes += session.myTextBuffer.estimateHistoryRetainedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * Trims the histories to the budget. Locks the text buffers one at a time, so it should not be called with
+   * a text buffer locked.
+   *
+   * @return the estimated bytes released
+   */
+  public long enforceBudget() {
+    return enforce(myBudgetBytes);
+  }
+
+  /**
+   * Trims the histories to half the budget whenever a heap memory pool is used above {@code usageThreshold} of its
+   * maximum size after a GC. Sets the collection usage threshold of the heap pools that have none yet,
+   * the thresholds already set by the application are kept.
+   *
+   * @param usageThreshold the fraction of the maximum size of the pool, e.g. 0.8
+   */
+  public void monitorHeap(double usageThreshold) {
+    if (usageThreshold <= 0 || usageThreshold > 1) {
+      throw new IllegalArgumentException("Usage threshold should be in (0, 1]: " + usageThreshold);
+    }
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()) {
+        long maxBytes = pool.getUsage().getMax();
+        if (maxBytes > 0 && pool.getCollectionUsageThreshold() == 0) {
+          pool.setCollectionUsageThreshold((long)(maxBytes * usageThreshold));
+        }
+      }
+    }
+    if (myHeapMonitored.compareAndSet(false, true)) {
+      ((NotificationEmitter)ManagementFactory.getMemoryMXBean()).addNotificationListener(myHeapListener, null, null);
+    }
+  }
+
+  /**
+   * Stops monitoring the heap and the sessions, the histories are left as they are.
+   */
+  public void dispose() {
+    if (myHeapMonitored.compareAndSet(true, false)) {
+      try {
+        ((NotificationEmitter)ManagementFactory.getMemoryMXBean()).removeNotificationListener(myHeapListener);
+      }
+      catch (ListenerNotFoundException e) {
+        LOG.warn("Heap listener is not registered", e);
+      }
+    }
+    for (Session session : new ArrayList<>(mySessions)) {
+      session.dispose();
+    }
+    if (myExecutor instanceof ExecutorService) {
+      ((ExecutorService)myExecutor).shutdown();
+    }
+  }
+
+  private void heapNotified(@NotNull Notification notification, @Nullable Object handback) {
+    if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+      myExecutor.execute(() -> {
+        long releasedBytes = enforce(myBudgetBytes / 2);
+        LOG.info("Heap usage threshold exceeded, released ~" + releasedBytes + " bytes of terminal history");
+      });
+    }
+  }
+
+  private void historyGrown(long addedBytes) {
+    if (myAddedBytesSinceCheck.addAndGet(addedBytes) >= myCheckIntervalBytes && myCheckScheduled.compareAndSet(false, true)) {
+      myExecutor.execute(() -> {
+        myCheckScheduled.set(false);
+        enforce(myBudgetBytes);
+      });
+    }
+  }
+
+  private synchronized long enforce(long budgetBytes) {
+    myAddedBytesSinceCheck.set(0);
+    List<SessionState> states = new ArrayList<>();
+    long retainedBytes = 0;
+    for (Session session : mySessions) {
+      SessionState state = new SessionState(session);
+      states.add(state);
+      retainedBytes += state.myRetainedBytes;
+    }
+    long excessBytes = retainedBytes - budgetBytes;
+    if (excessBytes <= 0) {
+      return 0;
+    }
+    states.sort(Comparator.comparingLong(state -> state.myLastViewedNanos));
+    long releasedBytes = 0;
+    for (SessionState state : states) {
+      if (releasedBytes >= excessBytes) {
+        break;
+      }
+      long maxRetainedBytes = Math.max(0, state.myRetainedBytes - (excessBytes - releasedBytes));
+      releasedBytes += state.mySession.myTextBuffer.trimHistory(maxRetainedBytes);
+    }
+    return releasedBytes;
+  }
+
+  private static @NotNull Executor createExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(0, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "JediTerm-scrollback-governor");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * A snapshot of a session, so that the order does not change while sorting.
+   */
+  private static final class SessionState {
+    private final Session mySession;
+    private final long myRetainedBytes;
+    private final long myLastViewedNanos;
+
+    SessionState(@NotNull Session session) {
+      mySession = session;
+      myRetainedBytes = session.myTextBuffer.estimateHistoryRetainedBytes();
+      myLastViewedNanos = session.myVisible ? Long.MAX_VALUE : session.myLastViewedNanos;
+    }
+  }
+
+  public final class Session {
+    private final TerminalTextBuffer myTextBuffer;
+    private final TextBufferChangesListener myHistoryListener = new TextBufferChangesListener() {
+      @Override
+      public void linesAddedToHistory(@NotNull List<@NotNull TerminalLine> lines) {
+        long bytes = 0;
+        for (TerminalLine line : lines) {
+          bytes += line.estimateRetainedBytes();
+        }
+        historyGrown(bytes);
+      }
+    };
+    private volatile boolean myVisible = false;
+    private volatile long myLastViewedNanos = System.nanoTime();
+
+    private Session(@NotNull TerminalTextBuffer textBuffer) {
+      myTextBuffer = textBuffer;
+    }
+
+    /**
+     * Should be called when the session is shown or hidden, the visible sessions are trimmed last.
+     */
+    public void setVisible(boolean visible) {
+      if (myVisible && !visible) {
+        myLastViewedNanos = System.nanoTime();
+      }
+      myVisible = visible;
+    }
+
+    public void dispose() {
+      myTextBuffer.removeChangesListener(myHistoryListener);
+      mySessions.remove(this);
+    }
+  }
+}
@@ -25,6 +25,10 @@ public class StyleState {
     myDefaultStyle = defaultStyle;
   }
 
+  public @NotNull TextStyle getDefaultStyle() {
+    return myDefaultStyle;
+  }
+
   public @NotNull TerminalColor getDefaultBackground() {
     return Objects.requireNonNull(myDefaultStyle.getBackground());
   }
@@ -21,10 +21,21 @@ import java.util.stream.Collectors;
 public final class TerminalLine {
   private static final Logger LOG = LoggerFactory.getLogger(TerminalLine.class);
 
+  private static final int ARRAY_HEADER_BYTES = 16;
+  // the line, its TextEntries, their ArrayList, the highlightings list and the modification count
+  static final int LINE_BYTES = 40 + 24 + 24 + ARRAY_HEADER_BYTES + 40 + ARRAY_HEADER_BYTES + 16;
+  // the TextEntry, its CharBuffer and its reference in the entries list, the char array is counted separately
+  static final int ENTRY_BYTES = 24 + 24 + 4;
+  static final int HIGHLIGHTING_BYTES = 40 + 4;
+
   private TextEntries myTextEntries = new TextEntries();
   private boolean myWrapped = false;
   private final List<TerminalLineIntervalHighlighting> myCustomHighlightings = new CopyOnWriteArrayList<>();
   private final AtomicInteger myModificationCount = new AtomicInteger(0);
+  // changed with the text buffer locked
+  private int myContentVersion;
+  // the estimate counted in the size of the history when the line was added to it, guarded by the text buffer lock
+  private int myHistoryRetainedBytes;
   TerminalLine myTypeAheadLine;
 
   public TerminalLine() {
@@ -59,6 +70,19 @@ public final class TerminalLine {
     return result;
   }
 
+  /**
+   * Unlike {@link #copy()}, copies the text too, so that the copy can be read without the text buffer lock
+   * while the line is edited.
+   */
+  public @NotNull TerminalLine copyWithText() {
+    TerminalLine result = new TerminalLine();
+    for (TextEntry entry : myTextEntries) {
+      result.myTextEntries.add(new TextEntry(entry.getStyle(), entry.getText()));
+    }
+    result.myWrapped = myWrapped;
+    return result;
+  }
+
   public char charAt(int x) {
     TerminalLine typeAheadLine = myTypeAheadLine;
     if (typeAheadLine != null) {
@@ -84,6 +108,7 @@ public final class TerminalLine {
   }
 
   public void clear(@NotNull TextEntry filler) {
+    myContentVersion++;
     myTextEntries.clear();
     myTextEntries.add(filler);
   }
@@ -97,6 +122,7 @@ public final class TerminalLine {
   }
 
   private void writeCharacters(int x, @NotNull TextStyle style, @NotNull CharBuffer characters) {
+    myContentVersion++;
     int len = myTextEntries.length();
 
     if (x >= len) {
@@ -112,6 +138,7 @@ public final class TerminalLine {
   }
 
   private void insertCharacters(int x, @NotNull TextStyle style, @NotNull CharBuffer characters) {
+    myContentVersion++;
     int length = myTextEntries.length();
     if (x > length) {
       writeCharacters(x, style, characters);
@@ -185,6 +212,7 @@ public final class TerminalLine {
   }
 
   public void deleteCharacters(int x, int count, @NotNull TextStyle style) {
+    myContentVersion++;
     int p = 0;
     TextEntries newEntries = new TextEntries();
 
@@ -224,6 +252,7 @@ public final class TerminalLine {
   }
 
   public void insertBlankCharacters(int x, int count, int maxLen, @NotNull TextStyle style) {
+    myContentVersion++;
     int len = myTextEntries.length();
     len = Math.min(len + count, maxLen);
 
@@ -371,10 +400,77 @@ public final class TerminalLine {
     return Collections.unmodifiableList(myTextEntries.entries());
   }
 
+  /**
+   * Returns a rough estimate of the heap retained by the line, assuming compressed references: the line,
+   * its entries with their chars and its custom highlightings. The styles are not counted, they are shared
+   * between the lines. Should be called with the text buffer locked.
+   */
+  public long estimateRetainedBytes() {
+    return LINE_BYTES + (long)getEntryCount() * ENTRY_BYTES + estimateCharsBytes() +
+           (long)getCustomHighlightingCount() * HIGHLIGHTING_BYTES;
+  }
+
+  /**
+   * Estimates the retained bytes and remembers the estimate, so that the same bytes are subtracted from the size
+   * of the history when the line is discarded, even if the line has changed since, e.g. got hyperlinks.
+   */
+  long rememberHistoryRetainedBytes() {
+    long bytes = estimateRetainedBytes();
+    myHistoryRetainedBytes = (int)bytes;
+    return bytes;
+  }
+
+  /**
+   * @return the estimate remembered by {@link #rememberHistoryRetainedBytes()}
+   */
+  long getHistoryRetainedBytes() {
+    return myHistoryRetainedBytes;
+  }
+
+  int getEntryCount() {
+    return myTextEntries.entries().size();
+  }
+
+  int getCustomHighlightingCount() {
+    return myCustomHighlightings.size();
+  }
+
+  /**
+   * @return the estimated size of the char arrays of the entries
+   */
+  long estimateCharsBytes() {
+    long bytes = 0;
+    for (TextEntry entry : myTextEntries) {
+      bytes += alignObjectSize(ARRAY_HEADER_BYTES + 2L * entry.getLength());
+    }
+    return bytes;
+  }
+
+  private static long alignObjectSize(long size) {
+    return (size + 7) & ~7L;
+  }
+
   void appendEntry(@NotNull TextEntry entry) {
+    myContentVersion++;
     myTextEntries.add(entry);
   }
 
+  void setTypeAheadLine(@Nullable TerminalLine typeAheadLine) {
+    if (myTypeAheadLine != typeAheadLine) {
+      myContentVersion++;
+      myTypeAheadLine = typeAheadLine;
+    }
+  }
+
+  /**
+   * Returns a number that changes whenever the rendered content of the line changes: its text, styles,
+   * custom highlightings or type-ahead prediction. Allows caching what is computed from the line,
+   * e.g. its rendered image. Should be called with the text buffer locked.
+   */
+  public int getContentVersion() {
+    return myContentVersion;
+  }
+
   int getModificationCount() {
     return myModificationCount.get();
   }
@@ -388,9 +484,11 @@ public final class TerminalLine {
     TerminalLineIntervalHighlighting highlighting = new TerminalLineIntervalHighlighting(this, startOffset, length, textStyle) {
       @Override
       protected void doDispose() {
+        myContentVersion++;
         myCustomHighlightings.remove(this);
       }
     };
+    myContentVersion++;
     myCustomHighlightings.add(highlighting);
     return highlighting;
   }
@@ -4,13 +4,14 @@ import com.jediterm.core.util.CellPosition
 import com.jediterm.core.util.TermSize
 import com.jediterm.terminal.StyledTextConsumer
 import com.jediterm.terminal.TextStyle
+import com.jediterm.terminal.jfr.TextBufferResizeEvent
+import com.jediterm.terminal.metrics.TerminalMetrics
 import com.jediterm.terminal.model.TerminalLine.TextEntry
 import com.jediterm.terminal.model.hyperlinks.TextProcessing
 import com.jediterm.terminal.util.CharUtils
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import java.util.concurrent.CopyOnWriteArrayList
-import java.util.concurrent.locks.Lock
 import java.util.concurrent.locks.ReentrantLock
 import kotlin.math.min
 
@@ -60,7 +61,35 @@ class TerminalTextBuffer internal constructor(
   val screenLinesCount: Int
     get() = screenLinesStorage.size
 
-  private val myLock: Lock = ReentrantLock()
+  private val myLock: ReentrantLock = ReentrantLock()
+
+  // the time the lock was acquired by the holding thread, guarded by myLock, measured only if the metrics are enabled
+  private var myLockAcquiredNanos: Long = 0
+
+  /**
+   * The metrics of the session, see [TerminalMetrics]. Should be set before the session is started.
+   */
+  @Volatile
+  var metrics: TerminalMetrics = TerminalMetrics.NOOP
+
+  /**
+   * The estimated bytes the history may retain, see [estimateHistoryRetainedBytes]: when lines are added to the
+   * history, the lines from the top are discarded by size until the history fits, in addition to the limit
+   * of the lines count. -1 means no limit.
+   */
+  var maxHistoryBytes: Long = -1
+    set(value) {
+      modify {
+        field = value
+        historyBytes = -1
+      }
+    }
+
+  // the estimated bytes retained by the history, -1 if not computed yet, guarded by myLock. Once computed, e.g. if
+  // maxHistoryBytes is set or by estimateHistoryRetainedBytes, it's updated as the lines are added to and discarded
+  // from the history: a discarded line subtracts the estimate it added, see TerminalLine.rememberHistoryRetainedBytes,
+  // so the changes of the history lines, e.g. hyperlinks, are not counted until the next resize.
+  private var historyBytes: Long = -1
 
   // The state of the main buffer's screen and history at the moment of entering the alternate buffer.
   private var historyLinesStorageBackup: LinesStorage? = null
@@ -101,10 +130,27 @@ class TerminalTextBuffer internal constructor(
   }
 
   fun resize(newTermSize: TermSize, oldCursor: CellPosition, selection: TerminalSelection?): TerminalResizeResult {
+    val event = TextBufferResizeEvent()
+    event.begin()
+    val oldSize = size
+    val oldLinesCount = historyLinesCount + screenLinesCount
     val result = doResizeTextBuffer(this, newTermSize, oldCursor, selection)
+    event.end()
 
     val widthChanged = width != newTermSize.columns
     size = newTermSize
+    historyBytes = -1
+
+    if (event.shouldCommit()) {
+      event.oldColumns = oldSize.columns
+      event.oldRows = oldSize.rows
+      event.newColumns = newTermSize.columns
+      event.newRows = newTermSize.rows
+      event.alternateBuffer = isUsingAlternateBuffer
+      // the alternate buffer is truncated rather than reflowed
+      event.linesReflowed = if (widthChanged && !isUsingAlternateBuffer) oldLinesCount else 0
+      event.commit()
+    }
 
     if (widthChanged) {
       changesMulticaster.widthResized()
@@ -254,7 +300,7 @@ class TerminalTextBuffer internal constructor(
   }
 
   fun getScreenLines(): String {
-    myLock.lock()
+    lock()
     try {
       val sb = StringBuilder()
       for (row in 0 until height) {
@@ -273,7 +319,7 @@ class TerminalTextBuffer internal constructor(
       return sb.toString()
     }
     finally {
-      myLock.unlock()
+      unlock()
     }
   }
 
@@ -283,19 +329,21 @@ class TerminalTextBuffer internal constructor(
 
   fun lock() {
     myLock.lock()
+    lockAcquired()
   }
 
   fun unlock() {
+    lockReleasing()
     myLock.unlock()
   }
 
   fun modify(runnable: Runnable) {
-    myLock.lock()
+    lock()
     try {
       runnable.run()
     }
     finally {
-      myLock.unlock()
+      unlock()
     }
   }
 
@@ -304,7 +352,25 @@ class TerminalTextBuffer internal constructor(
   }
 
   fun tryLock(): Boolean {
-    return myLock.tryLock()
+    if (!myLock.tryLock()) {
+      return false
+    }
+    lockAcquired()
+    return true
+  }
+
+  private fun lockAcquired() {
+    if (metrics.isEnabled && myLock.holdCount == 1) {
+      myLockAcquiredNanos = System.nanoTime()
+    }
+  }
+
+  private fun lockReleasing() {
+    val acquiredNanos = myLockAcquiredNanos
+    if (acquiredNanos != 0L && myLock.holdCount == 1) {
+      myLockAcquiredNanos = 0
+      metrics.lockHeld(System.nanoTime() - acquiredNanos)
+    }
   }
 
   fun getBuffersCharAt(x: Int, y: Int): Char {
@@ -359,6 +425,7 @@ class TerminalTextBuffer internal constructor(
     }
 
     isUsingAlternateBuffer = enabled
+    historyBytes = -1
     fireModelChangeEvent()
   }
 
@@ -404,6 +471,7 @@ class TerminalTextBuffer internal constructor(
   fun clearScreenAndHistoryBuffers() {
     screenLinesStorage.clear()
     historyLinesStorage.clear()
+    historyBytes = -1
     fireModelChangeEvent()
     changesMulticaster.historyCleared()
     changesMulticaster.linesChanged(fromIndex = 0)
@@ -443,6 +511,7 @@ class TerminalTextBuffer internal constructor(
     modify {
       val lineCount = historyLinesStorage.size
       historyLinesStorage.clear()
+      historyBytes = -1
       if (lineCount > 0) {
         fireHistoryBufferLineCountChanged()
       }
@@ -498,9 +567,118 @@ class TerminalTextBuffer internal constructor(
     else emptyList()
 
     historyLinesStorage.addAllToBottom(linesToAdd)
+    val allLinesToDiscard = if (historyBytes >= 0 || maxHistoryBytes >= 0) discardHistoryBySize(linesToAdd, linesToDiscard) else linesToDiscard
+
+    if (linesToAdd.isNotEmpty()) {
+      metrics.linesAddedToHistory(linesToAdd.size)
+      changesMulticaster.linesAddedToHistory(linesToAdd)
+    }
+    if (allLinesToDiscard.isNotEmpty()) {
+      metrics.linesDiscardedFromHistory(allLinesToDiscard.size)
+      changesMulticaster.linesDiscardedFromHistory(allLinesToDiscard)
+    }
+  }
+
+  /**
+   * Updates the estimated history size with the lines added to and discarded from the history by its lines count,
+   * then discards the lines from the top of the history until it fits into [maxHistoryBytes] if it is set.
+   *
+   * @return the lines discarded by the lines count and by size
+   */
+  private fun discardHistoryBySize(addedLines: List<TerminalLine>, discardedLines: List<TerminalLine>): List<TerminalLine> {
+    var bytes = historyBytes
+    if (bytes < 0) {
+      bytes = estimateHistoryRetainedBytes()
+    }
+    else {
+      for (line in addedLines) {
+        bytes += line.rememberHistoryRetainedBytes()
+      }
+      for (line in discardedLines) {
+        bytes -= line.historyRetainedBytes
+      }
+    }
+    var discardedBySizeCount = 0
+    var releasedBytes = 0L
+    while (maxHistoryBytes >= 0 && bytes - releasedBytes > maxHistoryBytes && discardedBySizeCount < historyLinesStorage.size) {
+      releasedBytes += historyLinesStorage[discardedBySizeCount].historyRetainedBytes
+      discardedBySizeCount++
+    }
+    historyBytes = bytes - releasedBytes
+    if (discardedBySizeCount == 0) {
+      return discardedLines
+    }
+    val discardedBySize = historyLinesStorage.removeFromTop(discardedBySizeCount)
+    return if (discardedLines.isEmpty()) discardedBySize else discardedLines + discardedBySize
+  }
 
-    if (linesToDiscard.isNotEmpty()) {
-      changesMulticaster.linesDiscardedFromHistory(linesToDiscard)
+  /**
+   * @return a rough estimate of the heap retained by the history lines of the active buffer,
+   * see [TerminalLine.estimateRetainedBytes]. The lines are measured on the first call only, then the estimate
+   * is updated as the lines are added to and discarded from the history, so it can be checked often.
+   */
+  fun estimateHistoryRetainedBytes(): Long {
+    lock()
+    try {
+      if (historyBytes < 0) {
+        var bytes = 0L
+        for (line in historyLinesStorage) {
+          bytes += line.rememberHistoryRetainedBytes()
+        }
+        historyBytes = bytes
+      }
+      return historyBytes
+    }
+    finally {
+      unlock()
+    }
+  }
+
+  /**
+   * @return the estimated heap retained by the screen and the history of the active buffer
+   */
+  fun estimateMemoryUsage(): TextBufferMemoryUsage {
+    lock()
+    try {
+      return TextBufferMemoryUsage(LinesMemoryUsage.of(screenLinesStorage), LinesMemoryUsage.of(historyLinesStorage))
+    }
+    finally {
+      unlock()
+    }
+  }
+
+  /**
+   * Discards the lines from the top of the history, as if its capacity was exceeded, until the history retains
+   * at most [maxRetainedBytes] (see [estimateHistoryRetainedBytes]).
+   * The history of the main buffer is left as is while the alternate buffer is used.
+   *
+   * @return the estimate of the released bytes
+   */
+  fun trimHistory(maxRetainedBytes: Long): Long {
+    lock()
+    try {
+      if (isUsingAlternateBuffer) {
+        return 0
+      }
+      val bytes = estimateHistoryRetainedBytes()
+      var discardedLinesCount = 0
+      var releasedBytes = 0L
+      while (bytes - releasedBytes > maxRetainedBytes && discardedLinesCount < historyLinesStorage.size) {
+        releasedBytes += historyLinesStorage[discardedLinesCount].historyRetainedBytes
+        discardedLinesCount++
+      }
+      if (discardedLinesCount > 0) {
+        val discardedLines = historyLinesStorage.removeFromTop(discardedLinesCount)
+        historyBytes = bytes - releasedBytes
+        metrics.linesDiscardedFromHistory(discardedLines.size)
+        changesMulticaster.linesDiscardedFromHistory(discardedLines)
+        fireHistoryBufferLineCountChanged()
+        fireModelChangeEvent()
+      }
+      return releasedBytes
+    }
+    finally {
+      unlock()
     }
   }
 
@@ -522,7 +700,7 @@ class TerminalTextBuffer internal constructor(
 
   private fun clearTypeAheadPredictions(storage: LinesStorage) {
     for (line in storage) {
-      line.myTypeAheadLine = null
+      line.setTypeAheadLine(null)
     }
   }
 
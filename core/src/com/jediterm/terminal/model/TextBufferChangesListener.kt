@@ -15,6 +15,14 @@ interface TextBufferChangesListener {
    */
   fun linesChanged(fromIndex: Int) {}
 
+  /**
+   * Lines were moved from the screen to the bottom of the history buffer.
+   * If the history capacity is exceeded as a result, [linesDiscardedFromHistory] follows this event.
+   *
+   * @param lines added lines in the order from top to bottom.
+   */
+  fun linesAddedToHistory(lines: List<TerminalLine>) {}
+
   /**
    * History buffer capacity was exceeded, so the Text Buffer had to discard some lines from the start of the history.
    *
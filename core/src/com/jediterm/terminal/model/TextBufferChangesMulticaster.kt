@@ -19,6 +19,12 @@ internal class TextBufferChangesMulticaster : TextBufferChangesListener {
     }
   }
 
+  override fun linesAddedToHistory(lines: List<TerminalLine>) {
+    forEachListeners {
+      it.linesAddedToHistory(lines)
+    }
+  }
+
   override fun linesDiscardedFromHistory(lines: List<TerminalLine>) {
     forEachListeners {
       it.linesDiscardedFromHistory(lines)
@@ -0,0 +1,73 @@
+package com.jediterm.terminal.model
+
+import com.jediterm.terminal.TextStyle
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * The estimated heap retained by the lines of a [TerminalTextBuffer], see [TerminalTextBuffer.estimateMemoryUsage].
+ * The estimates assume a 64-bit JVM with compressed references, and are meant to compare sessions and to configure
+ * the limits, e.g. [TerminalTextBuffer.maxHistoryBytes], rather than to match a heap dump.
+ */
+class TextBufferMemoryUsage(val screen: LinesMemoryUsage, val history: LinesMemoryUsage) {
+  val totalBytes: Long
+    get() = screen.totalBytes + history.totalBytes
+
+  override fun toString(): String = "screen: $screen, history: $history"
+}
+
+class LinesMemoryUsage(
+  val lineCount: Int,
+  /** The lines themselves and the lists of their entries and highlightings */
+  val linesBytes: Long,
+  /** The text entries of the lines, without their chars */
+  val entriesBytes: Long,
+  /** The char arrays of the text entries */
+  val charsBytes: Long,
+  /** The custom highlightings of the lines */
+  val highlightingsBytes: Long,
+  /** The count of the distinct styles of the text entries */
+  val styleCount: Int,
+  /**
+   * The styles of the text entries, each distinct style is counted once, though it may also be referenced
+   * by other lines or sessions. Not included in [TerminalLine.estimateRetainedBytes].
+   */
+  val stylesBytes: Long
+) {
+  val totalBytes: Long
+    get() = linesBytes + entriesBytes + charsBytes + highlightingsBytes + stylesBytes
+
+  override fun toString(): String {
+    return "$lineCount lines, $totalBytes bytes (lines: $linesBytes, entries: $entriesBytes, chars: $charsBytes, " +
+           "highlightings: $highlightingsBytes, $styleCount styles: $stylesBytes)"
+  }
+
+  companion object {
+    // the TextStyle and its options
+    private const val STYLE_BYTES = 24 + 24
+
+    internal fun of(lines: Iterable<TerminalLine>): LinesMemoryUsage {
+      var lineCount = 0
+      var entryCount = 0L
+      var charsBytes = 0L
+      var highlightingCount = 0L
+      val styles: MutableSet<TextStyle> = Collections.newSetFromMap(IdentityHashMap())
+      for (line in lines) {
+        lineCount++
+        entryCount += line.entryCount
+        charsBytes += line.estimateCharsBytes()
+        highlightingCount += line.customHighlightingCount
+        line.forEachEntry { styles.add(it.style) }
+      }
+      return LinesMemoryUsage(
+        lineCount = lineCount,
+        linesBytes = lineCount.toLong() * TerminalLine.LINE_BYTES,
+        entriesBytes = entryCount * TerminalLine.ENTRY_BYTES,
+        charsBytes = charsBytes,
+        highlightingsBytes = highlightingCount * TerminalLine.HIGHLIGHTING_BYTES,
+        styleCount = styles.size,
+        stylesBytes = styles.size.toLong() * STYLE_BYTES
+      )
+    }
+  }
+}
@@ -2,6 +2,8 @@ package com.jediterm.terminal.model.hyperlinks;
 
 import com.jediterm.terminal.HyperlinkStyle;
 import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.jfr.HyperlinkBatchEvent;
+import com.jediterm.terminal.metrics.TerminalMetrics;
 import com.jediterm.terminal.model.*;
 import com.jediterm.terminal.util.CharUtils;
 import org.jetbrains.annotations.NotNull;
@@ -10,10 +12,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -30,6 +37,10 @@ public class TextProcessing {
   private final HyperlinkStyle.HighlightMode myHighlightMode;
   private TerminalTextBuffer myTerminalTextBuffer;
   private final List<TerminalHyperlinkListener> myHyperlinkListeners = new CopyOnWriteArrayList<>();
+  // guarded by the text buffer lock
+  private final Set<TerminalLine> myDeferredLines = Collections.newSetFromMap(new IdentityHashMap<>());
+  private volatile boolean myDeferred;
+  private volatile boolean myHasDeferredLines;
 
   public TextProcessing(@NotNull TextStyle hyperlinkColor,
                         @NotNull HyperlinkStyle.HighlightMode highlightMode) {
@@ -45,13 +56,32 @@ public class TextProcessing {
         for (TerminalLine line : lines) {
           TerminalLineUtil.INSTANCE.incModificationCount(line);
         }
+        if (myHasDeferredLines) {
+          lines.forEach(myDeferredLines::remove);
+          myHasDeferredLines = !myDeferredLines.isEmpty();
+        }
       }
 
       @Override
-      public void historyCleared() {}
+      public void historyCleared() {
+        // e.g. ESC[3J leaves the screen lines as they are
+        if (myHasDeferredLines) {
+          Set<TerminalLine> screenLines = getScreenLines();
+          myDeferredLines.retainAll(screenLines);
+          myHasDeferredLines = !myDeferredLines.isEmpty();
+        }
+      }
 
       @Override
-      public void widthResized() {}
+      public void widthResized() {
+        // the lines are re-created, and which of them the deferred lines were reflowed into is not known
+        if (myHasDeferredLines) {
+          myDeferredLines.clear();
+          myTerminalTextBuffer.getHistoryLinesStorage().forEach(myDeferredLines::add);
+          myTerminalTextBuffer.getScreenLinesStorage().forEach(myDeferredLines::add);
+          myHasDeferredLines = !myDeferredLines.isEmpty();
+        }
+      }
 
       @Override
       public void linesChanged(int fromIndex) {}
@@ -60,10 +90,88 @@ public class TextProcessing {
 
   public void processHyperlinks(@NotNull LinesStorage linesStorage, @NotNull TerminalLine updatedLine) {
     if (!myHyperlinkFilters.isEmpty()) {
-      doProcessHyperlinks(linesStorage, updatedLine);
+      if (myDeferred) {
+        deferHyperlinks(updatedLine);
+      }
+      else {
+        doProcessHyperlinks(linesStorage, updatedLine);
+      }
     }
   }
 
+  /**
+   * Defers finding the hyperlinks of the updated lines until {@link #processDeferredHyperlinks(int, int, Executor)} is called
+   * for them, e.g. when they are shown, so that a hidden terminal does not run the filters on every written line.
+   * The lines discarded from the history before are never processed. When the width changes, all the re-created
+   * lines are deferred, since the lines the deferred ones were reflowed into are not known.
+   */
+  public void setDeferred(boolean deferred) {
+    myDeferred = deferred;
+  }
+
+  public boolean hasDeferredHyperlinks() {
+    return myHasDeferredLines;
+  }
+
+  /**
+   * Finds the hyperlinks of the deferred lines in the given range. The lines are collected under the text buffer lock,
+   * and the filters are applied to them on the given executor without the lock, e.g. to keep the EDT responsive.
+   *
+   * @param startLine the index of the first line, negative for the history lines
+   */
+  public void processDeferredHyperlinks(int startLine, int count, @NotNull Executor executor) {
+    if (!myHasDeferredLines) return;
+    List<LinesStorage> linesStorages = new ArrayList<>();
+    List<LineInfoImpl> lineInfos = new ArrayList<>();
+    myTerminalTextBuffer.lock();
+    try {
+      LinesStorage historyLinesStorage = myTerminalTextBuffer.getHistoryLinesStorage();
+      LinesStorage screenLinesStorage = myTerminalTextBuffer.getScreenLinesStorage();
+      int historySize = historyLinesStorage.getSize();
+      int endLine = Math.min(startLine + count, screenLinesStorage.getSize());
+      for (int y = Math.max(startLine, -historySize); y < endLine; y++) {
+        LinesStorage linesStorage = y < 0 ? historyLinesStorage : screenLinesStorage;
+        int lineInd = y < 0 ? historySize + y : y;
+        if (myDeferredLines.remove(linesStorage.get(lineInd))) {
+          linesStorages.add(linesStorage);
+          lineInfos.add(buildLineInfo(linesStorage, lineInd));
+        }
+      }
+      myHasDeferredLines = !myDeferredLines.isEmpty();
+    }
+    finally {
+      myTerminalTextBuffer.unlock();
+    }
+    if (lineInfos.isEmpty()) return;
+    try {
+      executor.execute(() -> {
+        for (int i = 0; i < lineInfos.size(); i++) {
+          doProcessHyperlinks(linesStorages.get(i), lineInfos.get(i), 1);
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      LOG.debug("Deferred hyperlinks are not processed, the executor is shut down", e);
+    }
+  }
+
+  private void deferHyperlinks(@NotNull TerminalLine updatedLine) {
+    myTerminalTextBuffer.lock();
+    try {
+      myDeferredLines.add(updatedLine);
+      myHasDeferredLines = true;
+    }
+    finally {
+      myTerminalTextBuffer.unlock();
+    }
+  }
+
+  private @NotNull Set<TerminalLine> getScreenLines() {
+    Set<TerminalLine> screenLines = Collections.newSetFromMap(new IdentityHashMap<>());
+    myTerminalTextBuffer.getScreenLinesStorage().forEach(screenLines::add);
+    return screenLines;
+  }
+
   private void doProcessHyperlinks(@NotNull LinesStorage linesStorage, @NotNull TerminalLine updatedLine) {
     LineInfoImpl lineInfo = buildLineInfo(linesStorage, updatedLine);
     if (lineInfo != null) {
@@ -72,7 +180,13 @@ public class TextProcessing {
   }
 
   private void doProcessHyperlinks(@NotNull LinesStorage linesStorage, @NotNull LineInfoImpl lineInfo, int attemptNumber) {
+    HyperlinkBatchEvent event = new HyperlinkBatchEvent();
+    event.begin();
+    TerminalMetrics metrics = myTerminalTextBuffer.getMetrics();
+    int filterCount = 0;
     for (AsyncHyperlinkFilter filter : myHyperlinkFilters) {
+      metrics.hyperlinkFilterInvoked();
+      filterCount++;
       CompletableFuture<LinkResult> resultFuture = filter.apply(lineInfo);
       resultFuture.whenComplete((result, error) -> {
         if (result != null) {
@@ -80,6 +194,12 @@ public class TextProcessing {
         }
       });
     }
+    event.end();
+    if (event.shouldCommit()) {
+      event.filters = filterCount;
+      event.lines = lineInfo.myLinesToProcess.size();
+      event.commit();
+    }
   }
 
   private void applyLinkResultsOrReschedule(@NotNull LinesStorage linesStorage,
@@ -126,15 +246,19 @@ public class TextProcessing {
         }
         linesStorage = historyLinesStorage;
       }
-      int startLineInd = findStartLineInd(linesStorage, updatedLineInd);
-      List<TerminalLine> linesToProcess = collectLines(linesStorage, startLineInd, updatedLineInd);
-      return new LineInfoImpl(linesToProcess, myTerminalTextBuffer.getWidth());
+      return buildLineInfo(linesStorage, updatedLineInd);
     }
     finally {
       myTerminalTextBuffer.unlock();
     }
   }
 
+  private @NotNull LineInfoImpl buildLineInfo(@NotNull LinesStorage linesStorage, int updatedLineInd) {
+    int startLineInd = findStartLineInd(linesStorage, updatedLineInd);
+    List<TerminalLine> linesToProcess = collectLines(linesStorage, startLineInd, updatedLineInd);
+    return new LineInfoImpl(linesToProcess, myTerminalTextBuffer.getWidth());
+  }
+
   private @NotNull List<TerminalLine> collectLines(@NotNull LinesStorage linesStorage, int startLineInd, int updatedLineInd) {
     if (startLineInd == updatedLineInd) {
       return List.of(linesStorage.get(startLineInd));
@@ -194,6 +318,10 @@ public class TextProcessing {
     myHyperlinkListeners.add(listener);
   }
 
+  public void removeHyperlinkListener(@NotNull TerminalHyperlinkListener listener) {
+    myHyperlinkListeners.remove(listener);
+  }
+
   private int findHistoryLineInd(@NotNull LinesStorage historyLinesStorage, @NotNull TerminalLine line) {
     int lastLineInd = Math.max(0, historyLinesStorage.getSize() - 200); // check only last lines in history buffer
     for (int i = historyLinesStorage.getSize() - 1; i >= lastLineInd; i--) {
@@ -10,6 +10,8 @@ import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Assert;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -456,6 +458,107 @@ public class TerminalTextBufferTest extends TestCase {
     assertScreenLines(session, List.of("a" + ((char) 0xDE00) + "b"));
   }
 
+  public void testMemoryUsage() throws IOException {
+    TestSession session = new TestSession(2000, 5);
+    session.process("short\r\n" + "x".repeat(1000) + "\r\n" + "\r\n".repeat(5));
+    TerminalTextBuffer textBuffer = session.getTerminalTextBuffer();
+    TextBufferMemoryUsage usage = textBuffer.estimateMemoryUsage();
+
+    LinesMemoryUsage history = usage.getHistory();
+    assertEquals(textBuffer.getHistoryLinesCount(), history.getLineCount());
+    assertTrue(history.getCharsBytes() >= 2 * (1000 + "short".length()));
+    assertEquals(0, history.getHighlightingsBytes());
+    assertTrue(history.getStyleCount() > 0);
+    assertEquals(textBuffer.estimateHistoryRetainedBytes(), history.getTotalBytes() - history.getStylesBytes());
+    assertEquals(usage.getScreen().getTotalBytes() + history.getTotalBytes(), usage.getTotalBytes());
+  }
+
+  public void testMaxHistoryBytes() throws IOException {
+    TestSession session = new TestSession(80, 5);
+    TerminalTextBuffer textBuffer = session.getTerminalTextBuffer();
+    session.process(getOutputLines("line", 20));
+    // the next output also moves the empty lines of the screen to the history
+    textBuffer.clearHistory();
+    session.process(getOutputLines("line", 20));
+    long historyBytes = textBuffer.estimateHistoryRetainedBytes();
+    int historyLinesCount = textBuffer.getHistoryLinesCount();
+    textBuffer.clearHistory();
+    textBuffer.setMaxHistoryBytes(historyBytes);
+
+    List<TerminalLine> discardedLines = new ArrayList<>();
+    textBuffer.addChangesListener(new TextBufferChangesListener() {
+      @Override
+      public void linesDiscardedFromHistory(@NotNull List<TerminalLine> lines) {
+        discardedLines.addAll(lines);
+      }
+    });
+    session.process(getOutputLines("line", 20));
+    assertEquals(historyLinesCount, textBuffer.getHistoryLinesCount());
+    assertTrue(discardedLines.isEmpty());
+
+    textBuffer.setMaxHistoryBytes(historyBytes / 2);
+    session.process(getOutputLines("line", 20));
+    assertTrue(textBuffer.estimateHistoryRetainedBytes() <= historyBytes / 2);
+    assertEquals(2 * historyLinesCount - discardedLines.size(), textBuffer.getHistoryLinesCount());
+    assertTrue(discardedLines.size() > historyLinesCount);
+  }
+
+  public void testHistoryBytesAreUpdatedOnceEstimated() {
+    StyleState state = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(80, 5, state, 30);
+    JediTerminal terminal = new JediTerminal(new BackBufferDisplay(textBuffer), textBuffer, state);
+    for (int i = 0; i < 20; i++) {
+      terminal.writeString("line " + i);
+      terminal.newLine();
+      terminal.carriageReturn();
+    }
+    textBuffer.estimateHistoryRetainedBytes();
+    // the history capacity is exceeded
+    for (int i = 0; i < 20; i++) {
+      terminal.writeString("longer line " + i);
+      terminal.newLine();
+      terminal.carriageReturn();
+    }
+    assertEquals(30, textBuffer.getHistoryLinesCount());
+    assertEquals(getMeasuredHistoryBytes(textBuffer), textBuffer.estimateHistoryRetainedBytes());
+
+    textBuffer.trimHistory(textBuffer.estimateHistoryRetainedBytes() / 2);
+    assertEquals(getMeasuredHistoryBytes(textBuffer), textBuffer.estimateHistoryRetainedBytes());
+  }
+
+  public void testHistoryBytesDoNotDriftWhenHistoryLinesChange() {
+    StyleState state = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(80, 5, state, 30);
+    JediTerminal terminal = new JediTerminal(new BackBufferDisplay(textBuffer), textBuffer, state);
+    for (int i = 0; i < 30; i++) {
+      terminal.writeString("line " + i);
+      terminal.newLine();
+      terminal.carriageReturn();
+    }
+    textBuffer.estimateHistoryRetainedBytes();
+    // the history lines grow after they are added, e.g. get hyperlinks
+    for (TerminalLine line : textBuffer.getHistoryLinesStorage()) {
+      line.addCustomHighlighting(0, 4, TextStyle.EMPTY);
+    }
+    // all the changed lines are discarded
+    for (int i = 0; i < 30; i++) {
+      terminal.writeString("new line " + i);
+      terminal.newLine();
+      terminal.carriageReturn();
+    }
+    assertEquals(getMeasuredHistoryBytes(textBuffer), textBuffer.estimateHistoryRetainedBytes());
+  }
+
+  private static long getMeasuredHistoryBytes(@NotNull TerminalTextBuffer textBuffer) {
+    LinesMemoryUsage history = textBuffer.estimateMemoryUsage().getHistory();
+    return history.getTotalBytes() - history.getStylesBytes();
+  }
+
+  private static @NotNull String getOutputLines(@NotNull String line, int count) {
+    // the empty lines push all the lines to the history
+    return (line + "\r\n").repeat(count) + "\r\n".repeat(5);
+  }
+
   private void assertScreenLines(@NotNull TestSession session, @NotNull List<String> expectedScreenLines) {
     Assert.assertEquals(expectedScreenLines, TerminalLinesUtilKt.getLineTexts(session.getTerminalTextBuffer().getScreenLinesStorage()));
   }
@@ -0,0 +1,96 @@
+package com.jediterm.terminal;
+
+import com.jediterm.core.util.TermSize;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class TtyRecordingTest extends TestCase {
+  public void testWriteAndRead() throws IOException {
+    TtyRecording recording = createRecording();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    recording.write(out);
+    TtyRecording read = TtyRecording.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(new TermSize(80, 24), read.getTermSize());
+    assertChunks(recording, read);
+    assertEquals(2_000_000, read.getDurationNanos());
+    assertEquals(recording.getCharCount(), read.getCharCount());
+  }
+
+  public void testNotARecording() {
+    try {
+      TtyRecording.read(new ByteArrayInputStream("plain text".getBytes()));
+      fail();
+    }
+    catch (IOException ignored) {
+    }
+  }
+
+  public void testReplay() throws Exception {
+    ReplayTtyConnector connector = new ReplayTtyConnector(createRecording(), false);
+    assertTrue(connector.isConnected());
+    assertTrue(connector.ready());
+    StringBuilder output = new StringBuilder();
+    char[] buf = new char[4];
+    int count;
+    while ((count = connector.read(buf, 0, buf.length)) > 0) {
+      output.append(buf, 0, count);
+    }
+    assertEquals("\u001b[1mbold\u001b[0m\r\nsecond line", output.toString());
+    assertFalse(connector.ready());
+    assertFalse(connector.isConnected());
+    assertEquals(0, connector.waitFor());
+  }
+
+  public void testRealTimeReplay() throws Exception {
+    TtyRecording recording = new TtyRecording(new TermSize(80, 24), List.of(
+      new TtyRecording.Chunk(0, "now".toCharArray()),
+      new TtyRecording.Chunk(50_000_000, "later".toCharArray())));
+    ReplayTtyConnector connector = new ReplayTtyConnector(recording, true);
+    char[] buf = new char[16];
+    long start = System.nanoTime();
+    assertEquals(3, connector.read(buf, 0, buf.length));
+    assertFalse(connector.ready());
+    assertEquals(5, connector.read(buf, 0, buf.length));
+    assertTrue(System.nanoTime() - start >= 50_000_000);
+    assertEquals(-1, connector.read(buf, 0, buf.length));
+  }
+
+  public void testRecordReplayedOutput() throws Exception {
+    TtyRecording recording = createRecording();
+    RecordingTtyConnector connector = new RecordingTtyConnector(new ReplayTtyConnector(recording, false), new TermSize(80, 24));
+    connector.resize(new TermSize(100, 30));
+    char[] buf = new char[1024];
+    assertTrue(connector.read(buf, 0, buf.length) > 0);
+    // the output is recorded at the size it was read at
+    connector.resize(new TermSize(120, 40));
+    while (connector.read(buf, 0, buf.length) > 0) {
+    }
+    TtyRecording recorded = connector.getRecording();
+    assertEquals(new TermSize(100, 30), recorded.getTermSize());
+    assertEquals(recording.getChunks().size(), recorded.getChunks().size());
+    for (int i = 0; i < recording.getChunks().size(); i++) {
+      assertEquals(new String(recording.getChunks().get(i).getData()), new String(recorded.getChunks().get(i).getData()));
+    }
+  }
+
+  private static TtyRecording createRecording() {
+    return new TtyRecording(new TermSize(80, 24), List.of(
+      new TtyRecording.Chunk(0, "\u001b[1mbold".toCharArray()),
+      new TtyRecording.Chunk(1_000_000, "\u001b[0m\r\n".toCharArray()),
+      new TtyRecording.Chunk(2_000_000, "second line".toCharArray())));
+  }
+
+  private static void assertChunks(TtyRecording expected, TtyRecording actual) {
+    assertEquals(expected.getChunks().size(), actual.getChunks().size());
+    for (int i = 0; i < expected.getChunks().size(); i++) {
+      TtyRecording.Chunk expectedChunk = expected.getChunks().get(i);
+      TtyRecording.Chunk actualChunk = actual.getChunks().get(i);
+      assertEquals(expectedChunk.getTimeNanos(), actualChunk.getTimeNanos());
+      assertEquals(new String(expectedChunk.getData()), new String(actualChunk.getData()));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.jediterm.terminal.emulator;
+
+import com.jediterm.terminal.ArrayTerminalDataStream;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.util.BackBufferTerminal;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Fails when processing the output allocates more than the budget of the scenario, to catch the changes that
+ * bring back per-character garbage in the emulator and the text buffer.
+ * <p/>
+ * The allocated bytes are measured per KB of input on the current thread, after a warm-up so that the JIT
+ * has compiled the hot paths. The budgets are about 1.4 times the allocations measured when they were set, to leave
+ * room for the differences between JVMs and garbage collectors: lower them when the allocations are reduced.
+ * The measurement of every scenario is logged to follow the trends. The scenarios pass without measuring
+ * on the JVMs that don't measure the thread allocations.
+ */
+public class AllocationBudgetTest extends TestCase {
+  private static final Logger LOG = LoggerFactory.getLogger(AllocationBudgetTest.class);
+  private static final String ESC = "\u001b";
+  private static final int COLUMNS = 120;
+  private static final int ROWS = 40;
+  private static final int HISTORY_LINES = 1000;
+  private static final int INPUT_LENGTH = 512 * 1024;
+  private static final int WARM_UP_RUNS = 5;
+  private static final int MEASURED_RUNS = 3;
+
+  public void testPlainText() throws IOException {
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; output.length() < INPUT_LENGTH; i++) {
+      output.append('[').append(i).append("] INFO com.example.Service - processed request id=").append(i * 31L % 1000003)
+        .append(" status=OK\r\n");
+    }
+    assertBudget("plain text", output, 48 * 1024);
+  }
+
+  public void testSgrColoredText() throws IOException {
+    Random random = new Random(42);
+    StringBuilder output = new StringBuilder();
+    while (output.length() < INPUT_LENGTH) {
+      for (int word = 0; word < 12; word++) {
+        if (random.nextBoolean()) {
+          output.append(ESC).append("[1;3").append(random.nextInt(8)).append('m');
+        }
+        else {
+          output.append(ESC).append("[38;5;").append(random.nextInt(256)).append(";48;5;").append(random.nextInt(256)).append('m');
+        }
+        output.append("word").append(word).append(ESC).append("[0m ");
+      }
+      output.append("\r\n");
+    }
+    assertBudget("SGR colored text", output, 300 * 1024);
+  }
+
+  public void testCursorAddressedRedraws() throws IOException {
+    Random random = new Random(42);
+    StringBuilder output = new StringBuilder();
+    while (output.length() < INPUT_LENGTH) {
+      output.append(ESC).append("[H");
+      for (int row = 1; row <= ROWS; row++) {
+        output.append(ESC).append('[').append(row).append(";1H");
+        output.append(ESC).append(row % 2 == 0 ? "[7m" : "[32m");
+        output.append(String.format("%5d %-20s %8d", row, "process-" + random.nextInt(1000), random.nextInt(100000)));
+        output.append(ESC).append("[0m").append(ESC).append("[K");
+      }
+    }
+    assertBudget("cursor-addressed redraws", output, 48 * 1024);
+  }
+
+  public void testLineFeedStorm() throws IOException {
+    StringBuilder output = new StringBuilder();
+    while (output.length() < INPUT_LENGTH) {
+      output.append("\n\n\n\n\n\n\n\nx\r");
+    }
+    assertBudget("line feed storm", output, 1200 * 1024);
+  }
+
+  private static void assertBudget(@NotNull String scenario, @NotNull CharSequence output, long budgetBytesPerKb) throws IOException {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (!(threadBean instanceof com.sun.management.ThreadMXBean) ||
+        !((com.sun.management.ThreadMXBean)threadBean).isThreadAllocatedMemorySupported()) {
+      LOG.info("{}: the thread allocations are not measured by this JVM, skipped", scenario);
+      return;
+    }
+    com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+    allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+    char[] chars = output.toString().toCharArray();
+    for (int i = 0; i < WARM_UP_RUNS; i++) {
+      process(createTerminal(), chars);
+    }
+    long threadId = Thread.currentThread().getId();
+    long minAllocatedBytes = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      BackBufferTerminal terminal = createTerminal();
+      long before = allocationBean.getThreadAllocatedBytes(threadId);
+      process(terminal, chars);
+      minAllocatedBytes = Math.min(minAllocatedBytes, allocationBean.getThreadAllocatedBytes(threadId) - before);
+    }
+    long bytesPerKb = minAllocatedBytes * 1024 / chars.length;
+    LOG.info("{}: {} bytes allocated per KB of input, the budget is {}", scenario, bytesPerKb, budgetBytesPerKb);
+    assertTrue(scenario + " allocates " + bytesPerKb + " bytes per KB of input, the budget is " + budgetBytesPerKb,
+               bytesPerKb <= budgetBytesPerKb);
+  }
+
+  private static @NotNull BackBufferTerminal createTerminal() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(COLUMNS, ROWS, styleState, HISTORY_LINES);
+    return new BackBufferTerminal(textBuffer, styleState);
+  }
+
+  private static void process(@NotNull BackBufferTerminal terminal, char @NotNull [] chars) throws IOException {
+    Emulator emulator = new JediEmulator(new ArrayTerminalDataStream(chars), terminal);
+    while (emulator.hasNext()) {
+      emulator.next();
+    }
+  }
+}
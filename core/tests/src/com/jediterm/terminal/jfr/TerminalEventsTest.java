@@ -0,0 +1,106 @@
+package com.jediterm.terminal.jfr;
+
+import com.jediterm.core.util.CellPosition;
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.ReplayTtyConnector;
+import com.jediterm.terminal.TtyBasedArrayDataStream;
+import com.jediterm.terminal.TtyRecording;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.util.BackBufferTerminal;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.TestCase;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class TerminalEventsTest extends TestCase {
+  public void testEmulatorAndResizeEvents() throws Exception {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 3, styleState, 10);
+    BackBufferTerminal terminal = new BackBufferTerminal(textBuffer, styleState);
+    TtyRecording recording = new TtyRecording(new TermSize(20, 3), List.of(
+      new TtyRecording.Chunk(0, "first chunk\r\n".toCharArray()),
+      new TtyRecording.Chunk(0, "\u001b[?2026hsynchronized\u001b[?2026l".toCharArray())));
+    JediEmulator emulator = new JediEmulator(new TtyBasedArrayDataStream(new ReplayTtyConnector(recording, false)), terminal);
+
+    List<RecordedEvent> events;
+    try (Recording jfrRecording = new Recording()) {
+      jfrRecording.enable(EmulatorChunkEvent.class);
+      jfrRecording.enable(SynchronizedOutputEvent.class);
+      jfrRecording.enable(TextBufferResizeEvent.class);
+      jfrRecording.start();
+      while (emulator.hasNext()) {
+        emulator.next();
+      }
+      textBuffer.modify(() -> textBuffer.resize(new TermSize(10, 3), new CellPosition(1, 2), null));
+      jfrRecording.stop();
+      Path file = Files.createTempFile("jediterm", ".jfr");
+      try {
+        jfrRecording.dump(file);
+        events = RecordingFile.readAllEvents(file);
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+
+    List<RecordedEvent> chunks = getEvents(events, "com.jediterm.EmulatorChunk");
+    assertEquals(2, chunks.size());
+    assertEquals(13, chunks.get(0).getInt("chars"));
+
+    List<RecordedEvent> syncOutputs = getEvents(events, "com.jediterm.SynchronizedOutput");
+    assertEquals(1, syncOutputs.size());
+    assertEquals("synchronized".length(), syncOutputs.get(0).getInt("chars"));
+
+    List<RecordedEvent> resizes = getEvents(events, "com.jediterm.TextBufferResize");
+    assertEquals(1, resizes.size());
+    RecordedEvent resize = resizes.get(0);
+    assertEquals(20, resize.getInt("oldColumns"));
+    assertEquals(10, resize.getInt("newColumns"));
+    assertEquals(2, resize.getInt("linesReflowed"));
+  }
+
+  public void testLastChunkEventWhenEmulatorStops() throws Exception {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 3, styleState, 10);
+    BackBufferTerminal terminal = new BackBufferTerminal(textBuffer, styleState);
+    TtyRecording recording = new TtyRecording(new TermSize(20, 3), List.of(
+      new TtyRecording.Chunk(0, "only chunk\r\n".toCharArray())));
+    TtyBasedArrayDataStream dataStream = new TtyBasedArrayDataStream(new ReplayTtyConnector(recording, false));
+    JediEmulator emulator = new JediEmulator(dataStream, terminal);
+
+    List<RecordedEvent> events;
+    try (Recording jfrRecording = new Recording()) {
+      jfrRecording.enable(EmulatorChunkEvent.class);
+      jfrRecording.start();
+      // stopped once the chunk is processed, without reading the end of the stream
+      do {
+        emulator.next();
+      }
+      while (!dataStream.isEmpty());
+      jfrRecording.stop();
+      Path file = Files.createTempFile("jediterm", ".jfr");
+      try {
+        jfrRecording.dump(file);
+        events = RecordingFile.readAllEvents(file);
+      }
+      finally {
+        Files.delete(file);
+      }
+    }
+
+    List<RecordedEvent> chunks = getEvents(events, "com.jediterm.EmulatorChunk");
+    assertEquals(1, chunks.size());
+    assertEquals("only chunk\r\n".length(), chunks.get(0).getInt("chars"));
+  }
+
+  private static List<RecordedEvent> getEvents(List<RecordedEvent> events, String name) {
+    return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,94 @@
+package com.jediterm.terminal.metrics;
+
+import com.jediterm.core.util.TermSize;
+import com.jediterm.terminal.ReplayTtyConnector;
+import com.jediterm.terminal.TtyBasedArrayDataStream;
+import com.jediterm.terminal.TtyRecording;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.util.BackBufferTerminal;
+import junit.framework.TestCase;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.List;
+import java.util.Map;
+
+public class JmxTerminalMetricsProviderTest extends TestCase {
+  private static final String OUTPUT = "\u001b[1mbold\u001b[0m\r\n" +
+                                       "\u001b]0;title\u0007line 2\r\n" +
+                                       "\u001b7line 3\r\nline 4\r\nline 5\r\nline 6";
+
+  public void testSessionMetrics() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    JmxTerminalMetricsProvider provider = new JmxTerminalMetricsProvider(server);
+    TerminalMetrics metrics = provider.createSessionMetrics("test session");
+    TerminalTextBuffer textBuffer = process(metrics);
+
+    TerminalMetricsMXBean bean = (TerminalMetricsMXBean)metrics;
+    assertEquals(OUTPUT.length(), bean.getCharsParsed());
+    Map<String, Long> sequenceCounts = bean.getSequenceCounts();
+    assertEquals(Long.valueOf(2), sequenceCounts.get("CSI"));
+    assertEquals(Long.valueOf(1), sequenceCounts.get("OSC"));
+    assertEquals(Long.valueOf(1), sequenceCounts.get("ESC"));
+    assertEquals(Long.valueOf(0), sequenceCounts.get("DCS"));
+    // CR and LF of the 5 line breaks, the OSC is terminated by BEL
+    assertEquals(Long.valueOf(10), sequenceCounts.get("CONTROL_CHARACTER"));
+    // 6 lines on a 3 rows screen, the history keeps 2 lines
+    assertEquals(3, bean.getLinesAddedToHistory());
+    assertEquals(1, bean.getHistoryLinesDiscarded());
+    assertEquals(2, textBuffer.getHistoryLinesCount());
+    assertTrue(bean.getLockAcquisitions() > 0);
+    assertTrue(bean.getMaxLockHoldNanos() <= bean.getLockHoldNanos());
+
+    ObjectName name = new ObjectName("com.jediterm:type=TerminalMetrics,name=\"test session\"");
+    assertEquals((long)OUTPUT.length(), server.getAttribute(name, "CharsParsed"));
+    assertEquals((long)OUTPUT.length(), provider.getTotals().getCharsParsed());
+  }
+
+  public void testTotalsKeepDisposedSessions() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    JmxTerminalMetricsProvider provider = new JmxTerminalMetricsProvider(server);
+    TerminalMetrics first = provider.createSessionMetrics("first");
+    TerminalMetrics second = provider.createSessionMetrics("second");
+    process(first);
+    process(second);
+    ObjectName totalName = new ObjectName("com.jediterm:type=TerminalMetrics,name=Total");
+    assertEquals(2L * OUTPUT.length(), server.getAttribute(totalName, "CharsParsed"));
+
+    first.dispose();
+    assertFalse(server.isRegistered(new ObjectName("com.jediterm:type=TerminalMetrics,name=\"first\"")));
+    assertTrue(server.isRegistered(new ObjectName("com.jediterm:type=TerminalMetrics,name=\"second\"")));
+    assertEquals(2L * OUTPUT.length(), provider.getTotals().getCharsParsed());
+    assertEquals(Long.valueOf(4), provider.getTotals().getSequenceCounts().get("CSI"));
+
+    provider.dispose();
+    assertFalse(server.isRegistered(totalName));
+  }
+
+  public void testNoMetricsByDefault() throws Exception {
+    TerminalTextBuffer textBuffer = process(null);
+    assertSame(TerminalMetrics.NOOP, textBuffer.getMetrics());
+    assertFalse(textBuffer.getMetrics().isEnabled());
+  }
+
+  private static TerminalTextBuffer process(TerminalMetrics metrics) throws Exception {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 3, styleState, 2);
+    BackBufferTerminal terminal = new BackBufferTerminal(textBuffer, styleState);
+    TtyRecording recording = new TtyRecording(new TermSize(20, 3), List.of(new TtyRecording.Chunk(0, OUTPUT.toCharArray())));
+    TtyBasedArrayDataStream dataStream = new TtyBasedArrayDataStream(new ReplayTtyConnector(recording, false));
+    JediEmulator emulator = new JediEmulator(dataStream, terminal);
+    if (metrics != null) {
+      textBuffer.setMetrics(metrics);
+      dataStream.setMetrics(metrics);
+      emulator.setMetrics(metrics);
+    }
+    while (emulator.hasNext()) {
+      emulator.next();
+    }
+    return textBuffer;
+  }
+}
@@ -0,0 +1,77 @@
+package com.jediterm.terminal.model;
+
+import com.jediterm.util.TestSession;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScrollbackMemoryGovernorTest extends TestCase {
+  public void testTrimsLeastRecentlyViewedFirst() throws IOException {
+    TestSession visible = new TestSession(80, 5);
+    TestSession hidden = new TestSession(80, 5);
+    TestSession hiddenLater = new TestSession(80, 5);
+    for (TestSession session : List.of(visible, hidden, hiddenLater)) {
+      writeLines(session, 100);
+    }
+    TerminalTextBuffer hiddenTextBuffer = hidden.getTerminalTextBuffer();
+    long sessionBytes = hiddenTextBuffer.estimateHistoryRetainedBytes();
+    List<TerminalLine> discardedLines = new ArrayList<>();
+    hiddenTextBuffer.addChangesListener(new TextBufferChangesListener() {
+      @Override
+      public void linesDiscardedFromHistory(@NotNull List<TerminalLine> lines) {
+        discardedLines.addAll(lines);
+      }
+    });
+    TerminalLine firstLine = hiddenTextBuffer.getLine(-hiddenTextBuffer.getHistoryLinesCount());
+
+    ScrollbackMemoryGovernor governor = new ScrollbackMemoryGovernor(3 * sessionBytes - sessionBytes / 2, Runnable::run);
+    ScrollbackMemoryGovernor.Session hiddenLaterSession = governor.register(hiddenLater.getTerminalTextBuffer());
+    governor.register(hiddenTextBuffer);
+    governor.register(visible.getTerminalTextBuffer()).setVisible(true);
+    // viewed after the registration of the hidden one
+    hiddenLaterSession.setVisible(true);
+    hiddenLaterSession.setVisible(false);
+    assertEquals(3 * sessionBytes, governor.getRetainedBytes());
+
+    assertTrue(governor.enforceBudget() >= sessionBytes / 2);
+    assertTrue(governor.getRetainedBytes() <= governor.getBudgetBytes());
+    assertEquals(sessionBytes, visible.getTerminalTextBuffer().estimateHistoryRetainedBytes());
+    assertEquals(sessionBytes, hiddenLater.getTerminalTextBuffer().estimateHistoryRetainedBytes());
+    assertSame(firstLine, discardedLines.get(0));
+    assertEquals("line " + discardedLines.size(), hiddenTextBuffer.getLine(-hiddenTextBuffer.getHistoryLinesCount()).getText());
+  }
+
+  public void testBudgetCheckedWhenHistoryGrows() throws IOException {
+    List<Runnable> scheduled = new ArrayList<>();
+    TestSession session = new TestSession(80, 5);
+    writeLines(session, 100);
+    long budgetBytes = session.getTerminalTextBuffer().estimateHistoryRetainedBytes() / 2;
+    session.getTerminalTextBuffer().clearHistory();
+
+    ScrollbackMemoryGovernor governor = new ScrollbackMemoryGovernor(budgetBytes, scheduled::add);
+    ScrollbackMemoryGovernor.Session governorSession = governor.register(session.getTerminalTextBuffer());
+    writeLines(session, 100);
+    // a single check is scheduled until it runs
+    assertEquals(1, scheduled.size());
+    scheduled.get(0).run();
+    assertTrue(governor.getRetainedBytes() <= budgetBytes);
+
+    governorSession.dispose();
+    scheduled.clear();
+    writeLines(session, 100);
+    assertTrue(scheduled.isEmpty());
+  }
+
+  private static void writeLines(@NotNull TestSession session, int count) throws IOException {
+    StringBuilder output = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      output.append("line ").append(i).append("\r\n");
+    }
+    // push all the lines to the history
+    output.append("\r\n".repeat(5));
+    session.process(output.toString());
+  }
+}
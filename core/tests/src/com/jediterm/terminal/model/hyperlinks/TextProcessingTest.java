@@ -15,6 +15,7 @@ import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -50,6 +51,76 @@ public class TextProcessingTest extends TestCase {
     );
   }
 
+  public void testDeferredHyperlinks() throws IOException {
+    TextProcessing textProcessing = mySession.getTextProcessing();
+    textProcessing.addAsyncHyperlinkFilter(new TestFilter(true));
+    textProcessing.setDeferred(true);
+    String link = TestFilter.formatLink("hello");
+    // 8 lines and the cursor line on a 5 rows screen: the first 4 lines go to the history
+    for (int i = 0; i < 8; i++) {
+      mySession.process(link + " " + i + "\r\n");
+    }
+    assertTrue(textProcessing.hasDeferredHyperlinks());
+    assertEquals(List.of(new TerminalLine.TextEntry(mySession.getCurrentStyle(), new CharBuffer(link + " 0"))),
+                 getTextBuffer().getLine(-4).getEntries());
+
+    textProcessing.setDeferred(false);
+    textProcessing.processDeferredHyperlinks(0, 5, Runnable::run);
+    assertEquals(getLinkLineEntries(link, " 4"), getTextBuffer().getLine(0).getEntries());
+    // the last line before the cursor is padded with spaces
+    assertEquals(getLinkLineEntries(link, " 7"), getTextBuffer().getLine(3).getEntries().subList(0, 2));
+    assertEquals(List.of(new TerminalLine.TextEntry(mySession.getCurrentStyle(), new CharBuffer(link + " 0"))),
+                 getTextBuffer().getLine(-4).getEntries());
+    assertTrue(textProcessing.hasDeferredHyperlinks());
+
+    List<Runnable> tasks = new ArrayList<>();
+    textProcessing.processDeferredHyperlinks(-4, 4, tasks::add);
+    // the filters are applied on the executor
+    assertEquals(1, tasks.size());
+    assertEquals(List.of(new TerminalLine.TextEntry(mySession.getCurrentStyle(), new CharBuffer(link + " 0"))),
+                 getTextBuffer().getLine(-4).getEntries());
+    tasks.get(0).run();
+    assertEquals(getLinkLineEntries(link, " 0"), getTextBuffer().getLine(-4).getEntries());
+    assertFalse(textProcessing.hasDeferredHyperlinks());
+  }
+
+  public void testDeferredHyperlinksAfterHistoryCleared() throws IOException {
+    TextProcessing textProcessing = mySession.getTextProcessing();
+    textProcessing.addAsyncHyperlinkFilter(new TestFilter(true));
+    textProcessing.setDeferred(true);
+    String link = TestFilter.formatLink("hello");
+    for (int i = 0; i < 8; i++) {
+      mySession.process(link + " " + i + "\r\n");
+    }
+    getTextBuffer().clearHistory();
+    assertEquals(0, getTextBuffer().getHistoryLinesCount());
+    assertTrue(textProcessing.hasDeferredHyperlinks());
+
+    textProcessing.setDeferred(false);
+    textProcessing.processDeferredHyperlinks(0, 5, Runnable::run);
+    assertEquals(getLinkLineEntries(link, " 4"), getTextBuffer().getLine(0).getEntries());
+    assertFalse(textProcessing.hasDeferredHyperlinks());
+  }
+
+  public void testDeferredHyperlinksAfterWidthResized() throws IOException {
+    TextProcessing textProcessing = mySession.getTextProcessing();
+    textProcessing.addAsyncHyperlinkFilter(new TestFilter(true));
+    textProcessing.setDeferred(true);
+    String link = TestFilter.formatLink("hello");
+    for (int i = 0; i < 8; i++) {
+      mySession.process(link + " " + i + "\r\n");
+    }
+    getTerminal().resize(new TermSize(120, 5), RequestOrigin.User);
+    assertTrue(textProcessing.hasDeferredHyperlinks());
+
+    textProcessing.setDeferred(false);
+    textProcessing.processDeferredHyperlinks(0, 5, Runnable::run);
+    assertEquals(getLinkLineEntries(link, " 4"), getTextBuffer().getLine(0).getEntries());
+    textProcessing.processDeferredHyperlinks(-4, 4, Runnable::run);
+    assertEquals(getLinkLineEntries(link, " 0"), getTextBuffer().getLine(-4).getEntries());
+    assertFalse(textProcessing.hasDeferredHyperlinks());
+  }
+
   public void testErase() throws IOException {
     mySession.getTextProcessing().addAsyncHyperlinkFilter(new TestFilter(true));
     String str = "<[-------- PROGRESS 1ms";
@@ -172,6 +243,11 @@ k-l-m
     );
   }
 
+  private @NotNull List<TerminalLine.TextEntry> getLinkLineEntries(@NotNull String link, @NotNull String text) {
+    return List.of(new TerminalLine.TextEntry(myHyperlinkStyle, new CharBuffer(link)),
+                   new TerminalLine.TextEntry(mySession.getCurrentStyle(), new CharBuffer(text)));
+  }
+
   private static void assertEquals(@NotNull List<TerminalLine.TextEntry> expected,
                                    @NotNull List<TerminalLine.TextEntry> actual) {
     assertEquals(expected.size(), actual.size());
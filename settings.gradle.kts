@@ -1,3 +1,4 @@
 include(":core")
 include(":ui")
 include(":JediTerm")
+include(":benchmarks")
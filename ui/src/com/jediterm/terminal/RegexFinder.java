@@ -0,0 +1,194 @@
+package com.jediterm.terminal;
+
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.SubstringFinder.TextToken;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.TerminalLine;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds matches of a regular expression in logical lines, i.e. in lines joined with the lines they are wrapped to.
+ * <p/>
+ * The pattern is matched against a {@link CharSequence} view of the text buffers of the lines, so the text is not copied.
+ * The view checks the deadline while the pattern reads it, so a pattern with catastrophic backtracking
+ * is stopped instead of hanging.
+ */
+public class RegexFinder {
+  private static final int CHARS_BETWEEN_DEADLINE_CHECKS = 4096;
+
+  private final Pattern myPattern;
+
+  public RegexFinder(@NotNull Pattern pattern) {
+    myPattern = pattern;
+  }
+
+  /**
+   * Adds matches found in the logical line to the result, starting at an index of its text.
+   *
+   * @param lines         the lines of the logical line, each of them except the last one is wrapped
+   * @param firstLineY    line index of the first line passed to the found items
+   * @param fromIndex     index in the text of the logical line to search from, e.g. returned by the previous call
+   * @param maxHits       the search is stopped when the result has this many items
+   * @param deadlineNanos {@link System#nanoTime()} value after which the search is stopped
+   * @return -1 if the logical line was searched to its end, otherwise the index to resume the search from,
+   * the matches found before the search was stopped are added anyway
+   */
+  public int findInLogicalLine(@NotNull List<TerminalLine> lines,
+                               int firstLineY,
+                               int fromIndex,
+                               @NotNull FindResult result,
+                               int maxHits,
+                               long deadlineNanos) {
+    LogicalLineText text = new LogicalLineText(lines, firstLineY, deadlineNanos);
+    if (fromIndex >= text.length()) {
+      return -1;
+    }
+    Matcher matcher = myPattern.matcher(text);
+    // anchors and look-arounds see the text before the resumed region as usual
+    matcher.useTransparentBounds(true).useAnchoringBounds(false).region(fromIndex, text.length());
+    int resumeIndex = fromIndex;
+    try {
+      while (result.getItems().size() < maxHits) {
+        if (!matcher.find()) {
+          return -1;
+        }
+        if (matcher.end() > matcher.start()) {
+          result.patternMatched(text.tokens(matcher.start(), matcher.end()), text.indexInSegment(matcher.start()),
+                                text.indexInSegment(matcher.end() - 1));
+          resumeIndex = matcher.end();
+        }
+      }
+      return resumeIndex;
+    }
+    catch (DeadlineExceededException e) {
+      return resumeIndex;
+    }
+  }
+
+  private static final class DeadlineExceededException extends RuntimeException {
+    DeadlineExceededException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Text of a logical line composed of the text buffers of its entries.
+   */
+  private static final class LogicalLineText implements CharSequence {
+    private final CharBuffer[] mySegments;
+    // offset of each segment in the text, followed by the text length
+    private final int[] myOffsets;
+    private final int[] myXs;
+    private final int[] myYs;
+    private final long myDeadlineNanos;
+    private int myLastSegment;
+    private int myCharsUntilDeadlineCheck = CHARS_BETWEEN_DEADLINE_CHECKS;
+
+    LogicalLineText(@NotNull List<TerminalLine> lines, int firstLineY, long deadlineNanos) {
+      myDeadlineNanos = deadlineNanos;
+      int count = 0;
+      for (TerminalLine line : lines) {
+        for (TerminalLine.TextEntry entry : line.getEntries()) {
+          if (isText(entry)) {
+            count++;
+          }
+        }
+      }
+      mySegments = new CharBuffer[count];
+      myOffsets = new int[count + 1];
+      myXs = new int[count];
+      myYs = new int[count];
+
+      int segment = 0;
+      int offset = 0;
+      for (int i = 0; i < lines.size(); i++) {
+        int x = 0;
+        for (TerminalLine.TextEntry entry : lines.get(i).getEntries()) {
+          if (isText(entry)) {
+            mySegments[segment] = entry.getText();
+            myOffsets[segment] = offset;
+            myXs[segment] = x;
+            myYs[segment] = firstLineY + i;
+            offset += entry.getLength();
+            segment++;
+          }
+          x += entry.getLength();
+        }
+      }
+      myOffsets[count] = offset;
+    }
+
+    private static boolean isText(@NotNull TerminalLine.TextEntry entry) {
+      // NUL can only be at the end
+      return !entry.isNul() && entry.getLength() > 0;
+    }
+
+    @Override
+    public int length() {
+      return myOffsets[myOffsets.length - 1];
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (--myCharsUntilDeadlineCheck == 0) {
+        myCharsUntilDeadlineCheck = CHARS_BETWEEN_DEADLINE_CHECKS;
+        if (System.nanoTime() - myDeadlineNanos > 0) {
+          throw new DeadlineExceededException();
+        }
+      }
+      int segment = myLastSegment;
+      if (index < myOffsets[segment] || index >= myOffsets[segment + 1]) {
+        segment = findSegment(index);
+        myLastSegment = segment;
+      }
+      return mySegments[segment].charAt(index - myOffsets[segment]);
+    }
+
+    @Override
+    public @NotNull CharSequence subSequence(int start, int end) {
+      StringBuilder result = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+        result.append(charAt(i));
+      }
+      return result;
+    }
+
+    @Override
+    public @NotNull String toString() {
+      return subSequence(0, length()).toString();
+    }
+
+    int indexInSegment(int index) {
+      return index - myOffsets[findSegment(index)];
+    }
+
+    @NotNull ArrayList<TextToken> tokens(int start, int end) {
+      ArrayList<TextToken> tokens = new ArrayList<>();
+      for (int segment = findSegment(start); segment <= findSegment(end - 1); segment++) {
+        tokens.add(new TextToken(myXs[segment], myYs[segment], mySegments[segment]));
+      }
+      return tokens;
+    }
+
+    private int findSegment(int index) {
+      // the last segment starting at or before the index
+      int low = 0;
+      int high = mySegments.length - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (myOffsets[middle] <= index) {
+          low = middle;
+        }
+        else {
+          high = middle - 1;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -80,6 +81,18 @@ public class SubstringFinder {
     }
   }
 
+  /**
+   * Forgets the chars fed so far, keeping the found matches.
+   * The next fed char is not considered adjacent to the previous ones, so no match spans the gap.
+   */
+  public void resetWindow() {
+    myCurrentHash = 0;
+    myCurrentLength = 0;
+    myPower = 0;
+    myTokens.clear();
+    myFirstIndex = 0;
+  }
+
   public boolean accept(@NotNull FindResult.FindItem item) {
     return true;
   }
@@ -218,6 +231,59 @@ public class SubstringFinder {
       return items;
     }
 
+    /**
+     * Creates a result with the items of both results ordered by their position.
+     * The results should be found in disjoint parts of the text, e.g. by searching it in chunks.
+     * The item selected in the {@code first} result stays selected.
+     */
+    public static @NotNull FindResult merge(@NotNull FindResult first, @NotNull FindResult second) {
+      List<FindItem> sorted = new ArrayList<>(first.items.size() + second.items.size());
+      sorted.addAll(first.items);
+      sorted.addAll(second.items);
+      sorted.sort(Comparator.comparingInt((FindItem item) -> item.tokens.get(0).y).thenComparingInt(item -> item.getStart().x));
+      FindItem selected = first.items.isEmpty() ? null : first.selectedItem();
+
+      FindResult result = new FindResult();
+      for (FindItem item : sorted) {
+        if (item == selected) {
+          result.selectedItem = result.items.size();
+        }
+        result.items.add(new FindItem(item.tokens, item.firstIndex, item.lastIndex, result.items.size() + 1));
+      }
+      for (FindResult source : List.of(first, second)) {
+        for (Map.Entry<CharBuffer, List<Pair<Integer, Integer>>> entry : source.ranges.entrySet()) {
+          result.ranges.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+        }
+      }
+      return result;
+    }
+
+    /**
+     * Creates a result with the items moved by {@code dy} lines, keeping only the items starting in lines [0, endLine)
+     * after the move. Used to update the result when lines are discarded from the top of the history,
+     * and the text starting at {@code endLine} is searched again.
+     * The selected item stays selected if it is kept.
+     */
+    public @NotNull FindResult retainItemsBefore(int dy, int endLine) {
+      FindItem selected = items.isEmpty() ? null : selectedItem();
+      FindResult result = new FindResult();
+      for (FindItem item : items) {
+        int y = item.tokens.get(0).y + dy;
+        if (y < 0 || y >= endLine) {
+          continue;
+        }
+        ArrayList<TextToken> tokens = new ArrayList<>(item.tokens.size());
+        for (TextToken token : item.tokens) {
+          tokens.add(new TextToken(token.x, token.y + dy, token.buf));
+        }
+        if (item == selected) {
+          result.selectedItem = result.items.size();
+        }
+        result.patternMatched(tokens, item.firstIndex, item.lastIndex);
+      }
+      return result;
+    }
+
     public @NotNull FindItem selectedItem() {
       assertNotEmpty();
       return items.get(selectedItem);
@@ -242,12 +308,12 @@ public class SubstringFinder {
     }
   }
 
-  private static class TextToken {
+  static class TextToken {
     final CharBuffer buf;
     final int x;
     final int y;
 
-    private TextToken(int x, int y, CharBuffer buf) {
+    TextToken(int x, int y, CharBuffer buf) {
       this.x = x;
       this.y = y;
       this.buf = buf;
@@ -117,7 +117,7 @@ public class JediTermTypeAheadModel implements TypeAheadTerminalModel {
 
   private void setTypeAheadLine(@NotNull TerminalLine typeAheadTerminalLine) {
     TerminalLine terminalLine = myTerminalTextBuffer.getLine(myTerminal.getCursorY() - 1);
-    terminalLine.myTypeAheadLine = typeAheadTerminalLine;
+    terminalLine.setTypeAheadLine(typeAheadTerminalLine);
   }
 
   public void addTypeAheadModelListener(@NotNull TerminalModelListener listener) {
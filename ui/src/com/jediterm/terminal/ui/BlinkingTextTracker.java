@@ -4,21 +4,102 @@ import com.jediterm.terminal.TextStyle;
 import com.jediterm.terminal.ui.settings.SettingsProvider;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+
+/**
+ * Tracks the blinking state of the text and the visible cells with the blinking text,
+ * so that only those cells are repainted when the state changes.
+ */
 class BlinkingTextTracker {
   private final BlinkTracker slowBlinkTracker = new BlinkTracker();
   private final BlinkTracker rapidBlinkTracker = new BlinkTracker();
 
-  void updateState(@NotNull SettingsProvider settingsProvider, @NotNull TerminalPanel panel) {
+  // the start and the end columns of the blinking cells of every visible row, the start is -1 if there are none
+  private int[] myBlinkingColumns = new int[0];
+  private int myBlinkingRowCount;
+
+  /**
+   * @return true if the state of the blinking text has changed, so the blinking cells should be repainted
+   */
+  boolean updateState(@NotNull SettingsProvider settingsProvider) {
     if (settingsProvider.enableTextBlinking()) {
       long currentTime = System.currentTimeMillis();
       boolean slowBlinkStateChanged = slowBlinkTracker.update(currentTime, settingsProvider.slowTextBlinkMs());
       boolean rapidBlinkStateChanged = rapidBlinkTracker.update(currentTime, settingsProvider.rapidTextBlinkMs());
-      if (slowBlinkStateChanged || rapidBlinkStateChanged) {
-        panel.repaint();
+      return slowBlinkStateChanged || rapidBlinkStateChanged;
+    }
+    return false;
+  }
+
+  /**
+   * Forgets the blinking cells of the given visible rows before they are painted.
+   * The rows can be painted on the render thread, so the blinking cells are accessed under the lock.
+   */
+  synchronized void clearBlinkingCells(int fromRow, int toRow, int rowCount) {
+    if (myBlinkingColumns.length != rowCount * 2) {
+      myBlinkingColumns = new int[rowCount * 2];
+      Arrays.fill(myBlinkingColumns, -1);
+      myBlinkingRowCount = 0;
+      return;
+    }
+    for (int row = Math.max(0, fromRow); row < Math.min(toRow, rowCount); row++) {
+      if (myBlinkingColumns[row * 2] >= 0) {
+        myBlinkingColumns[row * 2] = -1;
+        myBlinkingRowCount--;
+      }
+    }
+  }
+
+  synchronized void addBlinkingCells(int row, int column, int cells) {
+    int index = row * 2;
+    if (row < 0 || index >= myBlinkingColumns.length || cells <= 0) {
+      return;
+    }
+    if (myBlinkingColumns[index] < 0) {
+      myBlinkingColumns[index] = column;
+      myBlinkingColumns[index + 1] = column + cells;
+      myBlinkingRowCount++;
+    }
+    else {
+      myBlinkingColumns[index] = Math.min(myBlinkingColumns[index], column);
+      myBlinkingColumns[index + 1] = Math.max(myBlinkingColumns[index + 1], column + cells);
+    }
+  }
+
+  synchronized boolean hasBlinkingCells() {
+    return myBlinkingRowCount > 0;
+  }
+
+  /**
+   * Passes the start column, the end column and the row of every visible row with the blinking cells.
+   */
+  synchronized void processBlinkingRows(@NotNull BlinkingRowConsumer consumer) {
+    for (int row = 0; row * 2 < myBlinkingColumns.length; row++) {
+      if (myBlinkingColumns[row * 2] >= 0) {
+        consumer.consume(row, myBlinkingColumns[row * 2], myBlinkingColumns[row * 2 + 1]);
       }
     }
   }
 
+  interface BlinkingRowConsumer {
+    void consume(int row, int startColumn, int endColumn);
+  }
+
+  static boolean isBlinking(@NotNull TextStyle style) {
+    return style.hasOption(TextStyle.Option.SLOW_BLINK) || style.hasOption(TextStyle.Option.RAPID_BLINK);
+  }
+
+  /**
+   * @return the time the blinking text should change its state at, or {@code Long.MAX_VALUE} if it doesn't blink
+   */
+  long getNextStateChangeTime(@NotNull SettingsProvider settingsProvider, long currentTime) {
+    if (!settingsProvider.enableTextBlinking()) {
+      return Long.MAX_VALUE;
+    }
+    return Math.min(slowBlinkTracker.getNextStateChangeTime(currentTime, settingsProvider.slowTextBlinkMs()),
+                    rapidBlinkTracker.getNextStateChangeTime(currentTime, settingsProvider.rapidTextBlinkMs()));
+  }
+
   boolean shouldBlinkNow(@NotNull TextStyle style) {
     return (style.hasOption(TextStyle.Option.SLOW_BLINK) && slowBlinkTracker.inverse) ||
       (style.hasOption(TextStyle.Option.RAPID_BLINK) && rapidBlinkTracker.inverse);
@@ -26,7 +107,8 @@ class BlinkingTextTracker {
 
   private static class BlinkTracker {
     private final long lastBlinkMillis = System.currentTimeMillis();
-    private boolean inverse = false;
+    // updated on the EDT, read by the painting thread
+    private volatile boolean inverse = false;
 
     private boolean update(long currentTime, int period) {
       if (period <= 0) return false;
@@ -35,5 +117,11 @@ class BlinkingTextTracker {
       inverse = blinks % 2 == 1;
       return prevInverse != inverse;
     }
+
+    private long getNextStateChangeTime(long currentTime, int period) {
+      if (period <= 0) return Long.MAX_VALUE;
+      long blinks = (currentTime - lastBlinkMillis) / period;
+      return lastBlinkMillis + (blinks + 1) * period;
+    }
   }
 }
@@ -19,6 +19,7 @@ final class JediTermDefaultSearchComponent extends JPanel implements JediTermSea
   private final JTextField myTextField = new JTextField();
   private final JLabel label = new JLabel();
   private final JCheckBox ignoreCaseCheckBox = new JCheckBox("Ignore Case", true);
+  private final JCheckBox regexCheckBox = new JCheckBox("Regex", false);
   private final List<JediTermSearchComponentListener> myListeners = new CopyOnWriteArrayList<>();
   private final JediTermSearchComponentListener myMulticaster = createMulticaster();
 
@@ -39,6 +40,7 @@ final class JediTermDefaultSearchComponent extends JPanel implements JediTermSea
     add(myTextField);
     listenForChanges();
     add(ignoreCaseCheckBox);
+    add(regexCheckBox);
     add(label);
     add(next);
     add(prev);
@@ -48,7 +50,7 @@ final class JediTermDefaultSearchComponent extends JPanel implements JediTermSea
 
   private void listenForChanges() {
     Runnable settingsChanged = () -> {
-      myMulticaster.searchSettingsChanged(myTextField.getText(), ignoreCaseCheckBox.isSelected());
+      myMulticaster.searchSettingsChanged(myTextField.getText(), ignoreCaseCheckBox.isSelected(), regexCheckBox.isSelected());
     };
     myTextField.getDocument().addDocumentListener(new DocumentListener() {
       @Override
@@ -67,6 +69,7 @@ final class JediTermDefaultSearchComponent extends JPanel implements JediTermSea
       }
     });
     ignoreCaseCheckBox.addItemListener(e -> settingsChanged.run());
+    regexCheckBox.addItemListener(e -> settingsChanged.run());
   }
 
   private JButton createNextButton() {
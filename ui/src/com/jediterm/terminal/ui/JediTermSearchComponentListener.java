@@ -5,6 +5,13 @@ import org.jetbrains.annotations.NotNull;
 public interface JediTermSearchComponentListener {
   void searchSettingsChanged(@NotNull String textToFind, boolean ignoreCase);
 
+  /**
+   * @param regex whether {@code textToFind} is a regular expression
+   */
+  default void searchSettingsChanged(@NotNull String textToFind, boolean ignoreCase, boolean regex) {
+    searchSettingsChanged(textToFind, ignoreCase);
+  }
+
   void hideSearchComponent();
 
   void selectNextFindResult();
@@ -6,6 +6,8 @@ import com.jediterm.core.typeahead.TypeAheadTerminalModel;
 import com.jediterm.terminal.*;
 import com.jediterm.terminal.SubstringFinder.FindResult;
 import com.jediterm.terminal.SubstringFinder.FindResult.FindItem;
+import com.jediterm.terminal.metrics.TerminalMetrics;
+import com.jediterm.terminal.metrics.TerminalMetricsProvider;
 import com.jediterm.terminal.model.*;
 import com.jediterm.terminal.model.hyperlinks.AsyncHyperlinkFilter;
 import com.jediterm.terminal.model.hyperlinks.HyperlinkFilter;
@@ -19,15 +21,20 @@ import org.slf4j.LoggerFactory;
 import javax.swing.*;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * JediTerm terminal widget with UI implemented in Swing.
@@ -35,6 +42,7 @@ import java.util.function.Consumer;
  */
 public class JediTermWidget extends JPanel implements TerminalSession, TerminalWidget, TerminalActionProvider {
   private static final Logger LOG = LoggerFactory.getLogger(JediTermWidget.class);
+  private static final AtomicInteger ourSessionCounter = new AtomicInteger();
 
   protected final TerminalPanel myTerminalPanel;
   private final JScrollBar myScrollBar;
@@ -52,7 +60,11 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
   private TerminalActionProvider myNextActionProvider;
   private final JLayeredPane myInnerPanel;
   private final TextProcessing myTextProcessing;
+  private final @Nullable TerminalSearchIndex mySearchIndex;
+  private final TerminalSearchService mySearchService;
   private final List<TerminalWidgetListener> myListeners = new CopyOnWriteArrayList<>();
+  private final TerminalMetrics myMetrics;
+  private final @Nullable ScrollbackMemoryGovernor.Session myScrollbackSession;
   private final Object myExecutorServiceManagerLock = new Object();
   private volatile TerminalExecutorServiceManager myExecutorServiceManager;
 
@@ -71,17 +83,32 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
       settingsProvider.getHyperlinkHighlightingMode());
 
     TerminalTextBuffer terminalTextBuffer = new TerminalTextBuffer(columns, lines, styleState, settingsProvider.getBufferMaxLinesCount(), myTextProcessing);
+    myMetrics = TerminalMetricsProvider.getInstance().createSessionMetrics("JediTerm-" + ourSessionCounter.incrementAndGet());
+    terminalTextBuffer.setMetrics(myMetrics);
+    terminalTextBuffer.setMaxHistoryBytes(settingsProvider.getBufferMaxBytes());
     myTextProcessing.setTerminalTextBuffer(terminalTextBuffer);
+    if (settingsProvider.enableSearchIndex()) {
+      mySearchIndex = new TerminalSearchIndex(terminalTextBuffer);
+      terminalTextBuffer.addChangesListener(mySearchIndex);
+    }
+    else {
+      mySearchIndex = null;
+    }
+    mySearchService = new TerminalSearchService(terminalTextBuffer, mySearchIndex, getExecutorServiceManager(),
+                                                settingsProvider.enableParallelSearch() ? ForkJoinPool.commonPool() : null);
+    terminalTextBuffer.addChangesListener(mySearchService);
 
     myTerminalPanel = createTerminalPanel(mySettingsProvider, styleState, terminalTextBuffer);
     myTerminal = createTerminal(myTerminalPanel, terminalTextBuffer, styleState);
 
     myTypeAheadTerminalModel = new JediTermTypeAheadModel(myTerminal, terminalTextBuffer, settingsProvider);
     myTypeAheadManager = new TerminalTypeAheadManager(myTypeAheadTerminalModel);
+    myTypeAheadManager.setMetrics(myMetrics);
     JediTermDebouncerImpl typeAheadDebouncer =
       new JediTermDebouncerImpl(myTypeAheadManager::debounce, TerminalTypeAheadManager.MAX_TERMINAL_DELAY, getExecutorServiceManager());
     myTypeAheadManager.setClearPredictionsDebouncer(typeAheadDebouncer);
     myTerminalPanel.setTypeAheadManager(myTypeAheadManager);
+    myTerminalPanel.setHyperlinkExecutor(getExecutorServiceManager().getUnboundedExecutorService());
     myTypeAheadTerminalModel.addTypeAheadModelListener(myTerminalPanel::repaint);
 
     myTerminal.setModeEnabled(TerminalMode.AltSendsEscape, mySettingsProvider.altSendsEscape());
@@ -109,6 +136,20 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
     myTerminalPanel.init(myScrollBar);
 
     myTerminalPanel.setVisible(true);
+
+    ScrollbackMemoryGovernor scrollbackGovernor = ScrollbackMemoryGovernor.getInstance();
+    if (scrollbackGovernor != null) {
+      ScrollbackMemoryGovernor.Session scrollbackSession = scrollbackGovernor.register(terminalTextBuffer);
+      myTerminalPanel.addHierarchyListener(e -> {
+        if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+          scrollbackSession.setVisible(myTerminalPanel.isShowing());
+        }
+      });
+      myScrollbackSession = scrollbackSession;
+    }
+    else {
+      myScrollbackSession = null;
+    }
   }
 
   protected JScrollBar createScrollBar() {
@@ -161,6 +202,9 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
   }
 
   protected @NotNull TerminalExecutorServiceManager createExecutorServiceManager() {
+    if (VirtualThreadTerminalExecutorServiceManager.isEnabled()) {
+      return new VirtualThreadTerminalExecutorServiceManager();
+    }
     return new JediTermExecutorServiceManager();
   }
 
@@ -273,7 +317,12 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
       myTerminalStarter.close();
     }
     myTerminalPanel.dispose();
+    mySearchService.cancel();
     getExecutorServiceManager().shutdownWhenAllExecuted();
+    myMetrics.dispose();
+    if (myScrollbackSession != null) {
+      myScrollbackSession.dispose();
+    }
   }
 
   @Override
@@ -299,7 +348,12 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
       JediTermSearchComponentListener listener = new JediTermSearchComponentListener() {
         @Override
         public void searchSettingsChanged(@NotNull String textToFind, boolean ignoreCase) {
-          findText(textToFind, ignoreCase);
+          findText(textToFind, ignoreCase, false);
+        }
+
+        @Override
+        public void searchSettingsChanged(@NotNull String textToFind, boolean ignoreCase, boolean regex) {
+          findText(textToFind, ignoreCase, regex);
         }
 
         @Override
@@ -308,18 +362,28 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
           myInnerPanel.revalidate();
           myInnerPanel.repaint();
           myFindComponent = null;
+          mySearchService.cancel();
           myTerminalPanel.setFindResult(null);
           myTerminalPanel.requestFocusInWindow();
         }
 
         @Override
         public void selectNextFindResult() {
-          myFindComponent.onResultUpdated(myTerminalPanel.selectNextFindResultItem());
+          FindResult result = myTerminalPanel.selectNextFindResultItem();
+          myFindComponent.onResultUpdated(result);
+          if (result != null && result.selectedItem().getIndex() == result.getItems().size()) {
+            // fetch the following matches in advance, so that the next selection doesn't wrap around
+            mySearchService.fetchMoreResults(true);
+          }
         }
 
         @Override
         public void selectPrevFindResult() {
-          myFindComponent.onResultUpdated(myTerminalPanel.selectPrevFindResultItem());
+          FindResult result = myTerminalPanel.selectPrevFindResultItem();
+          myFindComponent.onResultUpdated(result);
+          if (result != null && result.selectedItem().getIndex() == 1) {
+            mySearchService.fetchMoreResults(false);
+          }
         }
       };
       myFindComponent.addListener(listener);
@@ -347,11 +411,29 @@ public class JediTermWidget extends JPanel implements TerminalSession, TerminalW
     return new JediTermDefaultSearchComponent(this);
   }
 
-  private void findText(String text, boolean ignoreCase) {
-    FindResult results = TerminalSearchUtil.searchInTerminalTextBuffer(getTerminalTextBuffer(), text, ignoreCase);
-    myTerminalPanel.setFindResult(results);
-    myFindComponent.onResultUpdated(results);
-    myScrollBar.repaint();
+  private void findText(String text, boolean ignoreCase, boolean regex) {
+    int viewportLine = getTerminalTextBuffer().getHistoryLinesCount() + myTerminalPanel.getVerticalScrollModel().getValue();
+    Consumer<FindResult> onResultUpdated = results -> {
+      if (myFindComponent != null) {
+        myTerminalPanel.setFindResult(results);
+        myFindComponent.onResultUpdated(results);
+        myScrollBar.repaint();
+      }
+    };
+    if (!regex || text.isEmpty()) {
+      mySearchService.search(text, ignoreCase, viewportLine, onResultUpdated);
+      return;
+    }
+    Pattern pattern;
+    try {
+      pattern = Pattern.compile(text, ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+    }
+    catch (PatternSyntaxException e) {
+      mySearchService.cancel();
+      onResultUpdated.accept(null);
+      return;
+    }
+    mySearchService.searchRegex(pattern, mySettingsProvider.getSearchMaxHitsPerPage(), viewportLine, onResultUpdated);
   }
 
   @Override
@@ -0,0 +1,283 @@
+package com.jediterm.terminal.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Runs the tasks of a session one at a time, in submission order, on a shared worker pool, and uses a shared
+ * scheduler only to enqueue the delayed tasks when they are due. It gives the guarantees of a single-threaded
+ * scheduled executor (the tasks never run concurrently and each one sees the effects of the previous ones)
+ * without a thread per session.
+ * <p/>
+ * As with {@link ScheduledThreadPoolExecutor}, the delayed tasks still run after {@link #shutdown()}, the periodic
+ * ones are cancelled.
+ */
+final class SerialScheduledExecutorService extends AbstractExecutorService implements ScheduledExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(SerialScheduledExecutorService.class);
+
+  private final Executor myWorkers;
+  private final ScheduledExecutorService myScheduler;
+  private final Object myLock = new Object();
+  // guarded by myLock
+  private final ArrayDeque<Runnable> myQueue = new ArrayDeque<>();
+  private final Set<DelayedTask<?>> myDelayedTasks = new HashSet<>();
+  private boolean myRunning = false;
+  private boolean myShutdown = false;
+
+  SerialScheduledExecutorService(@NotNull Executor workers, @NotNull ScheduledExecutorService scheduler) {
+    myWorkers = workers;
+    myScheduler = scheduler;
+  }
+
+  @Override
+  public void execute(@NotNull Runnable command) {
+    synchronized (myLock) {
+      if (myShutdown) {
+        throw new RejectedExecutionException("Executor has been shut down");
+      }
+      enqueue(command);
+    }
+  }
+
+  // guarded by myLock
+  private void enqueue(@NotNull Runnable command) {
+    myQueue.add(command);
+    if (!myRunning) {
+      myRunning = true;
+      myWorkers.execute(this::runQueuedTasks);
+    }
+  }
+
+  private void runQueuedTasks() {
+    while (true) {
+      Runnable task;
+      synchronized (myLock) {
+        task = myQueue.poll();
+        if (task == null) {
+          myRunning = false;
+          myLock.notifyAll();
+          return;
+        }
+      }
+      try {
+        task.run();
+      }
+      catch (Throwable t) {
+        LOG.error("Uncaught exception in a terminal task", t);
+      }
+      // the interruption of a task should not affect the next ones
+      //noinspection ResultOfMethodCallIgnored
+      Thread.interrupted();
+    }
+  }
+
+  @Override
+  public @NotNull ScheduledFuture<?> schedule(@NotNull Runnable command, long delay, @NotNull TimeUnit unit) {
+    return schedule(Executors.callable(command, null), delay, unit);
+  }
+
+  @Override
+  public <V> @NotNull ScheduledFuture<V> schedule(@NotNull Callable<V> callable, long delay, @NotNull TimeUnit unit) {
+    DelayedTask<V> task = new DelayedTask<>(callable, 0);
+    task.scheduleRun(delay, unit);
+    return task;
+  }
+
+  @Override
+  public @NotNull ScheduledFuture<?> scheduleAtFixedRate(@NotNull Runnable command, long initialDelay, long period,
+                                                         @NotNull TimeUnit unit) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("period: " + period);
+    }
+    DelayedTask<Object> task = new DelayedTask<>(Executors.callable(command), unit.toNanos(period));
+    task.scheduleRun(initialDelay, unit);
+    return task;
+  }
+
+  @Override
+  public @NotNull ScheduledFuture<?> scheduleWithFixedDelay(@NotNull Runnable command, long initialDelay, long delay,
+                                                            @NotNull TimeUnit unit) {
+    if (delay <= 0) {
+      throw new IllegalArgumentException("delay: " + delay);
+    }
+    DelayedTask<Object> task = new DelayedTask<>(Executors.callable(command), -unit.toNanos(delay));
+    task.scheduleRun(initialDelay, unit);
+    return task;
+  }
+
+  @Override
+  public void shutdown() {
+    List<DelayedTask<?>> periodicTasks = new ArrayList<>();
+    synchronized (myLock) {
+      myShutdown = true;
+      for (DelayedTask<?> task : myDelayedTasks) {
+        if (task.isPeriodic()) {
+          periodicTasks.add(task);
+        }
+      }
+      myLock.notifyAll();
+    }
+    for (DelayedTask<?> task : periodicTasks) {
+      task.cancel(false);
+    }
+  }
+
+  @Override
+  public @NotNull List<Runnable> shutdownNow() {
+    List<Runnable> notExecuted;
+    List<DelayedTask<?>> delayedTasks;
+    synchronized (myLock) {
+      myShutdown = true;
+      notExecuted = new ArrayList<>(myQueue);
+      myQueue.clear();
+      delayedTasks = new ArrayList<>(myDelayedTasks);
+      myLock.notifyAll();
+    }
+    for (DelayedTask<?> task : delayedTasks) {
+      task.cancel(false);
+    }
+    return notExecuted;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (myLock) {
+      return myShutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    synchronized (myLock) {
+      return isTerminatedLocked();
+    }
+  }
+
+  // guarded by myLock
+  private boolean isTerminatedLocked() {
+    return myShutdown && !myRunning && myQueue.isEmpty() && myDelayedTasks.isEmpty();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (myLock) {
+      while (!isTerminatedLocked()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(myLock, remaining);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A task waiting on the shared scheduler to be enqueued.
+   */
+  private final class DelayedTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+    /**
+     * 0 for a one-shot task, positive for a fixed rate, negative for a fixed delay.
+     */
+    private final long myPeriodNanos;
+    private volatile long myTriggerTime;
+    private volatile @Nullable ScheduledFuture<?> myTrigger;
+
+    DelayedTask(@NotNull Callable<V> callable, long periodNanos) {
+      super(callable);
+      myPeriodNanos = periodNanos;
+    }
+
+    void scheduleRun(long delay, @NotNull TimeUnit unit) {
+      synchronized (myLock) {
+        if (myShutdown) {
+          throw new RejectedExecutionException("Executor has been shut down");
+        }
+        myDelayedTasks.add(this);
+      }
+      long delayNanos = Math.max(0, unit.toNanos(delay));
+      myTriggerTime = System.nanoTime() + delayNanos;
+      myTrigger = myScheduler.schedule(this::triggered, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void triggered() {
+      synchronized (myLock) {
+        // a task cancelled while it was running may have been scheduled again
+        if (myDelayedTasks.remove(this) && !isDone()) {
+          enqueue(this);
+        }
+        myLock.notifyAll();
+      }
+    }
+
+    @Override
+    public boolean isPeriodic() {
+      return myPeriodNanos != 0;
+    }
+
+    @Override
+    public void run() {
+      if (!isPeriodic()) {
+        super.run();
+        return;
+      }
+      if (!runAndReset()) {
+        return;
+      }
+      long now = System.nanoTime();
+      long triggerTime = myPeriodNanos > 0 ? myTriggerTime + myPeriodNanos : now - myPeriodNanos;
+      boolean shutdown;
+      synchronized (myLock) {
+        if (isCancelled()) {
+          return;
+        }
+        shutdown = myShutdown;
+        if (!shutdown) {
+          myDelayedTasks.add(this);
+        }
+      }
+      if (shutdown) {
+        // the executor was shut down while the task was queued or running
+        cancel(false);
+        return;
+      }
+      myTriggerTime = triggerTime;
+      myTrigger = myScheduler.schedule(this::triggered, Math.max(0, triggerTime - now), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      ScheduledFuture<?> trigger = myTrigger;
+      if (cancelled && trigger != null) {
+        trigger.cancel(false);
+      }
+      synchronized (myLock) {
+        if (myDelayedTasks.remove(this)) {
+          myLock.notifyAll();
+        }
+      }
+      return cancelled;
+    }
+
+    @Override
+    public long getDelay(@NotNull TimeUnit unit) {
+      return unit.convert(myTriggerTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(@NotNull Delayed other) {
+      return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+  }
+}
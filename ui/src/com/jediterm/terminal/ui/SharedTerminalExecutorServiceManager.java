@@ -0,0 +1,192 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalExecutorServiceManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor service manager of a session that shares its threads with the other sessions of the process,
+ * unlike {@link JediTermExecutorServiceManager}, which starts a scheduler thread and a thread pool per session.
+ * <p/>
+ * {@link #getSingleThreadScheduledExecutor()} is a serial queue of the session: its tasks run in submission order
+ * and never concurrently, as {@link com.jediterm.terminal.TerminalStarter} expects for writing to the process
+ * and resizing it, but on a shared pool. The pool grows as needed, since a write blocked by a process that
+ * does not read its input holds a thread until it completes, and a bounded pool would then stall the other sessions;
+ * a session still runs on one thread at a time. One scheduler thread enqueues the delayed tasks of all sessions.
+ * {@link #getUnboundedExecutorService()} runs the long tasks, such as the emulator reading the process output,
+ * on a shared unbounded pool. The idle threads of the pools are reused by all sessions and released after a minute,
+ * so an idle session keeps only the thread blocked reading its process output.
+ * <p/>
+ * Enable it by overriding {@link JediTermWidget#createExecutorServiceManager()}.
+ */
+public final class SharedTerminalExecutorServiceManager implements TerminalExecutorServiceManager {
+  private final SerialScheduledExecutorService mySerialExecutor;
+  private final SessionExecutorService mySessionExecutor;
+
+  public SharedTerminalExecutorServiceManager() {
+    mySerialExecutor = new SerialScheduledExecutorService(SharedExecutors.SERIAL_WORKERS, SharedExecutors.SCHEDULER);
+    mySessionExecutor = new SessionExecutorService(SharedExecutors.UNBOUNDED_WORKERS);
+  }
+
+  @Override
+  public @NotNull ScheduledExecutorService getSingleThreadScheduledExecutor() {
+    return mySerialExecutor;
+  }
+
+  @Override
+  public @NotNull ExecutorService getUnboundedExecutorService() {
+    return mySessionExecutor;
+  }
+
+  @Override
+  public void shutdownWhenAllExecuted() {
+    if (!mySerialExecutor.isShutdown()) {
+      mySerialExecutor.execute(mySerialExecutor::shutdown);
+    }
+    mySessionExecutor.shutdown();
+  }
+
+  /**
+   * @return the scheduler thread enqueuing the delayed tasks of the sessions, shared by the process
+   */
+  static @NotNull ScheduledExecutorService getSharedScheduler() {
+    return SharedExecutors.SCHEDULER;
+  }
+
+  private static final class SharedExecutors {
+    static final ScheduledExecutorService SCHEDULER = createScheduler();
+    static final ExecutorService SERIAL_WORKERS = createSerialWorkers();
+    static final ExecutorService UNBOUNDED_WORKERS = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                                                                            new SynchronousQueue<>(),
+                                                                            new SharedThreadFactory("JediTerm-shared-"));
+
+    private static @NotNull ScheduledExecutorService createScheduler() {
+      ScheduledThreadPoolExecutor scheduler =
+        new ScheduledThreadPoolExecutor(1, new SharedThreadFactory("JediTerm-shared-scheduler-"));
+      scheduler.setRemoveOnCancelPolicy(true);
+      return scheduler;
+    }
+
+    private static @NotNull ExecutorService createSerialWorkers() {
+      // unbounded, only the idle threads are limited by the keep-alive time
+      return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                    new SharedThreadFactory("JediTerm-shared-fast-job-"));
+    }
+  }
+
+  private static final class SharedThreadFactory implements ThreadFactory {
+    private final String myThreadNamePrefix;
+    private final AtomicInteger myThreadNumber = new AtomicInteger(0);
+
+    SharedThreadFactory(@NotNull String threadNamePrefix) {
+      myThreadNamePrefix = threadNamePrefix;
+    }
+
+    @Override
+    public Thread newThread(@NotNull Runnable r) {
+      Thread t = new Thread(r, myThreadNamePrefix + myThreadNumber.getAndIncrement());
+      // the threads are shared by all sessions and never shut down, they should not keep the process alive
+      t.setDaemon(true);
+      if (t.getPriority() != Thread.NORM_PRIORITY) {
+        t.setPriority(Thread.NORM_PRIORITY);
+      }
+      return t;
+    }
+  }
+
+  /**
+   * The tasks of a session on the shared worker pool, shut down independently of the other sessions.
+   */
+  private static final class SessionExecutorService extends AbstractExecutorService {
+    private final Executor myWorkers;
+    // guarded by this
+    private final Set<Thread> myRunningThreads = new HashSet<>();
+    private int myPendingCount = 0;
+    private boolean myShutdown = false;
+
+    SessionExecutorService(@NotNull Executor workers) {
+      myWorkers = workers;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+      synchronized (this) {
+        if (myShutdown) {
+          throw new RejectedExecutionException("Executor has been shut down");
+        }
+        myPendingCount++;
+      }
+      try {
+        myWorkers.execute(() -> run(command));
+      }
+      catch (RejectedExecutionException e) {
+        taskDone(null);
+        throw e;
+      }
+    }
+
+    private void run(@NotNull Runnable command) {
+      Thread thread = Thread.currentThread();
+      synchronized (this) {
+        myRunningThreads.add(thread);
+      }
+      try {
+        command.run();
+      }
+      finally {
+        taskDone(thread);
+      }
+    }
+
+    private synchronized void taskDone(Thread thread) {
+      if (thread != null) {
+        myRunningThreads.remove(thread);
+      }
+      myPendingCount--;
+      notifyAll();
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      myShutdown = true;
+    }
+
+    @Override
+    public synchronized @NotNull List<Runnable> shutdownNow() {
+      myShutdown = true;
+      for (Thread thread : myRunningThreads) {
+        thread.interrupt();
+      }
+      return new ArrayList<>();
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+      return myShutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return myShutdown && myPendingCount == 0;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+      return true;
+    }
+  }
+}
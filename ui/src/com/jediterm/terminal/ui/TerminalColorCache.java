@@ -0,0 +1,128 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.emulator.ColorPalette;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches AWT colors resolved for text styles, so that painting doesn't resolve palette colors
+ * and allocate {@link Color} objects for every run.
+ * <p/>
+ * The colors are cached per style and render state, i.e. whether the text is selected, found, under the cursor
+ * or inverted by blinking. The cache is cleared when the colors it depends on change, see {@link #validate}.
+ * Should be accessed on the painting thread only, i.e. the EDT or the offscreen render thread.
+ */
+final class TerminalColorCache {
+  static final int NORMAL = 0;
+  static final int SELECTED = 1;
+  static final int FOUND_PATTERN = 2;
+  static final int CURSOR = 3;
+  /**
+   * Added to a state for the blinking text in its inverted phase.
+   */
+  static final int BLINK_INVERTED = 4;
+
+  private static final int STATES_COUNT = 8;
+  // styles are never removed from the model, so the cache is cleared when it grows too large, e.g. with true color output
+  private static final int MAX_STYLES_PER_STATE = 4096;
+
+  @SuppressWarnings("unchecked")
+  private final Map<TextStyle, ResolvedColors>[] myColors = new Map[STATES_COUNT];
+  // the values the colors are resolved from, compared on every frame without allocating
+  private boolean myValidated;
+  private ColorPalette myPalette;
+  private TerminalColor myDefaultForeground;
+  private TerminalColor myDefaultBackground;
+  private TextStyle myDefaultStyle;
+  private TextStyle mySelectionColor;
+  private TextStyle myFoundPatternColor;
+  private boolean myInverseSelectionColor;
+
+  TerminalColorCache() {
+    for (int i = 0; i < STATES_COUNT; i++) {
+      myColors[i] = new HashMap<>();
+    }
+  }
+
+  /**
+   * Clears the cache if any of the values the colors are resolved from differs from the previous call.
+   *
+   * @return false if the cache was cleared
+   */
+  boolean validate(@NotNull ColorPalette palette,
+                   @NotNull TerminalColor defaultForeground,
+                   @NotNull TerminalColor defaultBackground,
+                   @NotNull TextStyle defaultStyle,
+                   @NotNull TextStyle selectionColor,
+                   @NotNull TextStyle foundPatternColor,
+                   boolean inverseSelectionColor) {
+    if (myValidated &&
+        Objects.equals(myPalette, palette) &&
+        Objects.equals(myDefaultForeground, defaultForeground) &&
+        Objects.equals(myDefaultBackground, defaultBackground) &&
+        Objects.equals(myDefaultStyle, defaultStyle) &&
+        Objects.equals(mySelectionColor, selectionColor) &&
+        Objects.equals(myFoundPatternColor, foundPatternColor) &&
+        myInverseSelectionColor == inverseSelectionColor) {
+      return true;
+    }
+    myValidated = true;
+    myPalette = palette;
+    myDefaultForeground = defaultForeground;
+    myDefaultBackground = defaultBackground;
+    myDefaultStyle = defaultStyle;
+    mySelectionColor = selectionColor;
+    myFoundPatternColor = foundPatternColor;
+    myInverseSelectionColor = inverseSelectionColor;
+    invalidate();
+    return false;
+  }
+
+  void invalidate() {
+    for (Map<TextStyle, ResolvedColors> colors : myColors) {
+      colors.clear();
+    }
+  }
+
+  @Nullable ResolvedColors get(@NotNull TextStyle style, int state) {
+    return myColors[state].get(style);
+  }
+
+  void put(@NotNull TextStyle style, int state, @NotNull ResolvedColors colors) {
+    Map<TextStyle, ResolvedColors> stateColors = myColors[state];
+    if (stateColors.size() >= MAX_STYLES_PER_STATE) {
+      stateColors.clear();
+    }
+    stateColors.put(style, colors);
+  }
+
+  int size() {
+    int size = 0;
+    for (Map<TextStyle, ResolvedColors> colors : myColors) {
+      size += colors.size();
+    }
+    return size;
+  }
+
+  static final class ResolvedColors {
+    final Color foreground;
+    final Color textForeground;
+    final Color background;
+
+    /**
+     * @param textForeground the foreground for the text, differs from {@code foreground} for dim text
+     */
+    ResolvedColors(@NotNull Color foreground, @NotNull Color textForeground, @NotNull Color background) {
+      this.foreground = foreground;
+      this.textForeground = textForeground;
+      this.background = background;
+    }
+  }
+}
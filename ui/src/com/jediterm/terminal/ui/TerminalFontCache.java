@@ -0,0 +1,155 @@
+package com.jediterm.terminal.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches the fonts resolved for the graphemes and their descents, so that painting doesn't call
+ * {@link TerminalPanel#getFontToDisplay} and query the font metrics for every grapheme of every frame.
+ * The overridden {@code getFontToDisplay} usually looks for a fallback font able to display the grapheme,
+ * which is expensive for CJK and emoji output.
+ * <p/>
+ * The fonts are cached per grapheme and the bold and italic flags of the style, including the graphemes
+ * the primary font can't display. The cache is cleared when the fonts or the font rendering change,
+ * see {@link #validate}.
+ * Should be accessed on the painting thread only, i.e. the EDT or the offscreen render thread.
+ */
+final class TerminalFontCache {
+  private static final int BOLD = 1;
+  private static final int ITALIC = 2;
+  private static final int STYLES_COUNT = 4;
+  // the count of distinct graphemes on screen is usually small, the cache is cleared when it grows too large
+  private static final int MAX_GRAPHEMES_PER_STYLE = 4096;
+
+  @SuppressWarnings("unchecked")
+  private final Map<GraphemeKey, ResolvedFont>[] myFonts = new Map[STYLES_COUNT];
+  private final GraphemeKey myLookupKey = new GraphemeKey();
+  // the values the fonts are resolved from, compared on every frame without allocating
+  private boolean myValidated;
+  private Font myNormalFont;
+  private Font myBoldFont;
+  private Font myItalicFont;
+  private Font myBoldItalicFont;
+  private boolean myDecCompatibilityMode;
+  private FontRenderContext myFontRenderContext;
+
+  TerminalFontCache() {
+    for (int i = 0; i < STYLES_COUNT; i++) {
+      myFonts[i] = new HashMap<>();
+    }
+  }
+
+  /**
+   * Clears the cache if any of the values the fonts are resolved from differs from the previous call.
+   *
+   * @return false if the cache was cleared
+   */
+  boolean validate(@Nullable Font normalFont,
+                   @Nullable Font boldFont,
+                   @Nullable Font italicFont,
+                   @Nullable Font boldItalicFont,
+                   boolean decCompatibilityMode,
+                   @Nullable FontRenderContext fontRenderContext) {
+    if (myValidated &&
+        Objects.equals(myNormalFont, normalFont) &&
+        Objects.equals(myBoldFont, boldFont) &&
+        Objects.equals(myItalicFont, italicFont) &&
+        Objects.equals(myBoldItalicFont, boldItalicFont) &&
+        myDecCompatibilityMode == decCompatibilityMode &&
+        Objects.equals(myFontRenderContext, fontRenderContext)) {
+      return true;
+    }
+    myValidated = true;
+    myNormalFont = normalFont;
+    myBoldFont = boldFont;
+    myItalicFont = italicFont;
+    myBoldItalicFont = boldItalicFont;
+    myDecCompatibilityMode = decCompatibilityMode;
+    myFontRenderContext = fontRenderContext;
+    invalidate();
+    return false;
+  }
+
+  void invalidate() {
+    for (Map<GraphemeKey, ResolvedFont> fonts : myFonts) {
+      fonts.clear();
+    }
+  }
+
+  @Nullable ResolvedFont get(char @NotNull [] text, int start, int end, boolean bold, boolean italic) {
+    myLookupKey.set(text, start, end);
+    ResolvedFont font = myFonts[getStyleIndex(bold, italic)].get(myLookupKey);
+    myLookupKey.set(null, 0, 0);
+    return font;
+  }
+
+  void put(char @NotNull [] text, int start, int end, boolean bold, boolean italic, @NotNull ResolvedFont font) {
+    Map<GraphemeKey, ResolvedFont> fonts = myFonts[getStyleIndex(bold, italic)];
+    if (fonts.size() >= MAX_GRAPHEMES_PER_STYLE) {
+      fonts.clear();
+    }
+    GraphemeKey key = new GraphemeKey();
+    key.set(Arrays.copyOfRange(text, start, end), 0, end - start);
+    fonts.put(key, font);
+  }
+
+  int size() {
+    int size = 0;
+    for (Map<GraphemeKey, ResolvedFont> fonts : myFonts) {
+      size += fonts.size();
+    }
+    return size;
+  }
+
+  private static int getStyleIndex(boolean bold, boolean italic) {
+    return (bold ? BOLD : 0) | (italic ? ITALIC : 0);
+  }
+
+  static final class ResolvedFont {
+    final Font font;
+    final int descent;
+
+    ResolvedFont(@NotNull Font font, int descent) {
+      this.font = font;
+      this.descent = descent;
+    }
+  }
+
+  private static final class GraphemeKey {
+    private char[] myText;
+    private int myStart;
+    private int myEnd;
+    private int myHash;
+
+    void set(char @Nullable [] text, int start, int end) {
+      myText = text;
+      myStart = start;
+      myEnd = end;
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + text[i];
+      }
+      myHash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof GraphemeKey)) return false;
+      GraphemeKey key = (GraphemeKey)o;
+      return myHash == key.myHash && Arrays.equals(myText, myStart, myEnd, key.myText, key.myStart, key.myEnd);
+    }
+
+    @Override
+    public int hashCode() {
+      return myHash;
+    }
+  }
+}
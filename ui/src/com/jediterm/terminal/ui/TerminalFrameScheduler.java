@@ -0,0 +1,187 @@
+package com.jediterm.terminal.ui;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs a frame action on the EDT on demand instead of polling at a fixed rate.
+ * <p/>
+ * Frames are requested from any thread, e.g. by the model change notifications, and the requests arriving before
+ * the next frame are coalesced into it. Frames run at most {@code maxFps} times a second.
+ * A frame can also be requested after a delay, e.g. to toggle blinking content; nothing runs while no frame is requested,
+ * so an idle terminal costs no wakeups. While the scheduler is suspended, e.g. when the terminal is hidden, the requests
+ * are only remembered, and one frame runs when it is resumed.
+ */
+final class TerminalFrameScheduler {
+  private static final long NO_FRAME = Long.MAX_VALUE;
+
+  private final Runnable myFrameAction;
+  private final long myFrameIntervalNanos;
+  private final LongSupplier myNanoClock;
+  private final Executor myEdtExecutor;
+  private final FrameTimer myTimer;
+  // set when a frame is requested, until the request is passed to the EDT
+  private final AtomicBoolean myFrameRequested = new AtomicBoolean();
+  private volatile boolean mySuspended;
+  private volatile boolean myFrameRequestedWhileSuspended;
+
+  // accessed on the EDT only
+  private long myLastFrameNanos;
+  private long myScheduledFrameNanos = NO_FRAME;
+  private boolean myStopped;
+
+  /**
+   * @param frameAction runs on the EDT
+   */
+  TerminalFrameScheduler(int maxFps, @NotNull Runnable frameAction) {
+    this(maxFps, frameAction, System::nanoTime, SwingUtilities::invokeLater, new SwingFrameTimer());
+  }
+
+  /**
+   * @param nanoClock   the time source, e.g. {@link System#nanoTime()}
+   * @param edtExecutor runs the requests from other threads on the EDT
+   * @param timer       runs the frames after a delay on the EDT
+   */
+  TerminalFrameScheduler(int maxFps,
+                         @NotNull Runnable frameAction,
+                         @NotNull LongSupplier nanoClock,
+                         @NotNull Executor edtExecutor,
+                         @NotNull FrameTimer timer) {
+    myFrameAction = frameAction;
+    myFrameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxFps);
+    myNanoClock = nanoClock;
+    myEdtExecutor = edtExecutor;
+    myTimer = timer;
+    myLastFrameNanos = nanoClock.getAsLong() - myFrameIntervalNanos;
+  }
+
+  /**
+   * Requests a frame as soon as the frame rate allows. Can be called from any thread.
+   */
+  void requestFrame() {
+    if (mySuspended) {
+      myFrameRequestedWhileSuspended = true;
+      return;
+    }
+    if (myFrameRequested.compareAndSet(false, true)) {
+      myEdtExecutor.execute(() -> {
+        myFrameRequested.set(false);
+        schedule(myLastFrameNanos + myFrameIntervalNanos);
+      });
+    }
+  }
+
+  /**
+   * Requests a frame after the delay unless an earlier one is requested. Should be called on the EDT.
+   */
+  void requestFrameAfter(long delayMillis) {
+    schedule(myNanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+  }
+
+  /**
+   * Cancels the requested frame and ignores the following requests. Should be called on the EDT.
+   */
+  void stop() {
+    myStopped = true;
+    myScheduledFrameNanos = NO_FRAME;
+    myTimer.stop();
+  }
+
+  /**
+   * Cancels the requested frame and remembers the following requests until {@link #resume()}. Should be called on the EDT.
+   */
+  void suspend() {
+    if (mySuspended) {
+      return;
+    }
+    mySuspended = true;
+    if (isFrameScheduled()) {
+      myFrameRequestedWhileSuspended = true;
+      myScheduledFrameNanos = NO_FRAME;
+      myTimer.stop();
+    }
+  }
+
+  /**
+   * Runs a frame if one was requested while suspended. Should be called on the EDT.
+   */
+  void resume() {
+    if (!mySuspended) {
+      return;
+    }
+    mySuspended = false;
+    if (myFrameRequestedWhileSuspended) {
+      myFrameRequestedWhileSuspended = false;
+      schedule(myLastFrameNanos + myFrameIntervalNanos);
+    }
+  }
+
+  boolean isSuspended() {
+    return mySuspended;
+  }
+
+  boolean isFrameScheduled() {
+    return myScheduledFrameNanos != NO_FRAME;
+  }
+
+  private void schedule(long frameNanos) {
+    if (mySuspended) {
+      myFrameRequestedWhileSuspended = true;
+      return;
+    }
+    if (myStopped || myScheduledFrameNanos != NO_FRAME && frameNanos - myScheduledFrameNanos >= 0) {
+      return;
+    }
+    myScheduledFrameNanos = frameNanos;
+    long delayMillis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, frameNanos - myNanoClock.getAsLong()));
+    myTimer.restart(delayMillis, this::runFrame);
+  }
+
+  private void runFrame() {
+    if (myStopped) {
+      return;
+    }
+    myScheduledFrameNanos = NO_FRAME;
+    myLastFrameNanos = myNanoClock.getAsLong();
+    myFrameAction.run();
+  }
+
+  /**
+   * A one-shot timer running its action on the EDT.
+   */
+  interface FrameTimer {
+    /**
+     * Runs the action once after the delay, cancelling the previously scheduled run.
+     */
+    void restart(long delayMillis, @NotNull Runnable action);
+
+    void stop();
+  }
+
+  private static final class SwingFrameTimer implements FrameTimer {
+    private final Timer myTimer;
+    private Runnable myAction;
+
+    SwingFrameTimer() {
+      myTimer = new Timer(0, e -> myAction.run());
+      myTimer.setRepeats(false);
+    }
+
+    @Override
+    public void restart(long delayMillis, @NotNull Runnable action) {
+      myAction = action;
+      myTimer.setInitialDelay((int)Math.min(Integer.MAX_VALUE, delayMillis));
+      myTimer.restart();
+    }
+
+    @Override
+    public void stop() {
+      myTimer.stop();
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package com.jediterm.terminal.ui;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timing of the frames painted by the terminal panel, to diagnose slow rendering.
+ * <p/>
+ * Keeps the times of the phases of the last frames, see {@link Phase}, and the counts of the rows and the runs drawn.
+ * The statistics are computed over this rolling window.
+ * The frames are recorded on the painting thread, the statistics can be read from any thread.
+ */
+public final class TerminalFrameStatistics {
+  public static final int DEFAULT_WINDOW_SIZE = 1000;
+
+  // the upper bounds of the frame time histogram buckets, in microseconds
+  private static final long[] HISTOGRAM_BOUNDS_MICROS = {500, 1000, 2000, 4000, 8000, 16000, 33000, 66000, Long.MAX_VALUE};
+
+  public enum Phase {
+    /**
+     * Waiting for the text buffer lock, e.g. while the emulator processes the output.
+     */
+    LOCK_WAIT,
+    /**
+     * Walking the lines of the text buffer and composing the frame from the cached row images.
+     */
+    MODEL_WALK,
+    BACKGROUND_FILL,
+    TEXT_DRAW,
+    /**
+     * Drawing over the rows, i.e. the cursor and the uncommitted input method text.
+     */
+    OVERLAYS
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final int myWindowSize;
+  // the rolling window, guarded by this
+  private final long[] myFrameNanos;
+  private final long[][] myPhaseNanos;
+  private final int[] myRowCounts;
+  private final int[] myRunCounts;
+  private final long[] myCompletionTimes;
+  private int myNextFrame;
+  private long myFrameCount;
+
+  // the frame being painted, accessed on the painting thread only
+  private long myFrameStart;
+  private final long[] myCurrentPhaseNanos = new long[PHASES.length];
+  private int myCurrentRowCount;
+  private int myCurrentRunCount;
+
+  public TerminalFrameStatistics() {
+    this(DEFAULT_WINDOW_SIZE);
+  }
+
+  public TerminalFrameStatistics(int windowSize) {
+    if (windowSize <= 0) {
+      throw new IllegalArgumentException("Window size should be positive: " + windowSize);
+    }
+    myWindowSize = windowSize;
+    myFrameNanos = new long[windowSize];
+    myPhaseNanos = new long[PHASES.length][windowSize];
+    myRowCounts = new int[windowSize];
+    myRunCounts = new int[windowSize];
+    myCompletionTimes = new long[windowSize];
+  }
+
+  void frameStarted() {
+    myFrameStart = System.nanoTime();
+    Arrays.fill(myCurrentPhaseNanos, 0);
+    myCurrentRowCount = 0;
+    myCurrentRunCount = 0;
+  }
+
+  void addPhaseNanos(@NotNull Phase phase, long nanos) {
+    myCurrentPhaseNanos[phase.ordinal()] += nanos;
+  }
+
+  /**
+   * @param nanos the time spent painting the rows, including drawing their backgrounds and text
+   */
+  void addRowsNanos(long nanos) {
+    long drawNanos = myCurrentPhaseNanos[Phase.BACKGROUND_FILL.ordinal()] + myCurrentPhaseNanos[Phase.TEXT_DRAW.ordinal()];
+    myCurrentPhaseNanos[Phase.MODEL_WALK.ordinal()] += Math.max(0, nanos - drawNanos);
+  }
+
+  void addRow(int runCount) {
+    myCurrentRowCount++;
+    myCurrentRunCount += runCount;
+  }
+
+  void frameCompleted() {
+    long now = System.nanoTime();
+    synchronized (this) {
+      int frame = myNextFrame;
+      myFrameNanos[frame] = now - myFrameStart;
+      for (int i = 0; i < PHASES.length; i++) {
+        myPhaseNanos[i][frame] = myCurrentPhaseNanos[i];
+      }
+      myRowCounts[frame] = myCurrentRowCount;
+      myRunCounts[frame] = myCurrentRunCount;
+      myCompletionTimes[frame] = now;
+      myNextFrame = (frame + 1) % myWindowSize;
+      myFrameCount++;
+    }
+  }
+
+  /**
+   * @return the count of the frames painted since the statistics were created or reset
+   */
+  public synchronized long getFrameCount() {
+    return myFrameCount;
+  }
+
+  public synchronized void reset() {
+    myNextFrame = 0;
+    myFrameCount = 0;
+  }
+
+  /**
+   * @return the count of the frames completed during the last second
+   */
+  public synchronized int getFramesPerSecond() {
+    long since = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+    int count = 0;
+    for (int i = 0; i < getWindowFrameCount(); i++) {
+      if (myCompletionTimes[i] - since > 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @param percentile from 0 to 100, e.g. 50 for the median or 99
+   * @return the frame time in the window, or 0 if no frames were painted
+   */
+  public synchronized long getFrameNanosPercentile(double percentile) {
+    return getPercentile(myFrameNanos, percentile);
+  }
+
+  public synchronized long getPhaseNanosPercentile(@NotNull Phase phase, double percentile) {
+    return getPercentile(myPhaseNanos[phase.ordinal()], percentile);
+  }
+
+  public synchronized double getAverageRowCount() {
+    return getAverage(myRowCounts);
+  }
+
+  public synchronized double getAverageRunCount() {
+    return getAverage(myRunCounts);
+  }
+
+  /**
+   * @return the frame time histogram, the phase times and the drawn rows and runs of the window as text,
+   * e.g. to attach to a bug report
+   */
+  public synchronized @NotNull String dump() {
+    int count = getWindowFrameCount();
+    StringBuilder result = new StringBuilder();
+    result.append(String.format(Locale.ROOT, "frames: %d (window %d), %d fps%n", myFrameCount, count, getFramesPerSecond()));
+    result.append(String.format(Locale.ROOT, "frame time: p50 %s, p90 %s, p99 %s, max %s%n",
+                                formatNanos(getFrameNanosPercentile(50)), formatNanos(getFrameNanosPercentile(90)),
+                                formatNanos(getFrameNanosPercentile(99)), formatNanos(getFrameNanosPercentile(100))));
+    for (Phase phase : PHASES) {
+      result.append(String.format(Locale.ROOT, "  %-16s p50 %s, p99 %s%n", phase.name().toLowerCase(Locale.ROOT),
+                                  formatNanos(getPhaseNanosPercentile(phase, 50)), formatNanos(getPhaseNanosPercentile(phase, 99))));
+    }
+    result.append(String.format(Locale.ROOT, "rows drawn: %.1f, runs drawn: %.1f per frame%n", getAverageRowCount(), getAverageRunCount()));
+    int[] buckets = new int[HISTOGRAM_BOUNDS_MICROS.length];
+    for (int i = 0; i < count; i++) {
+      long micros = TimeUnit.NANOSECONDS.toMicros(myFrameNanos[i]);
+      int bucket = 0;
+      while (micros >= HISTOGRAM_BOUNDS_MICROS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket]++;
+    }
+    long lowerBound = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      String range = HISTOGRAM_BOUNDS_MICROS[i] == Long.MAX_VALUE
+                     ? String.format(Locale.ROOT, ">= %.1f ms", lowerBound / 1000.0)
+                     : String.format(Locale.ROOT, "< %.1f ms", HISTOGRAM_BOUNDS_MICROS[i] / 1000.0);
+      result.append(String.format(Locale.ROOT, "  %-10s %d%n", range, buckets[i]));
+      lowerBound = HISTOGRAM_BOUNDS_MICROS[i];
+    }
+    return result.toString();
+  }
+
+  static @NotNull String formatNanos(long nanos) {
+    return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+  }
+
+  private int getWindowFrameCount() {
+    return (int)Math.min(myFrameCount, myWindowSize);
+  }
+
+  private long getPercentile(long @NotNull [] values, double percentile) {
+    int count = getWindowFrameCount();
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(values, count);
+    Arrays.sort(sorted);
+    int index = (int)Math.ceil(percentile / 100 * count) - 1;
+    return sorted[Math.max(0, Math.min(count - 1, index))];
+  }
+
+  private double getAverage(int @NotNull [] values) {
+    int count = getWindowFrameCount();
+    if (count == 0) {
+      return 0;
+    }
+    long sum = 0;
+    for (int i = 0; i < count; i++) {
+      sum += values[i];
+    }
+    return (double)sum / count;
+  }
+}
@@ -0,0 +1,108 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalSelection;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.SettingsProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Renders the lines of a terminal text buffer into images the same way the terminal panel paints them,
+ * including the cursor, the selection and the found patterns. Doesn't need a display, so it works
+ * with {@code -Djava.awt.headless=true}, e.g. for screenshots and visual regression tests on CI.
+ * <p/>
+ * Should be accessed from one thread at a time, the text buffer is locked while a frame is rendered.
+ */
+public final class TerminalImageRenderer {
+  private final TerminalTextBuffer myTextBuffer;
+  private final TerminalPanel myPanel;
+
+  public TerminalImageRenderer(@NotNull SettingsProvider settingsProvider,
+                               @NotNull TerminalTextBuffer textBuffer,
+                               @NotNull StyleState styleState) {
+    myTextBuffer = textBuffer;
+    myPanel = new TerminalPanel(settingsProvider, textBuffer, styleState);
+    myPanel.initForPaintingLines();
+  }
+
+  public void setCursorVisible(boolean cursorVisible) {
+    myPanel.setCursorVisible(cursorVisible);
+  }
+
+  /**
+   * @param x the zero-based column of the cursor
+   * @param y the one-based line of the cursor on the screen, as reported by the terminal
+   */
+  public void setCursor(int x, int y) {
+    myPanel.setCursor(x, y);
+  }
+
+  public void setSelection(@Nullable TerminalSelection selection) {
+    myPanel.setSelection(selection);
+  }
+
+  public void setFindResult(@Nullable SubstringFinder.FindResult findResult) {
+    myPanel.setFindResult(findResult);
+  }
+
+  /**
+   * @return the size of the image the given count of lines is rendered into
+   */
+  public @NotNull Dimension getImageSize(int lineCount) {
+    return new Dimension(myPanel.myCharSize.width * myTextBuffer.getWidth() + myPanel.getInsetX(),
+                         myPanel.myCharSize.height * lineCount);
+  }
+
+  /**
+   * @return the image of the screen lines
+   */
+  public @NotNull BufferedImage renderScreen() {
+    return render(0, myTextBuffer.getHeight());
+  }
+
+  /**
+   * @param startLine the first line to render, negative for the history lines
+   */
+  public @NotNull BufferedImage render(int startLine, int lineCount) {
+    Dimension size = getImageSize(lineCount);
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+    render(image, startLine, lineCount);
+    return image;
+  }
+
+  /**
+   * Renders the lines into an existing image, e.g. to render many frames without allocating an image for each.
+   *
+   * @param startLine the first line to render, negative for the history lines
+   */
+  public void render(@NotNull BufferedImage image, int startLine, int lineCount) {
+    if (lineCount <= 0) {
+      throw new IllegalArgumentException("Line count should be positive: " + lineCount);
+    }
+    Graphics2D gfx = image.createGraphics();
+    try {
+      myPanel.paintLines(gfx, startLine, lineCount);
+    }
+    finally {
+      gfx.dispose();
+    }
+  }
+
+  public static void writePng(@NotNull BufferedImage image, @NotNull OutputStream out) throws IOException {
+    if (!ImageIO.write(image, "png", out)) {
+      throw new IOException("No PNG image writer");
+    }
+  }
+
+  public void dispose() {
+    myPanel.dispose();
+  }
+}
@@ -0,0 +1,166 @@
+package com.jediterm.terminal.ui;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Draws frames on a dedicated render thread into offscreen images, so that painting on the EDT only copies
+ * the latest completed frame.
+ * <p/>
+ * The frames are double-buffered: the render thread draws into the back image and swaps it with the front one
+ * when the frame is complete, while the EDT copies the front image. Render requests arriving while a frame is drawn
+ * are coalesced into the next frame, which is drawn from the latest requested state.
+ *
+ * @param <S> the immutable state a frame is drawn from, captured by the thread requesting the frame,
+ *            so that the render thread doesn't read the state the requesting thread keeps changing
+ */
+final class TerminalOffscreenRenderer<S> {
+  private static final Logger LOG = LoggerFactory.getLogger(TerminalOffscreenRenderer.class);
+
+  interface FramePainter<S> {
+    /**
+     * Paints the frame of the given state in the user space, called on the render thread.
+     */
+    void paintFrame(@NotNull Graphics2D gfx, @NotNull S state);
+  }
+
+  private final FramePainter<S> myPainter;
+  private final Runnable myOnFrameCompleted;
+  private final ExecutorService myExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "JediTerm-render");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // the frame to draw next, null if none is requested
+  private final AtomicReference<FrameRequest<S>> myRequest = new AtomicReference<>();
+  private final Object myFrameLock = new Object();
+
+  // accessed by the render thread only
+  private @Nullable BufferedImage myBackImage;
+  // guarded by myFrameLock
+  private @Nullable BufferedImage myFrontImage;
+  private int myFrontWidth;
+  private int myFrontHeight;
+  private volatile long myLastRenderNanos;
+
+  /**
+   * @param onFrameCompleted is called on the render thread when a new frame can be painted
+   */
+  TerminalOffscreenRenderer(@NotNull FramePainter<S> painter, @NotNull Runnable onFrameCompleted) {
+    myPainter = painter;
+    myOnFrameCompleted = onFrameCompleted;
+  }
+
+  /**
+   * Requests drawing a frame of the given state and size. Can be called from any thread.
+   *
+   * @param scale the scale of the device the frame is painted on, e.g. 2 for HiDPI screens
+   */
+  void requestFrame(@NotNull S state, int width, int height, double scale) {
+    if (myRequest.getAndSet(new FrameRequest<>(state, width, height, scale)) == null) {
+      try {
+        myExecutor.execute(this::render);
+      }
+      catch (RejectedExecutionException ignored) {
+        // disposed
+      }
+    }
+  }
+
+  boolean hasFrame(int width, int height) {
+    synchronized (myFrameLock) {
+      return myFrontImage != null && myFrontWidth == width && myFrontHeight == height;
+    }
+  }
+
+  /**
+   * Copies the latest completed frame. Should be called on the EDT.
+   *
+   * @return false if there is no completed frame of the given size yet, e.g. after a resize,
+   * so the painted frame is stale or missing
+   */
+  boolean paintFrame(@NotNull Graphics2D gfx, int width, int height) {
+    synchronized (myFrameLock) {
+      BufferedImage image = myFrontImage;
+      if (image == null) {
+        return false;
+      }
+      gfx.drawImage(image, 0, 0, myFrontWidth, myFrontHeight, 0, 0, image.getWidth(), image.getHeight(), null);
+      return myFrontWidth == width && myFrontHeight == height;
+    }
+  }
+
+  /**
+   * @return the time the render thread spent drawing the last frame
+   */
+  long getLastRenderNanos() {
+    return myLastRenderNanos;
+  }
+
+  void dispose() {
+    myExecutor.shutdownNow();
+  }
+
+  private void render() {
+    FrameRequest<S> request = myRequest.getAndSet(null);
+    if (request == null) {
+      return;
+    }
+    int width = request.width;
+    int height = request.height;
+    double scale = request.scale;
+    int imageWidth = (int)Math.ceil(width * scale);
+    int imageHeight = (int)Math.ceil(height * scale);
+    if (imageWidth <= 0 || imageHeight <= 0) {
+      return;
+    }
+    long start = System.nanoTime();
+    BufferedImage image = myBackImage;
+    if (image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight) {
+      image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+    }
+    Graphics2D gfx = image.createGraphics();
+    try {
+      gfx.scale(scale, scale);
+      myPainter.paintFrame(gfx, request.state);
+    }
+    catch (Exception e) {
+      LOG.error("Error while rendering terminal frame", e);
+      return;
+    }
+    finally {
+      gfx.dispose();
+    }
+    synchronized (myFrameLock) {
+      myBackImage = myFrontImage;
+      myFrontImage = image;
+      myFrontWidth = width;
+      myFrontHeight = height;
+    }
+    myLastRenderNanos = System.nanoTime() - start;
+    myOnFrameCompleted.run();
+  }
+
+  private static final class FrameRequest<S> {
+    private final S state;
+    private final int width;
+    private final int height;
+    private final double scale;
+
+    private FrameRequest(@NotNull S state, int width, int height, double scale) {
+      this.state = state;
+      this.width = width;
+      this.height = height;
+      this.scale = scale;
+    }
+  }
+}
@@ -13,6 +13,7 @@ import com.jediterm.terminal.emulator.charset.CharacterSets;
 import com.jediterm.terminal.emulator.mouse.MouseFormat;
 import com.jediterm.terminal.emulator.mouse.MouseMode;
 import com.jediterm.terminal.emulator.mouse.TerminalMouseListener;
+import com.jediterm.terminal.jfr.PanelPaintEvent;
 import com.jediterm.terminal.model.*;
 import com.jediterm.terminal.model.hyperlinks.LinkInfo;
 import com.jediterm.terminal.model.hyperlinks.TextProcessing;
@@ -33,18 +34,23 @@ import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.font.TextHitInfo;
+import java.awt.geom.AffineTransform;
 import java.awt.im.InputMethodRequests;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
-import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.text.AttributedCharacterIterator;
 import java.text.BreakIterator;
 import java.text.CharacterIterator;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -65,6 +71,9 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   private int mySpaceBetweenLines = 0;
   protected final Dimension myCharSize = new Dimension();
   private boolean myMonospaced;
+  // whether a font places the simple chars exactly at the cell width, see drawSimpleChars
+  private final Map<Font, Boolean> myCellPitchFonts = new HashMap<>();
+  private volatile boolean mySimpleCharsFastPath = true;
   private TermSize myTermSize;
   private boolean myInitialSizeSyncDone = false;
 
@@ -100,13 +109,19 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   private TerminalActionProvider myNextActionProvider;
   private String myInputMethodUncommittedChars;
 
-  private Timer myRepaintTimer;
+  private TerminalFrameScheduler myFrameScheduler;
+  // applies the hyperlink filters to the lines written while the panel was hidden
+  private Executor myHyperlinkExecutor = ForkJoinPool.commonPool();
+  // accessed on the EDT only
+  private boolean myHidden;
   private final AtomicInteger scrollDy = new AtomicInteger(0);
   private final AtomicBoolean myHistoryBufferLineCountChanged = new AtomicBoolean(false);
   private final AtomicBoolean needRepaint = new AtomicBoolean(true);
 
   private int myMaxFPS = 50;
   private int myBlinkingPeriod = 500;
+  // whether the last painted frame has blinking text, accessed by the painting thread only
+  private boolean myBlinkingTextPainted;
   private TerminalCoordinates myCoordsAccessor;
 
   private SubstringFinder.FindResult myFindResult;
@@ -122,6 +137,30 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   private boolean myFillCharacterBackgroundIncludingLineSpacing;
   private @Nullable TextStyle myCachedSelectionColor;
   private @Nullable TextStyle myCachedFoundPatternColor;
+  // the caches and the state below are accessed by the painting thread only, i.e. the EDT or the render thread
+  private final TerminalColorCache myColorCache = new TerminalColorCache();
+  private final TerminalFontCache myFontCache = new TerminalFontCache();
+  // incremented when anything the row images depend on changes, besides the values validated by the row image cache
+  private int myRenderVersion;
+  private final TerminalRowImageCache myRowImageCache;
+  private int myPaintedTextLayoutVersion;
+  // the state of the frame being painted
+  private FrameState myFrame;
+  // incremented when the font metrics or the way the text is drawn change, the painting thread then clears the caches
+  // depending on them
+  private volatile int myTextLayoutVersion;
+  // draws the frames on a render thread if enabled, the painting on the EDT only copies them
+  private final @Nullable TerminalOffscreenRenderer<FrameState> myOffscreenRenderer;
+  // the scale of the device the panel was last painted on, accessed on the EDT
+  private double myDeviceScale = 1;
+  private volatile @Nullable TerminalFrameStatistics myFrameStatistics;
+  // registered on the text buffer by the constructor and removed on dispose
+  private final TerminalModelListener myModelListener = this::repaint;
+  private final TerminalHistoryBufferListener myHistoryBufferListener = () -> {
+    myHistoryBufferLineCountChanged.set(true);
+    requestFrame();
+  };
+  private final TerminalHyperlinkListener myHyperlinkListener = this::repaint;
 
   public TerminalPanel(@NotNull SettingsProvider settingsProvider, @NotNull TerminalTextBuffer terminalTextBuffer, @NotNull StyleState styleState) {
     mySettingsProvider = settingsProvider;
@@ -129,6 +168,14 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     myStyleState = styleState;
     myTermSize = new TermSize(terminalTextBuffer.getWidth(), terminalTextBuffer.getHeight());
     myMaxFPS = mySettingsProvider.maxRefreshRate();
+    myRowImageCache = new TerminalRowImageCache(mySettingsProvider.getRowImageCacheBudgetBytes());
+    if (mySettingsProvider.enableFrameStatistics() || mySettingsProvider.showFrameStatisticsOverlay()) {
+      myFrameStatistics = new TerminalFrameStatistics();
+    }
+    myOffscreenRenderer = mySettingsProvider.enableOffscreenRendering()
+                          ? new TerminalOffscreenRenderer<>((gfx, frame) -> paintFrame(gfx, frame, false),
+                                                            () -> SwingUtilities.invokeLater(this::doRepaint))
+                          : null;
     myCopyPasteHandler = createCopyPasteHandler();
 
     updateScrolling(true);
@@ -136,11 +183,11 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     enableEvents(AWTEvent.KEY_EVENT_MASK | AWTEvent.INPUT_METHOD_EVENT_MASK);
     enableInputMethods(true);
 
-    terminalTextBuffer.addModelListener(this::repaint);
-    terminalTextBuffer.addHistoryBufferListener(() -> myHistoryBufferLineCountChanged.set(true));
+    terminalTextBuffer.addModelListener(myModelListener);
+    terminalTextBuffer.addHistoryBufferListener(myHistoryBufferListener);
     TextProcessing textProcessing = terminalTextBuffer.getTextProcessing();
     if (textProcessing != null) {
-      textProcessing.addHyperlinkListener(this::repaint);
+      textProcessing.addHyperlinkListener(myHyperlinkListener);
     }
   }
 
@@ -148,6 +195,10 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     myTypeAheadManager = typeAheadManager;
   }
 
+  void setHyperlinkExecutor(@NotNull Executor hyperlinkExecutor) {
+    myHyperlinkExecutor = hyperlinkExecutor;
+  }
+
   @NotNull
   protected TerminalCopyPasteHandler createCopyPasteHandler() {
     return new DefaultTerminalCopyPasteHandler();
@@ -156,6 +207,15 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   @Override
   public void repaint() {
     needRepaint.set(true);
+    requestFrame();
+  }
+
+  private void requestFrame() {
+    // repaint() is called by the Swing constructor before the scheduler is created
+    TerminalFrameScheduler frameScheduler = myFrameScheduler;
+    if (frameScheduler != null) {
+      frameScheduler.requestFrame();
+    }
   }
 
   private void doRepaint() {
@@ -177,6 +237,15 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     establishFontMetrics();
   }
 
+  /**
+   * Prepares the panel to paint the lines with {@link #paintLines} only, the panel isn't shown then,
+   * so unlike {@link #init} it neither handles the input nor schedules the frames, see {@link TerminalImageRenderer}.
+   */
+  void initForPaintingLines() {
+    initFont();
+    myFillCharacterBackgroundIncludingLineSpacing = mySettingsProvider.shouldFillCharacterBackgroundIncludingLineSpacing();
+  }
+
   public void init(@NotNull JScrollBar scrollBar) {
     initFont();
 
@@ -347,7 +416,37 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
       repaint();
     });
 
-    createRepaintTimer();
+    createFrameScheduler();
+
+    if (mySettingsProvider.suspendWhileHidden()) {
+      addHierarchyListener(e -> {
+        if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+          setHidden(!isShowing());
+        }
+      });
+      setHidden(!isShowing());
+    }
+  }
+
+  /**
+   * Stops the frames and defers finding the hyperlinks while the panel is hidden, and repaints it once it is shown.
+   */
+  private void setHidden(boolean hidden) {
+    if (hidden == myHidden) {
+      return;
+    }
+    myHidden = hidden;
+    TextProcessing textProcessing = myTerminalTextBuffer.getTextProcessing();
+    if (textProcessing != null) {
+      textProcessing.setDeferred(hidden);
+    }
+    if (hidden) {
+      myFrameScheduler.suspend();
+    }
+    else {
+      myFrameScheduler.resume();
+      repaint();
+    }
   }
 
   private boolean isFollowLinkEvent(@NotNull MouseEvent e) {
@@ -436,12 +535,16 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     }
   }
 
-  private void createRepaintTimer() {
-    if (myRepaintTimer != null) {
-      myRepaintTimer.stop();
+  private void createFrameScheduler() {
+    if (myFrameScheduler != null) {
+      myFrameScheduler.stop();
     }
-    myRepaintTimer = new Timer(1000 / myMaxFPS, new WeakRedrawTimer(this));
-    myRepaintTimer.start();
+    myFrameScheduler = new TerminalFrameScheduler(myMaxFPS, this::onFrame);
+    if (myHidden) {
+      myFrameScheduler.suspend();
+    }
+    // pending scroll and repaint requests
+    myFrameScheduler.requestFrame();
   }
 
   public boolean isLocalMouseAction(MouseEvent e) {
@@ -494,33 +597,67 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     return null;
   }
 
-  static class WeakRedrawTimer implements ActionListener {
+  private void onFrame() {
+    if (myCursor.changeStateIfNeeded()) {
+      repaintCursor();
+    }
+    if (myTextBlinkingTracker.hasBlinkingCells() && myTextBlinkingTracker.updateState(mySettingsProvider)) {
+      myTextBlinkingTracker.processBlinkingRows((row, startColumn, endColumn) -> repaintCells(startColumn, row, endColumn - startColumn));
+    }
+    updateScrolling(false);
+    TextProcessing textProcessing = myTerminalTextBuffer.getTextProcessing();
+    if (textProcessing != null && textProcessing.hasDeferredHyperlinks()) {
+      // the lines written while the panel was hidden are shown
+      textProcessing.processDeferredHyperlinks(myClientScrollOrigin, myTermSize.getRows(), myHyperlinkExecutor);
+    }
+    if (needRepaint.getAndSet(false)) {
+      if (myOffscreenRenderer != null) {
+        myOffscreenRenderer.requestFrame(new FrameState(this), getWidth(), getHeight(), myDeviceScale);
+      }
+      else {
+        try {
+          doRepaint();
+        }
+        catch (Exception ex) {
+          LOG.error("Error while terminal panel redraw", ex);
+        }
+      }
+    }
+    scheduleBlinking();
+  }
 
-    private WeakReference<TerminalPanel> ref;
+  private void repaintCursor() {
+    int y = myCursor.getCoordY();
+    if (y >= 0 && y < myTermSize.getRows()) {
+      // the cursor can be on a double width char
+      repaintCells(myCursor.getCoordX(), y, 2);
+    }
+  }
 
-    public WeakRedrawTimer(TerminalPanel terminalPanel) {
-      this.ref = new WeakReference<TerminalPanel>(terminalPanel);
+  /**
+   * Repaints the cells of a row only, e.g. when the cursor or the text blinks.
+   */
+  private void repaintCells(int column, int row, int columns) {
+    if (myOffscreenRenderer != null) {
+      repaint(); // the frames are rendered as a whole
+      return;
     }
+    // the cursor outline and underline are drawn a few pixels over the cell bounds
+    super.repaint(column * myCharSize.width + getInsetX(), row * myCharSize.height,
+                  columns * myCharSize.width + 1, myCharSize.height + 3);
+  }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-      TerminalPanel terminalPanel = ref.get();
-      if (terminalPanel != null) {
-        terminalPanel.myCursor.changeStateIfNeeded();
-        terminalPanel.myTextBlinkingTracker.updateState(terminalPanel.mySettingsProvider, terminalPanel);
-        terminalPanel.updateScrolling(false);
-        if (terminalPanel.needRepaint.getAndSet(false)) {
-          try {
-            terminalPanel.doRepaint();
-          } catch (Exception ex) {
-            LOG.error("Error while terminal panel redraw", ex);
-          }
-        }
-      } else { // terminalPanel was garbage collected
-        Timer timer = (Timer) e.getSource();
-        timer.removeActionListener(this);
-        timer.stop();
-      }
+  /**
+   * Requests a frame for the next state change of the visible blinking cursor or text, if any.
+   */
+  private void scheduleBlinking() {
+    long currentTime = System.currentTimeMillis();
+    long nextBlinkTime = myCursor.getNextBlinkTime();
+    if (myTextBlinkingTracker.hasBlinkingCells()) {
+      nextBlinkTime = Math.min(nextBlinkTime, myTextBlinkingTracker.getNextStateChangeTime(mySettingsProvider, currentTime));
+    }
+    if (nextBlinkTime != Long.MAX_VALUE && myFrameScheduler != null) {
+      myFrameScheduler.requestFrameAfter(nextBlinkTime - currentTime);
     }
   }
 
@@ -713,6 +850,8 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     }
 
     myMonospaced = isMonospaced(fo);
+    // the char size and the line spacing may change with the same fonts
+    myTextLayoutVersion++;
     if (!myMonospaced) {
       LOG.info("WARNING: Font " + myNormalFont.getName() + " is non-monospaced");
     }
@@ -777,75 +916,93 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
 
   @Override
   public void paintComponent(final Graphics g) {
-    resetColorCache();
     final Graphics2D gfx = (Graphics2D) g;
+    if (myOffscreenRenderer != null) {
+      myDeviceScale = gfx.getTransform().getScaleX();
+      if (!myOffscreenRenderer.hasFrame(getWidth(), getHeight())) {
+        // show the stale frame over the background until the frame of the current size is drawn
+        gfx.setColor(getBackground());
+        gfx.fillRect(0, 0, getWidth(), getHeight());
+        myOffscreenRenderer.requestFrame(new FrameState(this), getWidth(), getHeight(), myDeviceScale);
+      }
+      myOffscreenRenderer.paintFrame(gfx, getWidth(), getHeight());
+      return;
+    }
+    myTerminalTextBuffer.lock();
+    try {
+      // update myClientScrollOrigin as scrollArea might have been invoked after the last frame
+      updateScrolling(false);
+    }
+    finally {
+      myTerminalTextBuffer.unlock();
+    }
+    paintFrame(gfx, new FrameState(this), true);
+  }
+
+  /**
+   * Paints the whole panel, on the EDT or on the render thread of the offscreen renderer.
+   * Swing state, e.g. the scroll model, is updated on the EDT only.
+   *
+   * @param frame the state of the panel captured on the EDT
+   */
+  private void paintFrame(@NotNull Graphics2D gfx, @NotNull FrameState frame, boolean onEdt) {
+    myFrame = frame;
+    PanelPaintEvent paintEvent = new PanelPaintEvent();
+    paintEvent.begin();
+    int paintedRowCount = 0;
+    TerminalFrameStatistics statistics = myFrameStatistics;
+    if (statistics != null) {
+      statistics.frameStarted();
+    }
+    resetColorCache();
+    validateColorCache();
 
     setupAntialiasing(gfx);
+    int textLayoutVersion = myTextLayoutVersion;
+    if (myPaintedTextLayoutVersion != textLayoutVersion) {
+      myPaintedTextLayoutVersion = textLayoutVersion;
+      myCellPitchFonts.clear();
+      myFontCache.invalidate();
+      myRenderVersion++;
+    }
+    if (!myFontCache.validate(myNormalFont, myBoldFont, myItalicFont, myBoldItalicFont,
+                              mySettingsProvider.DECCompatibilityMode(), gfx.getFontRenderContext())) {
+      myRenderVersion++;
+    }
 
     gfx.setColor(getBackground());
 
-    gfx.fillRect(0, 0, getWidth(), getHeight());
+    gfx.fillRect(0, 0, frame.width, frame.height);
 
     try {
+      long lockStart = statistics != null ? System.nanoTime() : 0;
       myTerminalTextBuffer.lock();
-      // update myClientScrollOrigin as scrollArea might have been invoked after last WeakRedrawTimer action
-      updateScrolling(false);
-      myTerminalTextBuffer.processHistoryAndScreenLines(myClientScrollOrigin, myTermSize.getRows(), new StyledTextConsumer() {
-        final int columnCount = getColumnCount();
-
-        @Override
-        public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
-          int row = y - startRow;
-          drawCharacters(x, row, style, characters, gfx, myFillCharacterBackgroundIncludingLineSpacing);
-
-          if (myFindResult != null) {
-            List<Pair<Integer, Integer>> ranges = myFindResult.getRanges(characters);
-            if (ranges != null && !ranges.isEmpty()) {
-              TextStyle foundPatternStyle = getFoundPattern(style);
-              for (Pair<Integer, Integer> range : ranges) {
-                CharBuffer foundPatternChars = characters.subBuffer(range);
-                drawCharacters(x + range.getFirst(), row, foundPatternStyle, foundPatternChars, gfx);
-              }
-            }
-          }
-
-          if (mySelection != null) {
-            Pair<Integer, Integer> interval = mySelection.intersect(x, row + myClientScrollOrigin, characters.length());
-            if (interval != null) {
-              TextStyle selectionStyle = getSelectionStyle(style);
-              CharBuffer selectionChars = characters.subBuffer(interval.getFirst() - x, interval.getSecond());
-
-              drawCharacters(interval.getFirst(), row, selectionStyle, selectionChars, gfx);
-            }
-          }
-        }
-
-        @Override
-        public void consumeNul(int x, int y, int nulIndex, TextStyle style, CharBuffer characters, int startRow) {
-          int row = y - startRow;
-          if (mySelection != null) {
-            // compute intersection with all NUL areas, non-breaking
-            Pair<Integer, Integer> interval = mySelection.intersect(nulIndex, row + myClientScrollOrigin, columnCount - nulIndex);
-            if (interval != null) {
-              TextStyle selectionStyle = getSelectionStyle(style);
-              drawCharacters(x, row, selectionStyle, characters, gfx);
-              return;
-            }
-          }
-          drawCharacters(x, row, style, characters, gfx);
-        }
-
-        @Override
-        public void consumeQueue(int x, int y, int nulIndex, int startRow) {
-          if (x < columnCount) {
-            consumeNul(x, y, nulIndex, TextStyle.EMPTY, new CharBuffer(CharUtils.EMPTY_CHAR, columnCount - x), startRow);
-          }
-        }
-      });
-
-      int cursorY = myCursor.getCoordY();
-      if (cursorY < getRowCount() && !hasUncommittedChars()) {
-        int cursorX = myCursor.getCoordX();
+      if (statistics != null) {
+        statistics.addPhaseNanos(TerminalFrameStatistics.Phase.LOCK_WAIT, System.nanoTime() - lockStart);
+      }
+      myBlinkingTextPainted = false;
+      // only the rows in the clip are painted, e.g. when the blinking text is repainted
+      Rectangle clip = gfx.getClipBounds();
+      int rowCount = frame.termSize.getRows();
+      int rowHeight = Math.max(1, myCharSize.height);
+      int firstRow = clip != null ? Math.max(0, clip.y / rowHeight) : 0;
+      int lastRow = clip != null ? Math.min(rowCount - 1, (clip.y + clip.height - 1) / rowHeight) : rowCount - 1;
+      myTextBlinkingTracker.clearBlinkingCells(firstRow, lastRow + 1, rowCount);
+      paintedRowCount = Math.max(0, lastRow - firstRow + 1);
+      RowPainter rowPainter = new RowPainter(gfx, statistics);
+      long rowsStart = statistics != null ? System.nanoTime() : 0;
+      if (!paintCachedRows(gfx, rowPainter, firstRow, lastRow) && firstRow <= lastRow) {
+        rowPainter.firstRow = firstRow;
+        myTerminalTextBuffer.processHistoryAndScreenLines(frame.clientScrollOrigin + firstRow, lastRow - firstRow + 1, rowPainter);
+      }
+      long overlaysStart = statistics != null ? System.nanoTime() : 0;
+      if (statistics != null) {
+        statistics.addRowsNanos(overlaysStart - rowsStart);
+      }
+
+      int cursorY = frame.cursorY;
+      if (cursorY < rowCount && !frame.hasUncommittedChars()) {
+        int cursorX = frame.cursorX;
         Pair<Character, TextStyle> sc = myTerminalTextBuffer.getStyledCharAt(cursorX, cursorY);
         String cursorChar = "" + sc.getFirst();
         if (Character.isHighSurrogate(sc.getFirst())) {
@@ -853,7 +1010,7 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
         }
         TextStyle normalStyle = sc.getSecond() != null ? sc.getSecond() : myStyleState.getCurrent();
         TextStyle cursorStyle;
-        if (inSelection(cursorX, cursorY)) {
+        if (frame.selection != null && frame.selection.contains(new Point(cursorX, cursorY))) {
           cursorStyle = getSelectionStyle(normalStyle);
         }
         else {
@@ -861,13 +1018,439 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
         }
         myCursor.drawCursor(cursorChar, gfx, cursorStyle);
       }
+      if (statistics != null) {
+        statistics.addPhaseNanos(TerminalFrameStatistics.Phase.OVERLAYS, System.nanoTime() - overlaysStart);
+      }
     } finally {
       myTerminalTextBuffer.unlock();
     }
     resetColorCache();
+    long inputMethodStart = statistics != null ? System.nanoTime() : 0;
     drawInputMethodUncommitedChars(gfx);
+    if (statistics != null) {
+      statistics.addPhaseNanos(TerminalFrameStatistics.Phase.OVERLAYS, System.nanoTime() - inputMethodStart);
+    }
+
+    drawMargins(gfx, frame.width, frame.height);
+    if (statistics != null) {
+      statistics.frameCompleted();
+      if (mySettingsProvider.showFrameStatisticsOverlay()) {
+        drawFrameStatistics(gfx, statistics);
+      }
+    }
+    paintEvent.end();
+    if (paintEvent.shouldCommit()) {
+      paintEvent.rows = paintedRowCount;
+      paintEvent.offscreen = !onEdt;
+      paintEvent.commit();
+    }
+    if (onEdt) {
+      scheduleBlinking();
+    }
+    else if (myOffscreenRenderer != null) {
+      SwingUtilities.invokeLater(this::scheduleBlinking);
+    }
+  }
+
+  /**
+   * Draws the frame rate and the frame time percentiles in the top right corner.
+   */
+  private void drawFrameStatistics(@NotNull Graphics2D gfx, @NotNull TerminalFrameStatistics statistics) {
+    String text = String.format(Locale.ROOT, "%d fps  p50 %s  p99 %s", statistics.getFramesPerSecond(),
+                                TerminalFrameStatistics.formatNanos(statistics.getFrameNanosPercentile(50)),
+                                TerminalFrameStatistics.formatNanos(statistics.getFrameNanosPercentile(99)));
+    gfx.setFont(myNormalFont);
+    FontMetrics fontMetrics = gfx.getFontMetrics();
+    int width = fontMetrics.stringWidth(text) + 8;
+    int height = fontMetrics.getHeight() + 4;
+    int x = myFrame.width - width - 4;
+    gfx.setColor(new java.awt.Color(0, 0, 0, 160));
+    gfx.fillRect(x, 4, width, height);
+    gfx.setColor(java.awt.Color.WHITE);
+    gfx.drawString(text, x + 4, 6 + fontMetrics.getAscent());
+  }
+
+  /**
+   * @return the timing of the painted frames, or null if it's not recorded
+   */
+  public @Nullable TerminalFrameStatistics getFrameStatistics() {
+    return myFrameStatistics;
+  }
 
-    drawMargins(gfx, getWidth(), getHeight());
+  /**
+   * Starts or stops recording the timing of the painted frames, e.g. when the user reports slow rendering.
+   */
+  public void setFrameStatisticsEnabled(boolean enabled) {
+    if (enabled != (myFrameStatistics != null)) {
+      myFrameStatistics = enabled ? new TerminalFrameStatistics() : null;
+    }
+  }
+
+  /**
+   * Paints the given lines regardless of the scroll position and the size of the panel,
+   * the panel isn't shown then, see {@link TerminalImageRenderer}.
+   *
+   * @param startLine the first line to paint, negative for the history lines
+   */
+  void paintLines(@NotNull Graphics2D gfx, int startLine, int lineCount) {
+    myTermSize = new TermSize(myTerminalTextBuffer.getWidth(), lineCount);
+    myClientScrollOrigin = startLine;
+    setSize(getPixelWidth(), getPixelHeight());
+    paintFrame(gfx, new FrameState(this), false);
+  }
+
+  /**
+   * Paints a row in two passes once all its runs are consumed: first the backgrounds, merging adjacent runs
+   * with the same resolved background into one fill, then the text of the runs.
+   * The selection and the found patterns split the runs, so that every cell is filled once.
+   */
+  private class RowPainter implements StyledTextConsumer {
+    private final int columnCount = myFrame.termSize.getColumns();
+    private final @Nullable TerminalFrameStatistics myStatistics;
+    private Graphics2D gfx;
+    // the row of the first consumed line, as the text buffer counts the rows from it
+    private int firstRow;
+    // the runs of the current row, reused between the rows
+    private RowRun[] myRuns = new RowRun[16];
+    private int myRunCount;
+
+    RowPainter(@NotNull Graphics2D gfx, @Nullable TerminalFrameStatistics statistics) {
+      this.gfx = gfx;
+      myStatistics = statistics;
+    }
+
+    @Override
+    public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+      int row = firstRow + y - startRow;
+      SubstringFinder.FindResult findResult = myFrame.findResult;
+      TerminalSelection frameSelection = myFrame.selection;
+      List<Pair<Integer, Integer>> foundRanges = findResult != null ? findResult.getRanges(characters) : null;
+      Pair<Integer, Integer> selection = frameSelection != null
+                                         ? frameSelection.intersect(x, row + myFrame.clientScrollOrigin, characters.length())
+                                         : null;
+      if ((foundRanges == null || foundRanges.isEmpty()) && selection == null) {
+        addRun(x, row, style, TerminalColorCache.NORMAL, characters, myFillCharacterBackgroundIncludingLineSpacing);
+        return;
+      }
+      int length = characters.length();
+      int runStart = 0;
+      int runState = getOverlayState(0, x, foundRanges, selection);
+      for (int i = 1; i <= length; i++) {
+        int state = i < length ? getOverlayState(i, x, foundRanges, selection) : -1;
+        if (state != runState) {
+          addRun(x + runStart, row, style, runState, characters.subBuffer(runStart, i - runStart),
+                 runState != TerminalColorCache.NORMAL || myFillCharacterBackgroundIncludingLineSpacing);
+          runStart = i;
+          runState = state;
+        }
+      }
+    }
+
+    @Override
+    public void consumeNul(int x, int y, int nulIndex, TextStyle style, CharBuffer characters, int startRow) {
+      int row = firstRow + y - startRow;
+      addRun(x, row, style, isNulSelected(nulIndex, row) ? TerminalColorCache.SELECTED : TerminalColorCache.NORMAL,
+             characters, true);
+    }
+
+    @Override
+    public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+      int row = firstRow + y - startRow;
+      if (x < columnCount) {
+        // the padding up to the right edge has no text to draw
+        RowRun run = nextRun();
+        run.set(x, columnCount - x, TextStyle.EMPTY,
+                resolveRunState(TextStyle.EMPTY, isNulSelected(nulIndex, row) ? TerminalColorCache.SELECTED : TerminalColorCache.NORMAL),
+                null, true);
+      }
+      paintRuns(row);
+    }
+
+    private boolean isNulSelected(int nulIndex, int row) {
+      // compute intersection with all NUL areas, non-breaking
+      TerminalSelection selection = myFrame.selection;
+      return selection != null && selection.intersect(nulIndex, row + myFrame.clientScrollOrigin, columnCount - nulIndex) != null;
+    }
+
+    private int getOverlayState(int offset, int x, @Nullable List<Pair<Integer, Integer>> foundRanges,
+                                @Nullable Pair<Integer, Integer> selection) {
+      int column = x + offset;
+      if (selection != null && column >= selection.getFirst() && column < selection.getFirst() + selection.getSecond()) {
+        return TerminalColorCache.SELECTED;
+      }
+      if (foundRanges != null) {
+        for (Pair<Integer, Integer> range : foundRanges) {
+          if (offset >= range.getFirst() && offset < range.getSecond()) {
+            return TerminalColorCache.FOUND_PATTERN;
+          }
+        }
+      }
+      return TerminalColorCache.NORMAL;
+    }
+
+    private void addRun(int x, int row, @NotNull TextStyle style, int colorState, @NotNull CharBuffer characters,
+                        boolean includeSpaceBetweenLines) {
+      int cells = CharUtils.getTextLengthDoubleWidthAware(characters.getBuf(), characters.getStart(), characters.length(),
+                                                          mySettingsProvider.ambiguousCharsAreDoubleWidth());
+      if (BlinkingTextTracker.isBlinking(style)) {
+        myTextBlinkingTracker.addBlinkingCells(row, x, cells);
+      }
+      nextRun().set(x, cells, style, resolveRunState(style, colorState), characters, includeSpaceBetweenLines);
+    }
+
+    private int resolveRunState(@NotNull TextStyle style, int colorState) {
+      if (BlinkingTextTracker.isBlinking(style)) {
+        myBlinkingTextPainted = true;
+        if (myTextBlinkingTracker.shouldBlinkNow(style)) {
+          colorState |= TerminalColorCache.BLINK_INVERTED;
+        }
+      }
+      return colorState;
+    }
+
+    private @NotNull RowRun nextRun() {
+      if (myRunCount == myRuns.length) {
+        myRuns = Arrays.copyOf(myRuns, myRuns.length * 2);
+      }
+      RowRun run = myRuns[myRunCount];
+      if (run == null) {
+        run = new RowRun();
+        myRuns[myRunCount] = run;
+      }
+      myRunCount++;
+      return run;
+    }
+
+    private void paintRuns(int row) {
+      long fillStart = myStatistics != null ? System.nanoTime() : 0;
+      for (int i = 0; i < myRunCount; i++) {
+        myRuns[i].colors = resolveColors(myRuns[i].style, myRuns[i].colorState);
+      }
+      int i = 0;
+      while (i < myRunCount) {
+        RowRun first = myRuns[i];
+        int endColumn = first.column + first.cells;
+        int j = i + 1;
+        while (j < myRunCount && myRuns[j].column == endColumn && myRuns[j].includeSpaceBetweenLines == first.includeSpaceBetweenLines &&
+               myRuns[j].colors.background.equals(first.colors.background)) {
+          endColumn += myRuns[j].cells;
+          j++;
+        }
+        fillBackground(first.column, row, endColumn - first.column, first.colors.background, gfx, first.includeSpaceBetweenLines);
+        i = j;
+      }
+      long textStart = myStatistics != null ? System.nanoTime() : 0;
+      for (i = 0; i < myRunCount; i++) {
+        RowRun run = myRuns[i];
+        if (run.text != null) {
+          drawText(run.column, row, run.style, run.colors, run.text, gfx);
+        }
+        run.set(0, 0, null, 0, null, false);
+      }
+      if (myStatistics != null) {
+        myStatistics.addPhaseNanos(TerminalFrameStatistics.Phase.BACKGROUND_FILL, textStart - fillStart);
+        myStatistics.addPhaseNanos(TerminalFrameStatistics.Phase.TEXT_DRAW, System.nanoTime() - textStart);
+        myStatistics.addRow(myRunCount);
+      }
+      myRunCount = 0;
+    }
+  }
+
+  private static final class RowRun {
+    int column;
+    int cells;
+    TextStyle style;
+    int colorState;
+    @Nullable CharBuffer text;
+    boolean includeSpaceBetweenLines;
+    TerminalColorCache.ResolvedColors colors;
+
+    void set(int column, int cells, TextStyle style, int colorState, @Nullable CharBuffer text, boolean includeSpaceBetweenLines) {
+      this.column = column;
+      this.cells = cells;
+      this.style = style;
+      this.colorState = colorState;
+      this.text = text;
+      this.includeSpaceBetweenLines = includeSpaceBetweenLines;
+      this.colors = null;
+    }
+  }
+
+  /**
+   * The state of the panel a frame is painted from. It's captured on the EDT, so that the render thread doesn't read
+   * the fields the EDT keeps changing, e.g. the selection or the scroll position, while painting the frame.
+   */
+  private static final class FrameState {
+    private final int width;
+    private final int height;
+    private final @NotNull TermSize termSize;
+    private final int clientScrollOrigin;
+    private final @Nullable TerminalSelection selection;
+    private final @Nullable SubstringFinder.FindResult findResult;
+    private final @Nullable LinkInfo hoveredHyperlink;
+    private final int cursorX;
+    private final int cursorY;
+    private final @NotNull TerminalCursorState cursorState;
+    private final @NotNull CursorShape cursorShape;
+    private final @Nullable String inputMethodUncommittedChars;
+
+    private FrameState(@NotNull TerminalPanel panel) {
+      width = panel.getWidth();
+      height = panel.getHeight();
+      termSize = panel.myTermSize;
+      clientScrollOrigin = panel.myClientScrollOrigin;
+      selection = copySelection(panel.mySelection);
+      findResult = panel.myFindResult;
+      hoveredHyperlink = panel.myHoveredHyperlink;
+      cursorX = panel.myCursor.getCoordX();
+      cursorY = panel.myCursor.getCoordY();
+      cursorState = panel.myCursor.computeCursorState();
+      cursorShape = panel.myCursor.getEffectiveShape();
+      inputMethodUncommittedChars = panel.myInputMethodUncommittedChars;
+    }
+
+    private boolean hasUncommittedChars() {
+      return inputMethodUncommittedChars != null && inputMethodUncommittedChars.length() > 0;
+    }
+
+    private static @Nullable TerminalSelection copySelection(@Nullable TerminalSelection selection) {
+      // the end of the selection is updated while dragging
+      if (selection == null) {
+        return null;
+      }
+      Point end = selection.getEnd();
+      return end != null ? new TerminalSelection(new Point(selection.getStart()), new Point(end))
+                         : new TerminalSelection(new Point(selection.getStart()));
+    }
+  }
+
+  /**
+   * Composes the rows from the cached row images, drawing the missing rows into new images.
+   * Should be called with the text buffer locked.
+   *
+   * @return false if the row images can't be used with the graphics, so the rows should be drawn directly
+   */
+  private boolean paintCachedRows(@NotNull Graphics2D gfx, @NotNull RowPainter rowPainter, int firstRow, int lastRow) {
+    AffineTransform transform = gfx.getTransform();
+    double scale = transform.getScaleX();
+    if (!myRowImageCache.isEnabled()) {
+      // the budget was set to 0 since the last frame
+      myRowImageCache.invalidate();
+      return false;
+    }
+    // the row images are copied pixel by pixel, fractional scales would blur them
+    if (transform.getShearX() != 0 || transform.getShearY() != 0 ||
+        scale != transform.getScaleY() || scale < 1 || scale != Math.rint(scale)) {
+      return false;
+    }
+    myRowImageCache.validate(myRenderVersion, myFrame.width, myFrame.termSize.getColumns(), scale,
+                             gfx.getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING),
+                             myFillCharacterBackgroundIncludingLineSpacing, mySettingsProvider.ambiguousCharsAreDoubleWidth());
+
+    int historyLinesCount = myTerminalTextBuffer.getHistoryLinesCount();
+    int screenLinesCount = myTerminalTextBuffer.getScreenLinesCount();
+    int rowHeight = myCharSize.height;
+    int imageWidth = (int)(myFrame.width * scale);
+    int imageHeight = (int)(rowHeight * scale);
+    if (imageWidth <= 0 || imageHeight <= 0) {
+      return false;
+    }
+    // if the visible rows don't fit, every frame would evict the images drawn for the previous one
+    if ((long)(lastRow - firstRow + 1) * imageWidth * imageHeight * Integer.BYTES > myRowImageCache.getBudgetBytes()) {
+      return false;
+    }
+    for (int row = firstRow; row <= lastRow; row++) {
+      int lineIndex = myFrame.clientScrollOrigin + row;
+      if (lineIndex < -historyLinesCount || lineIndex >= screenLinesCount) {
+        continue; // no line, the background is already painted
+      }
+      TerminalLine line = myTerminalTextBuffer.getLine(lineIndex);
+      long overlay = getRowOverlay(row, line);
+      int contentVersion = line.getContentVersion();
+      BufferedImage image = myRowImageCache.get(line, contentVersion, overlay);
+      if (image == null) {
+        image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D rowGfx = image.createGraphics();
+        boolean blinkingTextPainted = myBlinkingTextPainted;
+        myBlinkingTextPainted = false;
+        try {
+          rowGfx.setRenderingHints(gfx.getRenderingHints());
+          rowGfx.scale(scale, scale);
+          rowGfx.setColor(getBackground());
+          rowGfx.fillRect(0, 0, myFrame.width, rowHeight);
+          rowGfx.translate(0, -row * rowHeight);
+          rowPainter.gfx = rowGfx;
+          line.process(row, rowPainter, 0);
+        }
+        finally {
+          rowPainter.gfx = gfx;
+          rowGfx.dispose();
+        }
+        // the blinking text changes without changing the line
+        if (!myBlinkingTextPainted) {
+          myRowImageCache.put(line, contentVersion, overlay, image);
+        }
+        myBlinkingTextPainted |= blinkingTextPainted;
+      }
+      int y = row * rowHeight;
+      gfx.drawImage(image, 0, y, myFrame.width, y + rowHeight, 0, 0, imageWidth, imageHeight, null);
+    }
+    return true;
+  }
+
+  /**
+   * Identifies what is drawn over the text of the row: the selected columns, the found patterns and the hovered
+   * hyperlink. Only the rows whose overlays change are drawn again, e.g. when the find result is updated.
+   *
+   * @return the selected columns of the row, or -1 if the row is not selected, mixed with the found ranges
+   * and the hovered hyperlink entries of the line if any
+   */
+  private long getRowOverlay(int row, @NotNull TerminalLine line) {
+    long overlay = -1;
+    TerminalSelection selection = myFrame.selection;
+    if (selection != null) {
+      Pair<Integer, Integer> interval = selection.intersect(0, row + myFrame.clientScrollOrigin, myFrame.termSize.getColumns());
+      if (interval != null) {
+        overlay = ((long)interval.getFirst() << 32) | interval.getSecond();
+      }
+    }
+    SubstringFinder.FindResult findResult = myFrame.findResult;
+    if (findResult == null && myFrame.hoveredHyperlink == null) {
+      return overlay;
+    }
+    int entryIndex = 0;
+    for (TerminalLine.TextEntry entry : line.getEntries()) {
+      List<Pair<Integer, Integer>> foundRanges = findResult != null ? findResult.getRanges(entry.getText()) : null;
+      if (foundRanges != null) {
+        for (Pair<Integer, Integer> range : foundRanges) {
+          overlay = mixOverlay(mixOverlay(mixOverlay(overlay, entryIndex), range.getFirst()), range.getSecond());
+        }
+      }
+      if (entry.getStyle() instanceof HyperlinkStyle && isHoveredHyperlink((HyperlinkStyle)entry.getStyle())) {
+        overlay = mixOverlay(overlay, ~entryIndex);
+      }
+      entryIndex++;
+    }
+    return overlay;
+  }
+
+  private static long mixOverlay(long overlay, int value) {
+    // the finalizer of MurmurHash3, so that different overlays hardly ever collide
+    long hash = (overlay ^ value) * 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+
+  @Nullable TerminalOffscreenRenderer getOffscreenRenderer() {
+    return myOffscreenRenderer;
+  }
+
+  /**
+   * @return the cache of the rendered rows, e.g. to tune its budget by its hit rate
+   */
+  public @NotNull TerminalRowImageCache getRowImageCache() {
+    return myRowImageCache;
   }
 
   private void resetColorCache() {
@@ -875,6 +1458,17 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     myCachedFoundPatternColor = null;
   }
 
+  /**
+   * Clears the resolved colors if the colors they depend on were changed in the settings.
+   */
+  private void validateColorCache() {
+    if (!myColorCache.validate(getPalette(), mySettingsProvider.getDefaultForeground(), mySettingsProvider.getDefaultBackground(),
+                               getDefaultStyle(), getSelectionColor(), getFoundPatternColor(),
+                               mySettingsProvider.useInverseSelectionColor())) {
+      myRenderVersion++;
+    }
+  }
+
   @NotNull
   private TextStyle getSelectionStyle(@NotNull TextStyle style) {
     if (mySettingsProvider.useInverseSelectionColor()) {
@@ -915,14 +1509,15 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   }
 
   private void drawInputMethodUncommitedChars(Graphics2D gfx) {
-    if (hasUncommittedChars()) {
-      int xCoord = (myCursor.getCoordX() + 1) * myCharSize.width + getInsetX();
+    String uncommittedChars = myFrame.inputMethodUncommittedChars;
+    if (myFrame.hasUncommittedChars()) {
+      int xCoord = (myFrame.cursorX + 1) * myCharSize.width + getInsetX();
 
-      int y = myCursor.getCoordY() + 1;
+      int y = myFrame.cursorY + 1;
 
       int yCoord = y * myCharSize.height - 3;
 
-      int len = (myInputMethodUncommittedChars.length()) * myCharSize.width;
+      int len = (uncommittedChars.length()) * myCharSize.width;
 
       gfx.setColor(getBackground());
       gfx.fillRect(xCoord, (y - 1) * myCharSize.height - 3, len, myCharSize.height);
@@ -930,7 +1525,7 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
       gfx.setColor(getForeground());
       gfx.setFont(myNormalFont);
 
-      gfx.drawString(myInputMethodUncommittedChars, xCoord, yCoord);
+      gfx.drawString(uncommittedChars, xCoord, yCoord);
       Stroke saved = gfx.getStroke();
       BasicStroke dotted = new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{0, 2, 0, 2}, 0);
       gfx.setStroke(dotted);
@@ -944,10 +1539,6 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     return myInputMethodUncommittedChars != null && myInputMethodUncommittedChars.length() > 0;
   }
 
-  private boolean inSelection(int x, int y) {
-    return mySelection != null && mySelection.contains(new Point(x, y));
-  }
-
   @Override
   public void processKeyEvent(final KeyEvent e) {
     handleKeyEvent(e);
@@ -972,6 +1563,10 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     updateSelection(mySelection);
   }
 
+  void setSelection(@Nullable TerminalSelection selection) {
+    updateSelection(selection);
+  }
+
   private void updateSelection(@Nullable TerminalSelection selection) {
     mySelection = selection;
     for (TerminalSelectionChangesListener selectionListener : selectionChangesListeners) {
@@ -1174,21 +1769,37 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
       repaint();
     }
 
+    /**
+     * @return the time the cursor should change its blinking state at, or {@code Long.MAX_VALUE} if it doesn't blink,
+     * e.g. when the panel is not focused or the cursor is scrolled out
+     */
+    long getNextBlinkTime() {
+      int y = getCoordY();
+      if (!isBlinking() || !myShouldDrawCursor || !isFocusOwner() || y < 0 || y >= myTermSize.getRows()) {
+        return Long.MAX_VALUE;
+      }
+      return myLastCursorChange + getBlinkingPeriod() + 1;
+    }
+
     private boolean cursorShouldChangeBlinkState(long currentTime) {
       return currentTime - myLastCursorChange > getBlinkingPeriod();
     }
 
-    public void changeStateIfNeeded() {
+    /**
+     * @return true if the cursor blinked, so its cell should be repainted
+     */
+    public boolean changeStateIfNeeded() {
       if (!isFocusOwner()) {
-        return;
+        return false;
       }
       long currentTime = System.currentTimeMillis();
       if (cursorShouldChangeBlinkState(currentTime)) {
         myCursorIsShown = !myCursorIsShown;
         myLastCursorChange = currentTime;
         myCursorHasChanged = false;
-        repaint();
+        return true;
       }
+      return false;
     }
 
     private TerminalCursorState computeBlinkingState() {
@@ -1208,18 +1819,22 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
       return computeBlinkingState();
     }
 
+    /**
+     * Draws the cursor of the frame being painted, see {@link FrameState}.
+     */
     void drawCursor(String c, Graphics2D gfx, TextStyle style) {
-      TerminalCursorState state = computeCursorState();
+      FrameState frame = myFrame;
+      TerminalCursorState state = frame.cursorState;
 
       // hidden: do nothing
       if (state == TerminalCursorState.HIDDEN) {
         return;
       }
 
-      final int x = getCoordX();
-      final int y = getCoordY();
+      final int x = frame.cursorX;
+      final int y = frame.cursorY;
       // Outside bounds of window: do nothing
-      if (y < 0 || y >= myTermSize.getRows()) {
+      if (y < 0 || y >= frame.termSize.getRows()) {
         return;
       }
 
@@ -1227,21 +1842,20 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
       int xCoord = x * myCharSize.width + getInsetX();
       int yCoord = y * myCharSize.height;
       int textLength = CharUtils.getTextLengthDoubleWidthAware(buf.getBuf(), buf.getStart(), buf.length(), mySettingsProvider.ambiguousCharsAreDoubleWidth());
-      int height = Math.min(myCharSize.height, getHeight() - yCoord);
-      int width = Math.min(textLength * TerminalPanel.this.myCharSize.width, TerminalPanel.this.getWidth() - xCoord);
+      int height = Math.min(myCharSize.height, frame.height - yCoord);
+      int width = Math.min(textLength * TerminalPanel.this.myCharSize.width, frame.width - xCoord);
       int lineStrokeSize = 2;
 
-      java.awt.Color fgColor = getEffectiveForeground(style);
-      TextStyle inversedStyle = getInversedStyle(style);
-      java.awt.Color inverseBg = getEffectiveBackground(inversedStyle);
+      java.awt.Color fgColor = resolveColors(style, TerminalColorCache.NORMAL).foreground;
+      java.awt.Color inverseBg = resolveColors(style, TerminalColorCache.CURSOR).background;
 
-      switch (getEffectiveShape()) {
+      switch (frame.cursorShape) {
         case BLINK_BLOCK:
         case STEADY_BLOCK:
           if (state == TerminalCursorState.SHOWING) {
             gfx.setColor(inverseBg);
             gfx.fillRect(xCoord, yCoord, width, height);
-            drawCharacters(x, y, inversedStyle, buf, gfx);
+            drawCharacters(x, y, style, TerminalColorCache.CURSOR, buf, gfx);
           } else {
             gfx.setColor(fgColor);
             gfx.drawRect(xCoord, yCoord, width, height);
@@ -1291,51 +1905,90 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     TextStyle.Builder builder = new TextStyle.Builder(style);
     builder.setOption(Option.INVERSE, !style.hasOption(Option.INVERSE));
     if (style.getForeground() == null) {
-      builder.setForeground(myStyleState.getDefaultForeground());
+      builder.setForeground(getDefaultStyle().getForeground());
     }
     if (style.getBackground() == null) {
-      builder.setBackground(myStyleState.getDefaultBackground());
+      builder.setBackground(getDefaultStyle().getBackground());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the default style of the terminal with the colors of the settings for the ones it doesn't define,
+   * e.g. if the style state isn't set up by a widget, see {@link TerminalImageRenderer}
+   */
+  private @NotNull TextStyle getDefaultStyle() {
+    TextStyle defaultStyle = myStyleState.getDefaultStyle();
+    if (defaultStyle.getForeground() != null && defaultStyle.getBackground() != null) {
+      return defaultStyle;
+    }
+    TextStyle.Builder builder = new TextStyle.Builder(defaultStyle);
+    if (defaultStyle.getForeground() == null) {
+      builder.setForeground(mySettingsProvider.getDefaultForeground());
+    }
+    if (defaultStyle.getBackground() == null) {
+      builder.setBackground(mySettingsProvider.getDefaultBackground());
     }
     return builder.build();
   }
 
-  private void drawCharacters(int x, int y, TextStyle style, CharBuffer buf, Graphics2D gfx) {
-    drawCharacters(x, y, style, buf, gfx, true);
+  private void drawCharacters(int x, int y, TextStyle style, int colorState, CharBuffer buf, Graphics2D gfx) {
+    drawCharacters(x, y, style, colorState, buf, gfx, true);
   }
 
-  private void drawCharacters(int x, int y, TextStyle style, CharBuffer buf, Graphics2D gfx,
+  /**
+   * @param colorState one of the {@link TerminalColorCache} states the colors of the style are resolved for
+   */
+  private void drawCharacters(int x, int y, TextStyle style, int colorState, CharBuffer buf, Graphics2D gfx,
                               boolean includeSpaceBetweenLines) {
-    if (myTextBlinkingTracker.shouldBlinkNow(style)) {
-      style = getInversedStyle(style);
+    if (BlinkingTextTracker.isBlinking(style)) {
+      myBlinkingTextPainted = true;
+      if (myTextBlinkingTracker.shouldBlinkNow(style)) {
+        colorState |= TerminalColorCache.BLINK_INVERTED;
+      }
     }
+    TerminalColorCache.ResolvedColors colors = resolveColors(style, colorState);
+    int textLength = CharUtils.getTextLengthDoubleWidthAware(buf.getBuf(), buf.getStart(), buf.length(), mySettingsProvider.ambiguousCharsAreDoubleWidth());
+    fillBackground(x, y, textLength, colors.background, gfx, includeSpaceBetweenLines);
+    drawText(x, y, style, colors, buf, gfx);
+  }
 
+  private void fillBackground(int x, int y, int cells, @NotNull java.awt.Color background, @NotNull Graphics2D gfx,
+                              boolean includeSpaceBetweenLines) {
     int xCoord = x * myCharSize.width + getInsetX();
     int yCoord = y * myCharSize.height + (includeSpaceBetweenLines ? 0 : mySpaceBetweenLines / 2);
 
-    if (xCoord < 0 || xCoord > getWidth() || yCoord < 0 || yCoord > getHeight()) {
+    int frameWidth = myFrame.width;
+    int frameHeight = myFrame.height;
+    if (xCoord < 0 || xCoord > frameWidth || yCoord < 0 || yCoord > frameHeight) {
       return;
     }
 
-    int textLength = CharUtils.getTextLengthDoubleWidthAware(buf.getBuf(), buf.getStart(), buf.length(), mySettingsProvider.ambiguousCharsAreDoubleWidth());
-    int height = Math.min(myCharSize.height - (includeSpaceBetweenLines ? 0 : mySpaceBetweenLines), getHeight() - yCoord);
-    int width = Math.min(textLength * TerminalPanel.this.myCharSize.width, TerminalPanel.this.getWidth() - xCoord);
+    int height = Math.min(myCharSize.height - (includeSpaceBetweenLines ? 0 : mySpaceBetweenLines), frameHeight - yCoord);
+    int width = Math.min(cells * myCharSize.width, frameWidth - xCoord);
 
-    java.awt.Color backgroundColor = getEffectiveBackground(style);
-    gfx.setColor(backgroundColor);
+    gfx.setColor(background);
     gfx.fillRect(xCoord,
             yCoord,
             width,
             height);
+  }
 
-    if (buf.isNul()) {
+  private void drawText(int x, int y, @NotNull TextStyle style, @NotNull TerminalColorCache.ResolvedColors colors,
+                        @NotNull CharBuffer buf, @NotNull Graphics2D gfx) {
+    int xCoord = x * myCharSize.width + getInsetX();
+    int yCoord = y * myCharSize.height;
+
+    if (buf.isNul() || xCoord < 0 || xCoord > myFrame.width || yCoord < 0 || yCoord > myFrame.height) {
       return; // nothing more to do
     }
 
-    gfx.setColor(getStyleForeground(style));
+    gfx.setColor(colors.textForeground);
 
     drawChars(x, y, buf, style, gfx);
 
     if (hasUnderline(style)) {
+      int textLength = CharUtils.getTextLengthDoubleWidthAware(buf.getBuf(), buf.getStart(), buf.length(), mySettingsProvider.ambiguousCharsAreDoubleWidth());
       int baseLine = (y + 1) * myCharSize.height - mySpaceBetweenLines / 2 - myDescent;
       int lineY = baseLine + 3;
       gfx.drawLine(xCoord, lineY, (x + textLength) * myCharSize.width + getInsetX(), lineY);
@@ -1356,7 +2009,7 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   }
 
   private boolean isHoveredHyperlink(@NotNull HyperlinkStyle link) {
-    return myHoveredHyperlink == link.getLinkInfo();
+    return myFrame.hoveredHyperlink == link.getLinkInfo();
   }
 
   /**
@@ -1372,7 +2025,11 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     } else {
       renderingBuffer = buf;
     }
+    if (mySimpleCharsFastPath && drawSimpleChars(x, y, renderingBuffer, style, gfx)) {
+      return;
+    }
 
+    Shape clip = gfx.getClip();
     BreakIterator iterator = BreakIterator.getCharacterInstance();
     char[] text = renderingBuffer.clone().getBuf();
     iterator.setText(new String(text));
@@ -1385,14 +2042,16 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
         startOffset = endOffset;
         continue; // nothing to draw
       }
-      Font font = getFontToDisplay(text, startOffset, effectiveEndOffset, style);
+      TerminalFontCache.ResolvedFont resolvedFont = resolveFont(text, startOffset, effectiveEndOffset, style, gfx);
+      Font font = resolvedFont.font;
       gfx.setFont(font);
-      int descent = gfx.getFontMetrics(font).getDescent();
+      int descent = resolvedFont.descent;
       int baseLine = (y + 1) * myCharSize.height - mySpaceBetweenLines / 2 - descent;
       int charWidth = myCharSize.width;
       int xCoord = (x + startOffset) * charWidth + getInsetX();
       int yCoord = y * myCharSize.height + mySpaceBetweenLines / 2;
-      gfx.setClip(xCoord, yCoord, getWidth() - xCoord, getHeight() - yCoord);
+      gfx.setClip(clip);
+      gfx.clipRect(xCoord, yCoord, myFrame.width - xCoord, myFrame.height - yCoord);
 
       int emptyCells = endOffset - startOffset;
       if (emptyCells >= 2) {
@@ -1405,7 +2064,70 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
 
       startOffset = endOffset;
     }
-    gfx.setClip(null);
+    gfx.setClip(clip);
+  }
+
+  /**
+   * Draws a run of printable ASCII and Latin-1 chars in one call. Such runs are the vast majority of the output,
+   * and since each of their chars is one grapheme taking one cell, they don't need to be laid out grapheme by grapheme
+   * if the font advances them exactly by the cell width.
+   *
+   * @return false if the run should be laid out grapheme by grapheme
+   */
+  private boolean drawSimpleChars(int x, int y, @NotNull CharBuffer buf, @NotNull TextStyle style, @NotNull Graphics2D gfx) {
+    char[] text = buf.getBuf();
+    int start = buf.getStart();
+    int length = buf.length();
+    if (!isSimpleText(text, start, length) || gfx.getFontRenderContext().usesFractionalMetrics()) {
+      return false;
+    }
+    Font font = getFontToDisplay(text, start, start + length, style);
+    FontMetrics fontMetrics = gfx.getFontMetrics(font);
+    if (!isCellPitchFont(font, fontMetrics)) {
+      return false;
+    }
+    gfx.setFont(font);
+    int baseLine = (y + 1) * myCharSize.height - mySpaceBetweenLines / 2 - fontMetrics.getDescent();
+    gfx.drawChars(text, start, length, x * myCharSize.width + getInsetX(), baseLine);
+    return true;
+  }
+
+  static boolean isSimpleText(char[] text, int start, int length) {
+    for (int i = start; i < start + length; i++) {
+      char c = text[i];
+      // the soft hyphen is a format char
+      if (!(c >= 0x20 && c < 0x7f || c >= 0xa0 && c <= 0xff && c != 0xad)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isCellPitchFont(@NotNull Font font, @NotNull FontMetrics fontMetrics) {
+    Boolean cellPitch = myCellPitchFonts.get(font);
+    if (cellPitch == null) {
+      // kerning and ligatures would move the chars from their cells
+      cellPitch = !font.hasLayoutAttributes() && hasWidth(fontMetrics, 0x20, 0x7e) && hasWidth(fontMetrics, 0xa0, 0xff);
+      myCellPitchFonts.put(font, cellPitch);
+    }
+    return cellPitch;
+  }
+
+  private boolean hasWidth(@NotNull FontMetrics fontMetrics, int fromChar, int toChar) {
+    for (int c = fromChar; c <= toChar; c++) {
+      if (c != 0xad && fontMetrics.charWidth((char)c) != myCharSize.width) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Allows disabling the one call drawing of simple chars, e.g. to compare rendering performance.
+   */
+  void setSimpleCharsFastPath(boolean enabled) {
+    mySimpleCharsFastPath = enabled;
+    myTextLayoutVersion++;
   }
 
   private static int shiftDwcToEnd(char[] text, int startOffset, int endOffset) {
@@ -1471,18 +2193,64 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
     return false;
   }
 
-  private @NotNull java.awt.Color getStyleForeground(@NotNull TextStyle style) {
-    java.awt.Color foreground = getEffectiveForeground(style);
-    if (style.hasOption(Option.DIM)) {
-      java.awt.Color background = getEffectiveBackground(style);
-      foreground = new java.awt.Color((foreground.getRed() + background.getRed()) / 2,
-                             (foreground.getGreen() + background.getGreen()) / 2,
-                             (foreground.getBlue() + background.getBlue()) / 2,
-                             foreground.getAlpha());
+  private @NotNull TerminalColorCache.ResolvedColors resolveColors(@NotNull TextStyle style, int colorState) {
+    TerminalColorCache.ResolvedColors colors = myColorCache.get(style, colorState);
+    if (colors == null) {
+      TextStyle effectiveStyle = getEffectiveStyle(style, colorState);
+      java.awt.Color foreground = getEffectiveForeground(effectiveStyle);
+      java.awt.Color background = getEffectiveBackground(effectiveStyle);
+      java.awt.Color textForeground = foreground;
+      if (effectiveStyle.hasOption(Option.DIM)) {
+        textForeground = new java.awt.Color((foreground.getRed() + background.getRed()) / 2,
+                                            (foreground.getGreen() + background.getGreen()) / 2,
+                                            (foreground.getBlue() + background.getBlue()) / 2,
+                                            foreground.getAlpha());
+      }
+      colors = new TerminalColorCache.ResolvedColors(foreground, textForeground, background);
+      myColorCache.put(style, colorState, colors);
     }
-    return foreground;
+    return colors;
   }
 
+  private @NotNull TextStyle getEffectiveStyle(@NotNull TextStyle style, int colorState) {
+    TextStyle effectiveStyle;
+    switch (colorState & ~TerminalColorCache.BLINK_INVERTED) {
+      case TerminalColorCache.SELECTED:
+        effectiveStyle = getSelectionStyle(style);
+        break;
+      case TerminalColorCache.FOUND_PATTERN:
+        effectiveStyle = getFoundPattern(style);
+        break;
+      case TerminalColorCache.CURSOR:
+        effectiveStyle = getInversedStyle(style);
+        break;
+      default:
+        effectiveStyle = style;
+    }
+    if ((colorState & TerminalColorCache.BLINK_INVERTED) != 0) {
+      effectiveStyle = getInversedStyle(effectiveStyle);
+    }
+    return effectiveStyle;
+  }
+
+  private @NotNull TerminalFontCache.ResolvedFont resolveFont(char[] text, int start, int end, @NotNull TextStyle style,
+                                                              @NotNull Graphics2D gfx) {
+    boolean bold = style.hasOption(TextStyle.Option.BOLD);
+    boolean italic = style.hasOption(TextStyle.Option.ITALIC);
+    TerminalFontCache.ResolvedFont resolvedFont = myFontCache.get(text, start, end, bold, italic);
+    if (resolvedFont == null) {
+      Font font = getFontToDisplay(text, start, end, style);
+      resolvedFont = new TerminalFontCache.ResolvedFont(font, gfx.getFontMetrics(font).getDescent());
+      myFontCache.put(text, start, end, bold, italic, resolvedFont);
+    }
+    return resolvedFont;
+  }
+
+  /**
+   * Resolves the font for a grapheme, e.g. a fallback font if the terminal font can't display it.
+   * The resolved fonts are cached per grapheme and the bold and italic flags of the style,
+   * call {@link #reinitFontAndResize()} if the fonts should be resolved again.
+   */
   protected @NotNull Font getFontToDisplay(char[] text, int start, int end, @NotNull TextStyle style) {
     boolean bold = style.hasOption(TextStyle.Option.BOLD);
     boolean italic = style.hasOption(TextStyle.Option.ITALIC);
@@ -1500,13 +2268,14 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
 
   private void drawMargins(Graphics2D gfx, int width, int height) {
     gfx.setColor(getBackground());
-    gfx.fillRect(0, height, getWidth(), getHeight() - height);
-    gfx.fillRect(width, 0, getWidth() - width, getHeight());
+    gfx.fillRect(0, height, myFrame.width, myFrame.height - height);
+    gfx.fillRect(width, 0, myFrame.width - width, myFrame.height);
   }
 
   // Called in a background thread with myTerminalTextBuffer.lock() acquired
   public void scrollArea(final int scrollRegionTop, final int scrollRegionSize, int dy) {
     scrollDy.addAndGet(dy);
+    requestFrame();
     updateSelection(null);
   }
 
@@ -2146,6 +2915,17 @@ public class TerminalPanel extends JComponent implements TerminalDisplay, Termin
   }
 
   public void dispose() {
-    myRepaintTimer.stop();
+    myTerminalTextBuffer.removeModelListener(myModelListener);
+    myTerminalTextBuffer.removeHistoryBufferListener(myHistoryBufferListener);
+    TextProcessing textProcessing = myTerminalTextBuffer.getTextProcessing();
+    if (textProcessing != null) {
+      textProcessing.removeHyperlinkListener(myHyperlinkListener);
+    }
+    if (myFrameScheduler != null) {
+      myFrameScheduler.stop();
+    }
+    if (myOffscreenRenderer != null) {
+      myOffscreenRenderer.dispose();
+    }
   }
 }
@@ -0,0 +1,141 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder;
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.model.LinesStorage;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches a snapshot of the text buffer in parallel segments of lines on a {@link ForkJoinPool}.
+ * <p/>
+ * The snapshot is taken with the text buffer locked and is searched without the lock. Both the history and the screen
+ * lines are copied with their text, as history lines are edited in place too, e.g. when hyperlinks are highlighted.
+ * The found items refer to the lines by their indexes, so they are highlighted in the terminal as usual.
+ * <p/>
+ * A segment is searched for matches starting in its lines, and the text of the following lines is fed to
+ * the finder until a match crossing the segment border can be completed.
+ */
+final class TerminalParallelSearch {
+  private static final int MIN_SEGMENT_LINES = 1024;
+
+  private TerminalParallelSearch() {
+  }
+
+  static @Nullable FindResult search(@NotNull TerminalTextBuffer textBuffer,
+                                     @NotNull String pattern,
+                                     boolean ignoreCase,
+                                     @NotNull ForkJoinPool pool) {
+    if (pattern.isEmpty()) {
+      return null;
+    }
+    return search(snapshotLines(textBuffer), pattern, ignoreCase, pool, () -> false);
+  }
+
+  /**
+   * @param lines     history and screen lines from the top of the history, see {@link #snapshotLines(TerminalTextBuffer)}
+   * @param cancelled polled between segments, the result is incomplete if it returns true
+   */
+  static @NotNull FindResult search(@NotNull TerminalLine @NotNull [] lines,
+                                    @NotNull String pattern,
+                                    boolean ignoreCase,
+                                    @NotNull ForkJoinPool pool,
+                                    @NotNull BooleanSupplier cancelled) {
+    int segmentLines = Math.max(MIN_SEGMENT_LINES, lines.length / (pool.getParallelism() * 4));
+    return pool.invoke(new SegmentTask(lines, pattern, ignoreCase, 0, lines.length, segmentLines, cancelled));
+  }
+
+  static @NotNull TerminalLine @NotNull [] snapshotLines(@NotNull TerminalTextBuffer textBuffer) {
+    textBuffer.lock();
+    try {
+      LinesStorage history = textBuffer.getHistoryLinesStorage();
+      LinesStorage screen = textBuffer.getScreenLinesStorage();
+      TerminalLine[] lines = new TerminalLine[history.getSize() + screen.getSize()];
+      for (int i = 0; i < history.getSize(); i++) {
+        lines[i] = history.get(i).copyWithText();
+      }
+      for (int i = 0; i < screen.getSize(); i++) {
+        lines[history.getSize() + i] = screen.get(i).copyWithText();
+      }
+      return lines;
+    }
+    finally {
+      textBuffer.unlock();
+    }
+  }
+
+  private static final class SegmentTask extends RecursiveTask<FindResult> {
+    private final TerminalLine[] myLines;
+    private final String myPattern;
+    private final boolean myIgnoreCase;
+    private final int myStart;
+    private final int myEnd;
+    private final int mySegmentLines;
+    private final BooleanSupplier myCancelled;
+
+    SegmentTask(@NotNull TerminalLine @NotNull [] lines,
+                @NotNull String pattern,
+                boolean ignoreCase,
+                int start,
+                int end,
+                int segmentLines,
+                @NotNull BooleanSupplier cancelled) {
+      myLines = lines;
+      myPattern = pattern;
+      myIgnoreCase = ignoreCase;
+      myStart = start;
+      myEnd = end;
+      mySegmentLines = segmentLines;
+      myCancelled = cancelled;
+    }
+
+    @Override
+    protected FindResult compute() {
+      if (myEnd - myStart <= mySegmentLines) {
+        return myCancelled.getAsBoolean() ? new FindResult() : searchInSegment();
+      }
+      int middle = (myStart + myEnd) >>> 1;
+      SegmentTask first = new SegmentTask(myLines, myPattern, myIgnoreCase, myStart, middle, mySegmentLines, myCancelled);
+      SegmentTask second = new SegmentTask(myLines, myPattern, myIgnoreCase, middle, myEnd, mySegmentLines, myCancelled);
+      second.fork();
+      FindResult firstResult = first.compute();
+      return FindResult.merge(firstResult, second.join());
+    }
+
+    private @NotNull FindResult searchInSegment() {
+      SubstringFinder finder = new SubstringFinder(myPattern, myIgnoreCase) {
+        @Override
+        public boolean accept(@NotNull FindResult.FindItem item) {
+          return item.getStart().y < myEnd;
+        }
+      };
+      TerminalSearchUtil.FinderConsumer consumer = new TerminalSearchUtil.FinderConsumer(finder, 0);
+      for (int y = myStart; y < myEnd; y++) {
+        myLines[y].process(y, consumer, 0);
+      }
+      // complete the matches crossing the segment border
+      int charsCount = 0;
+      for (int y = myEnd; y < myLines.length && charsCount < myPattern.length() - 1; y++) {
+        myLines[y].process(y, consumer, 0);
+        charsCount += textLength(myLines[y]);
+      }
+      return finder.getResult();
+    }
+
+    private static int textLength(@NotNull TerminalLine line) {
+      int length = 0;
+      for (TerminalLine.TextEntry entry : line.getEntries()) {
+        if (!entry.isNul()) {
+          length += entry.getLength();
+        }
+      }
+      return length;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.RegexFinder;
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Regular expression search in the text buffer, fetching the matches page by page.
+ * <p/>
+ * The search starts at a line and goes down or up by logical lines on demand. A page ends when it has the maximum
+ * number of matches or when its time budget is spent, even in the middle of a logical line, so the text buffer is never
+ * locked for long. The next page resumes the logical line where the previous one stopped. A logical line that makes
+ * no progress within the whole time budget of a page, e.g. because of catastrophic backtracking, is skipped.
+ * <p/>
+ * Lines are addressed by the caller's line numbers: the current index from the top of the history plus {@code yShift}.
+ * The found items use the same numbers.
+ */
+final class TerminalRegexSearch {
+  static final long PAGE_TIME_BUDGET_MILLIS = 50;
+
+  private final TerminalTextBuffer myTextBuffer;
+  private final RegexFinder myFinder;
+  private final int myMaxHitsPerPage;
+  // the next logical line to search down starts here
+  private int myNextLine;
+  // the index in the text of that logical line to resume the search from
+  private int myNextIndex;
+  // the lines above are not searched yet, nor the rest of the logical line starting here if myPrevIndex >= 0
+  private int myPrevLine;
+  // the index in the text of the logical line starting at myPrevLine to resume the search from, -1 if it is searched
+  private int myPrevIndex = -1;
+
+  /**
+   * Should be called with the text buffer locked.
+   *
+   * @param startLine the search starts at the logical line containing this line, {@code yShift} is 0 for it
+   */
+  TerminalRegexSearch(@NotNull TerminalTextBuffer textBuffer, @NotNull Pattern pattern, int maxHitsPerPage, int startLine) {
+    myTextBuffer = textBuffer;
+    myFinder = new RegexFinder(pattern);
+    myMaxHitsPerPage = maxHitsPerPage;
+    int line = Math.max(0, Math.min(startLine, getLinesCount() - 1));
+    while (line > 0 && getLine(line - 1).isWrapped()) {
+      line--;
+    }
+    myNextLine = line;
+    myPrevLine = line;
+  }
+
+  /**
+   * Should be called with the text buffer locked.
+   */
+  boolean hasMore(boolean down, int yShift) {
+    return down ? myNextLine - yShift < getLinesCount() : myPrevLine - yShift > 0 || myPrevIndex >= 0;
+  }
+
+  /**
+   * Searches the next page of matches below or above the already searched lines.
+   * Should be called with the text buffer locked.
+   */
+  @NotNull FindResult nextPage(boolean down, int yShift) {
+    long deadline = System.nanoTime() + PAGE_TIME_BUDGET_MILLIS * 1_000_000;
+    int linesCount = getLinesCount();
+    // lines discarded from the history since the previous page are not searched
+    if (myNextLine < yShift) {
+      myNextLine = yShift;
+      myNextIndex = 0;
+    }
+    if (myPrevLine < yShift || myPrevLine > linesCount + yShift) {
+      myPrevLine = Math.min(Math.max(myPrevLine, yShift), linesCount + yShift);
+      myPrevIndex = -1;
+    }
+
+    FindResult page = new FindResult();
+    List<TerminalLine> lines = new ArrayList<>();
+    boolean firstLine = true;
+    while (page.getItems().size() < myMaxHitsPerPage && hasMore(down, yShift) && System.nanoTime() - deadline < 0) {
+      int start;
+      int end;
+      int fromIndex;
+      if (down) {
+        start = myNextLine - yShift;
+        fromIndex = myNextIndex;
+      }
+      else if (myPrevIndex >= 0) {
+        start = myPrevLine - yShift;
+        fromIndex = myPrevIndex;
+      }
+      else {
+        start = myPrevLine - yShift - 1;
+        while (start > 0 && getLine(start - 1).isWrapped()) {
+          start--;
+        }
+        fromIndex = 0;
+      }
+      end = start + 1;
+      while (end < linesCount && getLine(end - 1).isWrapped()) {
+        end++;
+      }
+      lines.clear();
+      for (int i = start; i < end; i++) {
+        lines.add(getLine(i));
+      }
+      int resumeIndex = myFinder.findInLogicalLine(lines, start + yShift, fromIndex, page, myMaxHitsPerPage, deadline);
+      if (resumeIndex == fromIndex && firstLine && page.getItems().size() < myMaxHitsPerPage) {
+        // the whole time budget of the page was spent without progress
+        resumeIndex = -1;
+      }
+      if (down) {
+        myNextLine = (resumeIndex < 0 ? end : start) + yShift;
+        myNextIndex = Math.max(0, resumeIndex);
+      }
+      else {
+        myPrevLine = start + yShift;
+        myPrevIndex = resumeIndex;
+      }
+      firstLine = false;
+    }
+    // the matches of the upward search are added in the reverse order of lines
+    return down ? page : FindResult.merge(new FindResult(), page);
+  }
+
+  private int getLinesCount() {
+    return myTextBuffer.getHistoryLinesCount() + myTextBuffer.getScreenLinesCount();
+  }
+
+  private @NotNull TerminalLine getLine(int index) {
+    return myTextBuffer.getLine(index - myTextBuffer.getHistoryLinesCount());
+  }
+}
@@ -0,0 +1,224 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.model.TerminalLine;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of rendered terminal rows, so that a frame is composed by copying the images of unchanged rows
+ * instead of drawing their text again, e.g. when scrolling through the history.
+ * <p/>
+ * A row image is looked up by its line, the line content version and the selection overlapping the row.
+ * Everything else the rendering depends on, e.g. the font, the colors or the panel width, is the same for all rows,
+ * and the cache is cleared when it changes, see {@link #validate}.
+ * The images are evicted in the least recently used order once their total size exceeds the budget.
+ * Should be accessed on the painting thread only, i.e. the EDT or the offscreen render thread, except for the budget
+ * and the statistics.
+ */
+public final class TerminalRowImageCache {
+  private final LinkedHashMap<RowKey, BufferedImage> myImages = new LinkedHashMap<>(16, 0.75f, true);
+  private final RowKey myLookupKey = new RowKey();
+  private volatile long myBudgetBytes;
+  private volatile long mySizeBytes;
+  private volatile int myRowCount;
+  // the values the rendering depends on, compared on every frame without allocating
+  private boolean myValidated;
+  private int myRenderVersion;
+  private int myWidth;
+  private int myColumnCount;
+  private double myScale;
+  private Object myTextAntialiasing;
+  private boolean myFillCharacterBackgroundIncludingLineSpacing;
+  private boolean myAmbiguousCharsAreDoubleWidth;
+
+  private volatile long myHitCount;
+  private volatile long myMissCount;
+  private volatile long myEvictionCount;
+
+  /**
+   * @param budgetBytes the maximum total size of the cached images, 0 disables caching
+   */
+  TerminalRowImageCache(long budgetBytes) {
+    myBudgetBytes = Math.max(0, budgetBytes);
+  }
+
+  public boolean isEnabled() {
+    return myBudgetBytes > 0;
+  }
+
+  public long getBudgetBytes() {
+    return myBudgetBytes;
+  }
+
+  /**
+   * Changes the budget, the images exceeding it are evicted when the next frame is painted.
+   */
+  public void setBudgetBytes(long budgetBytes) {
+    myBudgetBytes = Math.max(0, budgetBytes);
+  }
+
+  /**
+   * @return the total size of the cached images
+   */
+  public long getSizeBytes() {
+    return mySizeBytes;
+  }
+
+  public int getRowCount() {
+    return myRowCount;
+  }
+
+  public long getHitCount() {
+    return myHitCount;
+  }
+
+  public long getMissCount() {
+    return myMissCount;
+  }
+
+  public long getEvictionCount() {
+    return myEvictionCount;
+  }
+
+  /**
+   * @return the share of the row lookups that found an image, or 0 if there were no lookups
+   */
+  public double getHitRate() {
+    long hits = myHitCount;
+    long lookups = hits + myMissCount;
+    return lookups == 0 ? 0 : (double)hits / lookups;
+  }
+
+  public void resetStatistics() {
+    myHitCount = 0;
+    myMissCount = 0;
+    myEvictionCount = 0;
+  }
+
+  /**
+   * Clears the cache if any of the values the rendering depends on differs from the previous call.
+   *
+   * @param renderVersion changed by the panel whenever anything else the rendering depends on changes,
+   *                      e.g. the fonts or the colors
+   * @return false if the cache was cleared
+   */
+  boolean validate(int renderVersion,
+                   int width,
+                   int columnCount,
+                   double scale,
+                   @Nullable Object textAntialiasing,
+                   boolean fillCharacterBackgroundIncludingLineSpacing,
+                   boolean ambiguousCharsAreDoubleWidth) {
+    if (myValidated &&
+        myRenderVersion == renderVersion &&
+        myWidth == width &&
+        myColumnCount == columnCount &&
+        myScale == scale &&
+        Objects.equals(myTextAntialiasing, textAntialiasing) &&
+        myFillCharacterBackgroundIncludingLineSpacing == fillCharacterBackgroundIncludingLineSpacing &&
+        myAmbiguousCharsAreDoubleWidth == ambiguousCharsAreDoubleWidth) {
+      if (mySizeBytes > myBudgetBytes) {
+        evict();
+      }
+      return true;
+    }
+    myValidated = true;
+    myRenderVersion = renderVersion;
+    myWidth = width;
+    myColumnCount = columnCount;
+    myScale = scale;
+    myTextAntialiasing = textAntialiasing;
+    myFillCharacterBackgroundIncludingLineSpacing = fillCharacterBackgroundIncludingLineSpacing;
+    myAmbiguousCharsAreDoubleWidth = ambiguousCharsAreDoubleWidth;
+    invalidate();
+    return false;
+  }
+
+  void invalidate() {
+    myImages.clear();
+    mySizeBytes = 0;
+    myRowCount = 0;
+  }
+
+  /**
+   * @param contentVersion see {@link TerminalLine#getContentVersion()}
+   * @param overlay        identifies the overlays drawn over the row, e.g. the selected columns
+   */
+  @Nullable BufferedImage get(@NotNull TerminalLine line, int contentVersion, long overlay) {
+    myLookupKey.set(line, contentVersion, overlay);
+    BufferedImage image = myImages.get(myLookupKey);
+    myLookupKey.set(null, 0, 0);
+    if (image != null) {
+      myHitCount++;
+    }
+    else {
+      myMissCount++;
+    }
+    return image;
+  }
+
+  void put(@NotNull TerminalLine line, int contentVersion, long overlay, @NotNull BufferedImage image) {
+    long imageBytes = getSizeBytes(image);
+    if (imageBytes > myBudgetBytes) {
+      return;
+    }
+    RowKey key = new RowKey();
+    key.set(line, contentVersion, overlay);
+    BufferedImage previous = myImages.put(key, image);
+    if (previous != null) {
+      mySizeBytes -= getSizeBytes(previous);
+    }
+    mySizeBytes += imageBytes;
+    evict();
+  }
+
+  private void evict() {
+    long budgetBytes = myBudgetBytes;
+    Iterator<Map.Entry<RowKey, BufferedImage>> iterator = myImages.entrySet().iterator();
+    while (mySizeBytes > budgetBytes && iterator.hasNext()) {
+      mySizeBytes -= getSizeBytes(iterator.next().getValue());
+      iterator.remove();
+      myEvictionCount++;
+    }
+    myRowCount = myImages.size();
+  }
+
+  private static long getSizeBytes(@NotNull BufferedImage image) {
+    return (long)image.getWidth() * image.getHeight() * Integer.BYTES;
+  }
+
+  private static final class RowKey {
+    private TerminalLine myLine;
+    private int myContentVersion;
+    private long myOverlay;
+
+    void set(@Nullable TerminalLine line, int contentVersion, long overlay) {
+      myLine = line;
+      myContentVersion = contentVersion;
+      myOverlay = overlay;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof RowKey)) return false;
+      RowKey key = (RowKey)o;
+      // lines are compared by identity, a line object keeps its content version while it moves to the history
+      return myLine == key.myLine && myContentVersion == key.myContentVersion && myOverlay == key.myOverlay;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(myLine);
+      result = 31 * result + myContentVersion;
+      result = 31 * result + Long.hashCode(myOverlay);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,284 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.model.LinesStorage;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.model.TextBufferChangesListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index of the history buffer, updated incrementally as lines are pushed to the history.
+ * <p/>
+ * Every history line gets a stable number that doesn't change when lines are discarded from the top of the history,
+ * so discarding lines only moves the lower bound of valid numbers. The text is indexed the same way
+ * {@link com.jediterm.terminal.SubstringFinder} sees it: lines are joined without separators, and a trigram crossing
+ * a line boundary belongs to the line it starts in. Trigrams are case-insensitive, so both case-sensitive and
+ * case-insensitive queries can use the index.
+ * <p/>
+ * Only the history of the main buffer is indexed. All methods should be called with the text buffer locked.
+ */
+final class TerminalSearchIndex implements TextBufferChangesListener {
+  private static final int N = 3;
+  private static final int MIN_LINES_TO_COMPACT = 1024;
+
+  private final TerminalTextBuffer myTextBuffer;
+  private final Map<Long, Postings> myPostings = new HashMap<>();
+  private LinesStorage myIndexedStorage;
+  // stable number of the top history line
+  private int myFirstLine;
+  // stable number following the bottom history line
+  private int myEndLine;
+  // lines [myFirstLine, myIndexedEndLine) are indexed
+  private int myIndexedEndLine;
+  private int myDiscardedSinceCompaction;
+
+  TerminalSearchIndex(@NotNull TerminalTextBuffer textBuffer) {
+    myTextBuffer = textBuffer;
+    reset();
+  }
+
+  /**
+   * @return indexes of history lines where the pattern might start or continue, sorted in ascending order;
+   * null if the index can't be used for the pattern, e.g. it is too short.
+   * A match found in a candidate line may start in preceding lines or end in following lines.
+   */
+  int @Nullable [] findCandidateLines(@NotNull String pattern) {
+    if (pattern.length() < N || myTextBuffer.isUsingAlternateBuffer()) {
+      return null;
+    }
+    ensureUpToDate();
+
+    Postings rarest = null;
+    for (int i = 0; i + N <= pattern.length(); i++) {
+      Postings postings = myPostings.get(trigram(pattern.charAt(i), pattern.charAt(i + 1), pattern.charAt(i + 2)));
+      int count = postings != null ? postings.countFrom(myFirstLine) : 0;
+      if (count == 0) {
+        return new int[0];
+      }
+      if (rarest == null || count < rarest.countFrom(myFirstLine)) {
+        rarest = postings;
+      }
+    }
+    int bottomOffset = myEndLine - myIndexedStorage.getSize();
+    return rarest.toLineIndexes(myFirstLine, bottomOffset);
+  }
+
+  @Override
+  public void linesAddedToHistory(@NotNull List<@NotNull TerminalLine> lines) {
+    if (myTextBuffer.isUsingAlternateBuffer()) {
+      return;
+    }
+    if (myEndLine > Integer.MAX_VALUE - lines.size()) {
+      myEndLine = 0;
+      reset();
+      return;
+    }
+    boolean upToDate = myIndexedEndLine == myEndLine;
+    myEndLine += lines.size();
+    if (upToDate) {
+      indexLines(myIndexedEndLine, myEndLine);
+    }
+  }
+
+  @Override
+  public void linesDiscardedFromHistory(@NotNull List<@NotNull TerminalLine> lines) {
+    if (myTextBuffer.isUsingAlternateBuffer()) {
+      return;
+    }
+    myFirstLine += lines.size();
+    myIndexedEndLine = Math.max(myIndexedEndLine, myFirstLine);
+    myDiscardedSinceCompaction += lines.size();
+    if (myDiscardedSinceCompaction >= Math.max(MIN_LINES_TO_COMPACT, myEndLine - myFirstLine)) {
+      compact();
+    }
+  }
+
+  @Override
+  public void linesChanged(int fromIndex) {
+    if (fromIndex < 0 && !myTextBuffer.isUsingAlternateBuffer()) {
+      int fromLine = Math.max(myFirstLine, myEndLine + fromIndex);
+      if (fromLine < myIndexedEndLine) {
+        Iterator<Postings> iterator = myPostings.values().iterator();
+        while (iterator.hasNext()) {
+          Postings postings = iterator.next();
+          postings.truncate(fromLine);
+          if (postings.isEmpty()) {
+            iterator.remove();
+          }
+        }
+        myIndexedEndLine = fromLine;
+      }
+    }
+  }
+
+  @Override
+  public void historyCleared() {
+    if (!myTextBuffer.isUsingAlternateBuffer()) {
+      reset();
+    }
+  }
+
+  @Override
+  public void widthResized() {
+    // history lines are re-created on reflow, index them lazily on the next query
+    reset();
+  }
+
+  private void reset() {
+    myPostings.clear();
+    myIndexedStorage = myTextBuffer.getHistoryLinesStorage();
+    myFirstLine = myEndLine;
+    myEndLine += myIndexedStorage.getSize();
+    myIndexedEndLine = myFirstLine;
+    myDiscardedSinceCompaction = 0;
+  }
+
+  private void ensureUpToDate() {
+    LinesStorage storage = myTextBuffer.getHistoryLinesStorage();
+    if (storage != myIndexedStorage || myEndLine - myFirstLine != storage.getSize()) {
+      reset();
+    }
+    indexLines(myIndexedEndLine, myEndLine);
+  }
+
+  private void indexLines(int fromLine, int toLine) {
+    LinesStorage storage = myIndexedStorage;
+    int bottomOffset = myEndLine - storage.getSize();
+    fromLine = Math.max(fromLine, bottomOffset);
+    if (fromLine >= toLine) {
+      myIndexedEndLine = Math.max(myIndexedEndLine, toLine);
+      return;
+    }
+
+    // the last N - 1 chars preceding fromLine and the lines they belong to
+    char[] chars = new char[N - 1];
+    int[] owners = new int[N - 1];
+    int count = 0;
+    for (int line = fromLine - 1; line >= bottomOffset && count < N - 1; line--) {
+      String text = storage.get(line - bottomOffset).getText();
+      for (int i = text.length() - 1; i >= 0 && count < N - 1; i--) {
+        count++;
+        chars[N - 1 - count] = text.charAt(i);
+        owners[N - 1 - count] = line;
+      }
+    }
+    if (count < N - 1) {
+      System.arraycopy(chars, N - 1 - count, chars, 0, count);
+      System.arraycopy(owners, N - 1 - count, owners, 0, count);
+    }
+
+    for (int line = fromLine; line < toLine; line++) {
+      String text = storage.get(line - bottomOffset).getText();
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (count == N - 1) {
+          addPosting(trigram(chars[0], chars[1], c), owners[0]);
+          chars[0] = chars[1];
+          owners[0] = owners[1];
+          chars[1] = c;
+          owners[1] = line;
+        }
+        else {
+          chars[count] = c;
+          owners[count] = line;
+          count++;
+        }
+      }
+    }
+    myIndexedEndLine = toLine;
+  }
+
+  private void addPosting(long trigram, int line) {
+    Postings postings = myPostings.get(trigram);
+    if (postings == null) {
+      postings = new Postings();
+      myPostings.put(trigram, postings);
+    }
+    postings.add(line);
+  }
+
+  private void compact() {
+    Iterator<Postings> iterator = myPostings.values().iterator();
+    while (iterator.hasNext()) {
+      Postings postings = iterator.next();
+      postings.removeBefore(myFirstLine);
+      if (postings.isEmpty()) {
+        iterator.remove();
+      }
+    }
+    myDiscardedSinceCompaction = 0;
+  }
+
+  private static long trigram(char c1, char c2, char c3) {
+    return ((long)Character.toLowerCase(c1) << 32) | ((long)Character.toLowerCase(c2) << 16) | Character.toLowerCase(c3);
+  }
+
+  /**
+   * Ascending list of stable line numbers, each number is stored once.
+   */
+  private static final class Postings {
+    private int[] myLines = new int[2];
+    private int mySize;
+
+    void add(int line) {
+      int index = mySize;
+      if (mySize > 0 && myLines[mySize - 1] >= line) {
+        // a trigram crossing into re-indexed lines may belong to an already indexed line
+        index = lowerBound(line);
+        if (index < mySize && myLines[index] == line) {
+          return;
+        }
+      }
+      if (mySize == myLines.length) {
+        myLines = Arrays.copyOf(myLines, mySize * 2);
+      }
+      System.arraycopy(myLines, index, myLines, index + 1, mySize - index);
+      myLines[index] = line;
+      mySize++;
+    }
+
+    boolean isEmpty() {
+      return mySize == 0;
+    }
+
+    int countFrom(int firstLine) {
+      return mySize - lowerBound(firstLine);
+    }
+
+    int @NotNull [] toLineIndexes(int firstLine, int bottomOffset) {
+      int start = lowerBound(firstLine);
+      int[] result = new int[mySize - start];
+      for (int i = start; i < mySize; i++) {
+        result[i - start] = myLines[i] - bottomOffset;
+      }
+      return result;
+    }
+
+    void truncate(int fromLine) {
+      mySize = lowerBound(fromLine);
+    }
+
+    void removeBefore(int firstLine) {
+      int start = lowerBound(firstLine);
+      if (start > 0) {
+        System.arraycopy(myLines, start, myLines, 0, mySize - start);
+        mySize -= start;
+      }
+      if (mySize < myLines.length / 4) {
+        myLines = Arrays.copyOf(myLines, Math.max(2, mySize * 2));
+      }
+    }
+
+    private int lowerBound(int line) {
+      int index = Arrays.binarySearch(myLines, 0, mySize, line);
+      return index >= 0 ? index : -index - 1;
+    }
+  }
+}
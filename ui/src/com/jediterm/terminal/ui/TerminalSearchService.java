@@ -0,0 +1,581 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder;
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.TerminalExecutorServiceManager;
+import com.jediterm.terminal.jfr.SearchQueryEvent;
+import com.jediterm.terminal.model.LinesStorage;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.model.TextBufferChangesListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Searches the text buffer in the background, so a large history never blocks the UI.
+ * <p/>
+ * The text is scanned in chunks of lines starting from the viewport and moving outward alternately up and down.
+ * The text buffer is locked only while a chunk is scanned, and the matches found in a chunk are merged into
+ * the current result and passed to the UI right away. A new query cancels the running one.
+ * <p/>
+ * Line numbers of the found items are counted from the top of the history as it was when the search started,
+ * the same way as for a search that completes instantly at that moment.
+ * <p/>
+ * If a fork-join pool is given, a snapshot of the whole buffer is searched in parallel instead,
+ * and the result is passed to the UI once, see {@link TerminalParallelSearch}.
+ * <p/>
+ * Once a substring search is finished, its result is kept up to date as the output arrives: only the lines changed
+ * since the previous update are searched again, the items in the lines discarded from the history are dropped,
+ * and the other items are moved to the current line numbers.
+ */
+final class TerminalSearchService implements TextBufferChangesListener {
+  private static final Logger LOG = LoggerFactory.getLogger(TerminalSearchService.class);
+  private static final int CHUNK_LINES = 2000;
+  private static final long LIVE_UPDATE_DELAY_MILLIS = 100;
+
+  private final TerminalTextBuffer myTextBuffer;
+  private final @Nullable TerminalSearchIndex mySearchIndex;
+  private final Executor myExecutor;
+  private final Executor myResultExecutor;
+  private final Executor myLiveUpdateExecutor;
+  private final @Nullable ForkJoinPool myParallelSearchPool;
+
+  // accessed with the text buffer locked
+  private long myDiscardedLinesCount;
+  private int myResetCount;
+  // the first changed line since the previous live update, counting the discarded lines, so that it stays valid
+  private long myDirtyLine = Long.MAX_VALUE;
+  private boolean myLiveUpdateScheduled;
+
+  // the current query, accessed from the thread calling search/cancel, and polled by the running task
+  private volatile Query myCurrentQuery;
+  // the finished search kept up to date
+  private volatile SearchTask myLiveQuery;
+
+  TerminalSearchService(@NotNull TerminalTextBuffer textBuffer,
+                        @Nullable TerminalSearchIndex searchIndex,
+                        @NotNull TerminalExecutorServiceManager executorServiceManager,
+                        @Nullable ForkJoinPool parallelSearchPool) {
+    this(textBuffer, searchIndex, executorServiceManager.getUnboundedExecutorService(), SwingUtilities::invokeLater,
+         task -> executorServiceManager.getSingleThreadScheduledExecutor().schedule(task, LIVE_UPDATE_DELAY_MILLIS, TimeUnit.MILLISECONDS),
+         parallelSearchPool);
+  }
+
+  /**
+   * @param resultExecutor     runs result callbacks, e.g. on the UI thread
+   * @param liveUpdateExecutor runs live updates of the result, delaying them to collect more changes into one update
+   */
+  TerminalSearchService(@NotNull TerminalTextBuffer textBuffer,
+                        @Nullable TerminalSearchIndex searchIndex,
+                        @NotNull Executor executor,
+                        @NotNull Executor resultExecutor,
+                        @NotNull Executor liveUpdateExecutor,
+                        @Nullable ForkJoinPool parallelSearchPool) {
+    myTextBuffer = textBuffer;
+    mySearchIndex = searchIndex;
+    myExecutor = executor;
+    myResultExecutor = resultExecutor;
+    myLiveUpdateExecutor = liveUpdateExecutor;
+    myParallelSearchPool = parallelSearchPool;
+  }
+
+  /**
+   * Cancels the running search and starts a new one.
+   *
+   * @param viewportLine index of the top visible line counting from the top of the history
+   * @param onResultUpdated is called on the result executor with the result accumulated so far,
+   *                        after the first chunk and after each following chunk containing matches.
+   *                        Is called with null for an empty pattern.
+   */
+  void search(@NotNull String pattern,
+              boolean ignoreCase,
+              int viewportLine,
+              @NotNull Consumer<@Nullable FindResult> onResultUpdated) {
+    cancel();
+    SearchTask task = new SearchTask(pattern, ignoreCase, viewportLine, onResultUpdated);
+    myCurrentQuery = task;
+    if (pattern.isEmpty()) {
+      myResultExecutor.execute(() -> task.publish(null));
+    }
+    else {
+      myExecutor.execute(task);
+    }
+  }
+
+  /**
+   * Cancels the running search and starts a regular expression search.
+   * Unlike the substring search, it stops after the first page of matches found down from the viewport,
+   * or up from it if there are no matches below. More matches are fetched by {@link #fetchMoreResults(boolean)}.
+   *
+   * @param onResultUpdated is called on the result executor with the result accumulated so far
+   * @see TerminalRegexSearch
+   */
+  void searchRegex(@NotNull Pattern pattern,
+                   int maxHitsPerPage,
+                   int viewportLine,
+                   @NotNull Consumer<@Nullable FindResult> onResultUpdated) {
+    cancel();
+    RegexQuery query = new RegexQuery(pattern, maxHitsPerPage, viewportLine, onResultUpdated);
+    myCurrentQuery = query;
+    query.fetchLater(true, true);
+  }
+
+  /**
+   * Fetches the next page of matches of the current regular expression search below or above the searched lines.
+   * Does nothing for a substring search, which finds all matches at once.
+   */
+  void fetchMoreResults(boolean down) {
+    Query query = myCurrentQuery;
+    if (query instanceof RegexQuery) {
+      ((RegexQuery)query).fetchLater(down, false);
+    }
+  }
+
+  /**
+   * Stops the running search, its results are not reported any more.
+   */
+  void cancel() {
+    Query query = myCurrentQuery;
+    if (query != null) {
+      query.myCancelled = true;
+      myCurrentQuery = null;
+    }
+    myLiveQuery = null;
+  }
+
+  @Override
+  public void linesChanged(int fromIndex) {
+    myDirtyLine = Math.min(myDirtyLine, myTextBuffer.getHistoryLinesCount() + fromIndex + myDiscardedLinesCount);
+    scheduleLiveUpdate();
+  }
+
+  @Override
+  public void linesDiscardedFromHistory(@NotNull List<@NotNull TerminalLine> lines) {
+    myDiscardedLinesCount += lines.size();
+    scheduleLiveUpdate();
+  }
+
+  @Override
+  public void historyCleared() {
+    myResetCount++;
+    scheduleLiveUpdate();
+  }
+
+  @Override
+  public void widthResized() {
+    myResetCount++;
+    scheduleLiveUpdate();
+  }
+
+  private void scheduleLiveUpdate() {
+    SearchTask query = myLiveQuery;
+    if (query != null && !query.myCancelled && !myLiveUpdateScheduled) {
+      myLiveUpdateScheduled = true;
+      myLiveUpdateExecutor.execute(() -> myExecutor.execute(() -> {
+        try {
+          query.updateLive();
+        }
+        catch (Exception e) {
+          LOG.error("Failed to update the search result for '" + query.myPattern + "'", e);
+        }
+      }));
+    }
+  }
+
+  private abstract class Query {
+    private final Consumer<FindResult> myOnResultUpdated;
+    volatile boolean myCancelled;
+
+    // the result accumulated on the result executor
+    private FindResult myResult;
+
+    Query(@NotNull Consumer<FindResult> onResultUpdated) {
+      myOnResultUpdated = onResultUpdated;
+    }
+
+    /**
+     * @param restart if true, the found items replace the current result instead of being merged into it
+     */
+    void publishLater(@NotNull FindResult found, boolean restart) {
+      myResultExecutor.execute(() -> {
+        FindResult result = restart || myResult == null ? found : FindResult.merge(myResult, found);
+        publish(result);
+      });
+    }
+
+    /**
+     * Should be called on the result executor.
+     */
+    @Nullable FindResult getResult() {
+      return myResult;
+    }
+
+    void publish(@Nullable FindResult result) {
+      if (!myCancelled) {
+        myResult = result;
+        myOnResultUpdated.accept(result);
+      }
+    }
+  }
+
+  private final class SearchTask extends Query implements Runnable {
+    private final String myPattern;
+    private final boolean myIgnoreCase;
+    private final int myViewportLine;
+
+    // accessed with the text buffer locked: the discarded lines count and the history storage
+    // the line numbers of the published result correspond to
+    private long myResultDiscardedCount;
+    private int myResultResetCount;
+    private LinesStorage myResultHistoryStorage;
+    // the count of the items found by the last search, accessed by the search task
+    private int myFoundCount;
+
+    SearchTask(@NotNull String pattern, boolean ignoreCase, int viewportLine, @NotNull Consumer<FindResult> onResultUpdated) {
+      super(onResultUpdated);
+      myPattern = pattern;
+      myIgnoreCase = ignoreCase;
+      myViewportLine = viewportLine;
+    }
+
+    @Override
+    public void run() {
+      SearchQueryEvent event = new SearchQueryEvent();
+      event.begin();
+      try {
+        if (myParallelSearchPool != null) {
+          TerminalLine[] lines;
+          myTextBuffer.lock();
+          try {
+            startTracking();
+            lines = TerminalParallelSearch.snapshotLines(myTextBuffer);
+          }
+          finally {
+            myTextBuffer.unlock();
+          }
+          FindResult result = TerminalParallelSearch.search(lines, myPattern, myIgnoreCase, myParallelSearchPool, () -> myCancelled);
+          myFoundCount = result.getItems().size();
+          publishLater(result, true);
+        }
+        else {
+          //noinspection StatementWithEmptyBody
+          while (!myCancelled && !searchAllChunks()) {
+            // the text buffer was reset, e.g. cleared or reflowed, start over
+          }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+          event.patternLength = myPattern.length();
+          event.ignoreCase = myIgnoreCase;
+          event.parallel = myParallelSearchPool != null;
+          event.matches = myFoundCount;
+          event.commit();
+        }
+        startLiveUpdates();
+      }
+      catch (Exception e) {
+        LOG.error("Failed to search for '" + myPattern + "'", e);
+      }
+    }
+
+    /**
+     * @return false if the text buffer was reset while searching, so the search should be restarted
+     */
+    private boolean searchAllChunks() {
+      long discardedAtStart;
+      int resetCount;
+      LinesStorage historyStorage;
+      int linesCount;
+      int[] candidateLines;
+      int indexedEndLine;
+      myTextBuffer.lock();
+      try {
+        startTracking();
+        discardedAtStart = myDiscardedLinesCount;
+        resetCount = myResetCount;
+        historyStorage = myTextBuffer.getHistoryLinesStorage();
+        indexedEndLine = myTextBuffer.getHistoryLinesCount();
+        linesCount = indexedEndLine + myTextBuffer.getScreenLinesCount();
+        // the candidates are selected once, each chunk searches its slice of them
+        candidateLines = mySearchIndex != null ? mySearchIndex.findCandidateLines(myPattern) : null;
+      }
+      finally {
+        myTextBuffer.unlock();
+      }
+
+      boolean restart = true;
+      myFoundCount = 0;
+      int firstChunkStart = Math.max(0, Math.min(myViewportLine, linesCount - 1));
+      int below = firstChunkStart; // the next chunk below the viewport starts here
+      int above = firstChunkStart; // the next chunk above the viewport ends here
+      while (below < linesCount || above > 0) {
+        boolean searchBelow = below < linesCount && (below - firstChunkStart <= firstChunkStart - above || above == 0);
+        int chunkStart = searchBelow ? below : Math.max(0, above - CHUNK_LINES);
+        int chunkEnd = searchBelow ? Math.min(linesCount, below + CHUNK_LINES) : above;
+        if (searchBelow) {
+          below = chunkEnd;
+        }
+        else {
+          above = chunkStart;
+        }
+
+        FindResult chunkResult;
+        myTextBuffer.lock();
+        try {
+          if (myCancelled) {
+            return true;
+          }
+          if (resetCount != myResetCount || historyStorage != myTextBuffer.getHistoryLinesStorage()) {
+            return false;
+          }
+          // lines discarded since the search start shift the current line indexes up
+          int shift = (int)(myDiscardedLinesCount - discardedAtStart);
+          chunkResult = searchInChunk(chunkStart, chunkEnd, shift, candidateLines, indexedEndLine);
+        }
+        finally {
+          myTextBuffer.unlock();
+        }
+        myFoundCount += chunkResult.getItems().size();
+
+        if (restart || !chunkResult.getItems().isEmpty()) {
+          publishLater(chunkResult, restart);
+          restart = false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Remembers the state of the text buffer the found items correspond to, and starts collecting changes.
+     * Should be called with the text buffer locked.
+     */
+    private void startTracking() {
+      myResultDiscardedCount = myDiscardedLinesCount;
+      myResultResetCount = myResetCount;
+      myResultHistoryStorage = myTextBuffer.getHistoryLinesStorage();
+      myDirtyLine = Long.MAX_VALUE;
+    }
+
+    private void startLiveUpdates() {
+      myTextBuffer.lock();
+      try {
+        if (!myCancelled && myCurrentQuery == this) {
+          myLiveQuery = this;
+          myLiveUpdateScheduled = false;
+          // the lines changed while searching
+          scheduleLiveUpdate();
+        }
+      }
+      finally {
+        myTextBuffer.unlock();
+      }
+    }
+
+    /**
+     * Searches the lines changed since the previous update again, and moves the other items to the current line numbers.
+     */
+    private void updateLive() {
+      boolean restart;
+      int dy;
+      int scanStart;
+      FindResult found;
+      myTextBuffer.lock();
+      try {
+        myLiveUpdateScheduled = false;
+        if (myCancelled || myLiveQuery != this) {
+          return;
+        }
+        restart = myResultResetCount != myResetCount || myResultHistoryStorage != myTextBuffer.getHistoryLinesStorage();
+        dy = (int)(myResultDiscardedCount - myDiscardedLinesCount);
+        int linesCount = myTextBuffer.getHistoryLinesCount() + myTextBuffer.getScreenLinesCount();
+        long dirtyLine = myDirtyLine - myDiscardedLinesCount;
+        startTracking();
+        if (restart) {
+          scanStart = 0;
+        }
+        else if (dirtyLine >= linesCount) {
+          if (dy == 0) {
+            return;
+          }
+          scanStart = linesCount;
+        }
+        else {
+          // a match crossing into the changed lines may start in preceding lines
+          scanStart = TerminalSearchUtil.extendBackward(myTextBuffer, (int)Math.max(0, dirtyLine), myPattern.length() - 1);
+        }
+        SubstringFinder finder = new SubstringFinder(myPattern, myIgnoreCase);
+        if (scanStart < linesCount) {
+          TerminalSearchUtil.searchInLines(myTextBuffer, finder, myPattern.length(), scanStart, linesCount, 0, null, 0);
+        }
+        found = finder.getResult();
+      }
+      finally {
+        myTextBuffer.unlock();
+      }
+      int retainedEndLine = scanStart;
+      myResultExecutor.execute(() -> {
+        FindResult current = getResult();
+        if (restart || current == null) {
+          publish(found);
+        }
+        else {
+          publish(FindResult.merge(current.retainItemsBefore(dy, retainedEndLine), found));
+        }
+      });
+    }
+
+    /**
+     * Searches matches starting in lines [chunkStart, chunkEnd), counted from the top of the history at the search start.
+     *
+     * @param candidateLines the candidates selected by the search index at the search start, counted the same way
+     */
+    private @NotNull FindResult searchInChunk(int chunkStart, int chunkEnd, int shift,
+                                              int @Nullable [] candidateLines, int indexedEndLine) {
+      int historyLinesCount = myTextBuffer.getHistoryLinesCount();
+      int totalLinesCount = historyLinesCount + myTextBuffer.getScreenLinesCount();
+      int start = Math.max(0, chunkStart - shift);
+      int end = Math.min(totalLinesCount, chunkEnd - shift);
+      SubstringFinder finder = new SubstringFinder(myPattern, myIgnoreCase) {
+        @Override
+        public boolean accept(@NotNull FindResult.FindItem item) {
+          return item.getStart().y < chunkEnd;
+        }
+      };
+      if (start < end) {
+        int[] chunkCandidateLines = null;
+        if (candidateLines != null) {
+          int from = TerminalSearchUtil.lowerBound(candidateLines, start + shift);
+          int to = TerminalSearchUtil.lowerBound(candidateLines, end + shift);
+          chunkCandidateLines = new int[to - from];
+          for (int i = from; i < to; i++) {
+            chunkCandidateLines[i - from] = candidateLines[i] - shift;
+          }
+        }
+        TerminalSearchUtil.searchInLines(myTextBuffer, finder, myPattern.length(), start, end, shift,
+          chunkCandidateLines, indexedEndLine - shift);
+      }
+      return finder.getResult();
+    }
+  }
+
+  private final class RegexQuery extends Query {
+    private final Pattern myPattern;
+    private final int myMaxHitsPerPage;
+    private final int myViewportLine;
+    // the pages are fetched one at a time
+    private final AtomicBoolean myFetching = new AtomicBoolean();
+
+    // accessed by the fetching task with the text buffer locked
+    private TerminalRegexSearch mySearch;
+    private long myDiscardedAtStart;
+    private int myResetCountAtStart;
+    private LinesStorage myHistoryStorage;
+
+    RegexQuery(@NotNull Pattern pattern, int maxHitsPerPage, int viewportLine, @NotNull Consumer<FindResult> onResultUpdated) {
+      super(onResultUpdated);
+      myPattern = pattern;
+      myMaxHitsPerPage = maxHitsPerPage;
+      myViewportLine = viewportLine;
+    }
+
+    void fetchLater(boolean down, boolean initial) {
+      if (myFetching.compareAndSet(false, true)) {
+        myExecutor.execute(() -> {
+          try {
+            fetch(down, initial);
+          }
+          catch (Exception e) {
+            LOG.error("Failed to search for '" + myPattern + "'", e);
+          }
+          finally {
+            myFetching.set(false);
+          }
+        });
+      }
+    }
+
+    /**
+     * Fetches pages until one of them has matches or there is nothing more to search in the direction.
+     * The initial fetch goes up from the viewport if there are no matches below it.
+     */
+    private void fetch(boolean down, boolean initial) {
+      SearchQueryEvent event = new SearchQueryEvent();
+      event.begin();
+      int foundCount = 0;
+      try {
+        foundCount = doFetch(down, initial);
+      }
+      finally {
+        event.end();
+        if (event.shouldCommit()) {
+          event.patternLength = myPattern.pattern().length();
+          event.regex = true;
+          event.ignoreCase = (myPattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+          event.matches = foundCount;
+          event.commit();
+        }
+      }
+    }
+
+    /**
+     * @return the count of the found items
+     */
+    private int doFetch(boolean down, boolean initial) {
+      boolean restart = initial;
+      while (!myCancelled) {
+        FindResult page;
+        myTextBuffer.lock();
+        try {
+          if (mySearch == null || myResetCountAtStart != myResetCount || myHistoryStorage != myTextBuffer.getHistoryLinesStorage()) {
+            // the text buffer was reset, e.g. cleared or reflowed, start over
+            mySearch = new TerminalRegexSearch(myTextBuffer, myPattern, myMaxHitsPerPage, myViewportLine);
+            myDiscardedAtStart = myDiscardedLinesCount;
+            myResetCountAtStart = myResetCount;
+            myHistoryStorage = myTextBuffer.getHistoryLinesStorage();
+            restart = true;
+          }
+          int shift = (int)(myDiscardedLinesCount - myDiscardedAtStart);
+          if (!mySearch.hasMore(down, shift)) {
+            if (initial && down) {
+              down = false;
+              continue;
+            }
+            page = null;
+          }
+          else {
+            page = mySearch.nextPage(down, shift);
+          }
+        }
+        finally {
+          myTextBuffer.unlock();
+        }
+
+        if (page == null) {
+          if (restart) {
+            publishLater(new FindResult(), true);
+          }
+          return 0;
+        }
+        if (restart || !page.getItems().isEmpty()) {
+          publishLater(page, restart);
+          restart = false;
+        }
+        if (!page.getItems().isEmpty()) {
+          return page.getItems().size();
+        }
+      }
+      return 0;
+    }
+  }
+}
@@ -4,46 +4,184 @@ import com.jediterm.terminal.StyledTextConsumer;
 import com.jediterm.terminal.SubstringFinder;
 import com.jediterm.terminal.TextStyle;
 import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.LinesStorageKt;
 import com.jediterm.terminal.model.SubCharBuffer;
 import com.jediterm.terminal.model.TerminalTextBuffer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
+
 class TerminalSearchUtil {
 
   static @Nullable SubstringFinder.FindResult searchInTerminalTextBuffer(@NotNull TerminalTextBuffer textBuffer,
                                                                          @NotNull String pattern,
                                                                          boolean ignoreCase) {
+    return searchInTerminalTextBuffer(textBuffer, pattern, ignoreCase, null);
+  }
+
+  /**
+   * Should be called with the text buffer locked if the search index is passed.
+   *
+   * @param searchIndex if not null, only the history lines reported by the index as candidates are verified
+   */
+  static @Nullable SubstringFinder.FindResult searchInTerminalTextBuffer(@NotNull TerminalTextBuffer textBuffer,
+                                                                         @NotNull String pattern,
+                                                                         boolean ignoreCase,
+                                                                         @Nullable TerminalSearchIndex searchIndex) {
     if (pattern.isEmpty()) {
       return null;
     }
 
     final SubstringFinder finder = new SubstringFinder(pattern, ignoreCase);
+    int[] candidateLines = searchIndex != null ? searchIndex.findCandidateLines(pattern) : null;
+    int historyLinesCount = textBuffer.getHistoryLinesCount();
+    int linesCount = historyLinesCount + textBuffer.getScreenLinesCount();
+    searchInLines(textBuffer, finder, pattern.length(), 0, linesCount, 0, candidateLines, historyLinesCount);
 
-    textBuffer.processHistoryAndScreenLines(-textBuffer.getHistoryLinesCount(), -1, new StyledTextConsumer() {
-      @Override
-      public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
-        int offset = 0;
-        int length = characters.length();
-        if (characters instanceof SubCharBuffer) {
-          SubCharBuffer subCharBuffer = (SubCharBuffer) characters;
-          characters = subCharBuffer.getParent();
-          offset = subCharBuffer.getOffset();
-        }
-        for (int i = offset; i < offset + length; i++) {
-          finder.nextChar(x, y - startRow, characters, i);
-        }
-      }
+    return finder.getResult();
+  }
+
+  /**
+   * @return the index of the first of the distinct sorted values that is not less than the value
+   */
+  static int lowerBound(int @NotNull [] sortedValues, int value) {
+    int index = Arrays.binarySearch(sortedValues, value);
+    return index >= 0 ? index : -index - 1;
+  }
 
-      @Override
-      public void consumeNul(int x, int y, int nulIndex, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+  /**
+   * Feeds the finder with lines [fromLine, toLine) counted from the top of the history, followed by the lines
+   * needed to complete a match starting in the range. Should be called with the text buffer locked.
+   *
+   * @param yShift         is added to the line indexes passed to the finder
+   * @param candidateLines if not null, only the lines from {@code indexedEndLine} on and the regions around these
+   *                       lines are fed, sorted in ascending order. A region is extended to both sides until it covers
+   *                       a possible match crossing the line boundaries.
+   * @param indexedEndLine the end of the lines the candidates were selected from, e.g. the history lines count
+   */
+  static void searchInLines(@NotNull TerminalTextBuffer textBuffer,
+                            @NotNull SubstringFinder finder,
+                            int patternLength,
+                            int fromLine,
+                            int toLine,
+                            int yShift,
+                            int @Nullable [] candidateLines,
+                            int indexedEndLine) {
+    int totalLinesCount = textBuffer.getHistoryLinesCount() + textBuffer.getScreenLinesCount();
+    if (candidateLines == null) {
+      searchInRegion(textBuffer, finder, fromLine, extendForward(textBuffer, toLine, totalLinesCount, patternLength - 1), yShift);
+      return;
+    }
+
+    int regionStart = -1;
+    int regionEnd = -1;
+    for (int i = lowerBound(candidateLines, fromLine); i <= candidateLines.length; i++) {
+      int line;
+      int lineEnd;
+      if (i < candidateLines.length && candidateLines[i] < toLine) {
+        line = candidateLines[i];
+        lineEnd = line + 1;
+      }
+      else if (toLine > indexedEndLine) {
+        // the screen lines are always searched, they are not indexed
+        line = Math.max(fromLine, indexedEndLine);
+        lineEnd = toLine;
+        i = candidateLines.length;
+      }
+      else {
+        break;
+      }
+      int start = Math.max(fromLine, extendBackward(textBuffer, line, patternLength - 1));
+      int end = extendForward(textBuffer, lineEnd, totalLinesCount, patternLength - 1);
+      if (regionEnd >= start) {
+        regionEnd = Math.max(regionEnd, end);
+        continue;
       }
+      if (regionStart >= 0) {
+        searchInRegion(textBuffer, finder, regionStart, regionEnd, yShift);
+      }
+      regionStart = start;
+      regionEnd = end;
+    }
+    if (regionStart >= 0) {
+      searchInRegion(textBuffer, finder, regionStart, regionEnd, yShift);
+    }
+  }
 
-      @Override
-      public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+  /**
+   * @return the first of the lines preceding {@code line} that contain at least {@code charsCount} chars together
+   */
+  static int extendBackward(@NotNull TerminalTextBuffer textBuffer, int line, int charsCount) {
+    int historyLinesCount = textBuffer.getHistoryLinesCount();
+    int count = 0;
+    while (line > 0 && count < charsCount) {
+      line--;
+      count += textBuffer.getLine(line - historyLinesCount).getText().length();
+    }
+    return line;
+  }
+
+  private static int extendForward(@NotNull TerminalTextBuffer textBuffer, int lineEnd, int totalLinesCount, int charsCount) {
+    int historyLinesCount = textBuffer.getHistoryLinesCount();
+    int count = 0;
+    while (lineEnd < totalLinesCount && count < charsCount) {
+      count += textBuffer.getLine(lineEnd - historyLinesCount).getText().length();
+      lineEnd++;
+    }
+    return lineEnd;
+  }
+
+  private static void searchInRegion(@NotNull TerminalTextBuffer textBuffer,
+                                     @NotNull SubstringFinder finder,
+                                     int start,
+                                     int end,
+                                     int yShift) {
+    finder.resetWindow();
+    int historyLinesCount = textBuffer.getHistoryLinesCount();
+    if (start < historyLinesCount) {
+      textBuffer.processHistoryAndScreenLines(start - historyLinesCount, end - start, new FinderConsumer(finder, start + yShift));
+    }
+    else {
+      // processHistoryAndScreenLines always starts with the first screen line
+      int screenStart = start - historyLinesCount;
+      LinesStorageKt.processLines(textBuffer.getScreenLinesStorage(), screenStart, end - start,
+        new FinderConsumer(finder, start + yShift), screenStart);
+    }
+  }
+
+  static final class FinderConsumer implements StyledTextConsumer {
+    private final SubstringFinder myFinder;
+    private final int myFirstLine;
+
+    /**
+     * @param firstLine line index passed to the finder for the first processed line
+     */
+    FinderConsumer(@NotNull SubstringFinder finder, int firstLine) {
+      myFinder = finder;
+      myFirstLine = firstLine;
+    }
+
+    @Override
+    public void consume(int x, int y, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+      int offset = 0;
+      int length = characters.length();
+      if (characters instanceof SubCharBuffer) {
+        SubCharBuffer subCharBuffer = (SubCharBuffer) characters;
+        characters = subCharBuffer.getParent();
+        offset = subCharBuffer.getOffset();
       }
-    });
+      for (int i = offset; i < offset + length; i++) {
+        myFinder.nextChar(x, y - startRow + myFirstLine, characters, i);
+      }
+    }
 
-    return finder.getResult();
+    @Override
+    public void consumeNul(int x, int y, int nulIndex, @NotNull TextStyle style, @NotNull CharBuffer characters, int startRow) {
+    }
+
+    @Override
+    public void consumeQueue(int x, int y, int nulIndex, int startRow) {
+    }
   }
 }
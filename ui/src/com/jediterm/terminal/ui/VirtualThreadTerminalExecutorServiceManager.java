@@ -0,0 +1,121 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalExecutorServiceManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An executor service manager of a session that runs its tasks on virtual threads, available since Java 21.
+ * The emulator loop, which blocks reading the process output, the writes to the process and the hyperlink filters,
+ * which run on the emulator thread, take no platform thread while they wait, so that hundreds of sessions need
+ * only a few carrier threads.
+ * <p/>
+ * {@link #getSingleThreadScheduledExecutor()} is a serial queue of the session as in
+ * {@link SharedTerminalExecutorServiceManager}, which runs each task on a virtual thread.
+ * {@link #getUnboundedExecutorService()} starts a virtual thread per task.
+ * <p/>
+ * The text buffer is guarded by a {@link java.util.concurrent.locks.ReentrantLock}, which unmounts a waiting virtual
+ * thread instead of pinning its carrier. A {@link com.jediterm.terminal.TtyConnector} blocking in native code
+ * (e.g. a JNI read) does pin the carrier though: such connectors should read on a platform thread.
+ * <p/>
+ * The virtual threads are created reflectively, so that this class can be compiled for Java 11. Check
+ * {@link #isSupported()} before creating it, or enable it in {@link JediTermWidget} with
+ * {@code -Djediterm.virtual.threads=true}, which falls back to the platform threads on older JVMs.
+ */
+public final class VirtualThreadTerminalExecutorServiceManager implements TerminalExecutorServiceManager {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadTerminalExecutorServiceManager.class);
+
+  public static final String VIRTUAL_THREADS_PROPERTY = "jediterm.virtual.threads";
+
+  private final SerialScheduledExecutorService mySerialExecutor;
+  private final ExecutorService myUnboundedExecutor;
+
+  /**
+   * @throws UnsupportedOperationException if the JVM has no virtual threads
+   */
+  public VirtualThreadTerminalExecutorServiceManager() {
+    ThreadFactory threadFactory = VirtualThreads.THREAD_FACTORY;
+    if (threadFactory == null) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+    mySerialExecutor = new SerialScheduledExecutorService(VirtualThreads.WORKERS,
+                                                          SharedTerminalExecutorServiceManager.getSharedScheduler());
+    myUnboundedExecutor = newThreadPerTaskExecutor(threadFactory);
+  }
+
+  public static boolean isSupported() {
+    return VirtualThreads.THREAD_FACTORY != null;
+  }
+
+  /**
+   * @return whether virtual threads are enabled with {@link #VIRTUAL_THREADS_PROPERTY} and supported by the JVM
+   */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) && isSupported();
+  }
+
+  @Override
+  public @NotNull ScheduledExecutorService getSingleThreadScheduledExecutor() {
+    return mySerialExecutor;
+  }
+
+  @Override
+  public @NotNull ExecutorService getUnboundedExecutorService() {
+    return myUnboundedExecutor;
+  }
+
+  @Override
+  public void shutdownWhenAllExecuted() {
+    if (!mySerialExecutor.isShutdown()) {
+      mySerialExecutor.execute(mySerialExecutor::shutdown);
+    }
+    myUnboundedExecutor.shutdown();
+  }
+
+  private static @NotNull ExecutorService newThreadPerTaskExecutor(@NotNull ThreadFactory threadFactory) {
+    try {
+      Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      return (ExecutorService)method.invoke(null, threadFactory);
+    }
+    catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Cannot create a thread-per-task executor", e);
+    }
+  }
+
+  private static final class VirtualThreads {
+    static final @Nullable ThreadFactory THREAD_FACTORY = createThreadFactory();
+    static final Executor WORKERS = command -> {
+      //noinspection ConstantConditions
+      THREAD_FACTORY.newThread(command).start();
+    };
+
+    /**
+     * @return {@code Thread.ofVirtual().name("JediTerm-virtual-", 0).factory()}, or null if the JVM has no virtual threads
+     */
+    private static @Nullable ThreadFactory createThreadFactory() {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "JediTerm-virtual-", 0L);
+        return (ThreadFactory)builderClass.getMethod("factory").invoke(builder);
+      }
+      catch (NoSuchMethodException | ClassNotFoundException e) {
+        return null;
+      }
+      catch (ReflectiveOperationException | RuntimeException e) {
+        // e.g. the preview virtual threads of Java 19 and 20 are not enabled
+        LOG.debug("Virtual threads are not available", e);
+        return null;
+      }
+    }
+  }
+}
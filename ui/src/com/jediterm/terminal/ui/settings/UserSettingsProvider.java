@@ -88,6 +88,82 @@ public interface UserSettingsProvider {
   boolean forceActionOnMouseReporting();
 
   int getBufferMaxLinesCount();
+
+  /**
+   * Maximum estimated size of the history in bytes, e.g. {@code 200L * 1024 * 1024}: the oldest lines are discarded
+   * by size beyond it, in addition to {@link #getBufferMaxLinesCount()}, so that long lines cost their actual size.
+   * -1 for no limit. See {@link com.jediterm.terminal.model.TerminalTextBuffer#estimateMemoryUsage()}.
+   */
+  default long getBufferMaxBytes() {
+    return -1;
+  }
+
+  /**
+   * Maintain a trigram index of the history buffer, so that find verifies only candidate lines
+   * instead of scanning the whole history on every change of the search pattern.
+   * The index takes memory proportional to the history size.
+   */
+  default boolean enableSearchIndex() {
+    return false;
+  }
+
+  /**
+   * Search a snapshot of the whole buffer in parallel on the common fork-join pool,
+   * instead of scanning it chunk by chunk from the viewport on a single thread.
+   * The result is shown once the whole buffer is searched.
+   */
+  default boolean enableParallelSearch() {
+    return false;
+  }
+
+  /**
+   * Maximum number of matches a regular expression search fetches at once.
+   * More matches are fetched when the navigation reaches the first or the last fetched match.
+   */
+  default int getSearchMaxHitsPerPage() {
+    return 1000;
+  }
+
+  /**
+   * Maximum total size of the rendered row images kept to compose frames without drawing unchanged rows again,
+   * e.g. when scrolling through the history. 0 disables the cache, which is the default.
+   * The rows are drawn directly while the visible rows alone don't fit into the budget, so it should be several times
+   * the size of the visible rows, i.e. the panel width by its height in device pixels by 4 bytes.
+   */
+  default long getRowImageCacheBudgetBytes() {
+    return 0;
+  }
+
+  /**
+   * Draw the terminal frames on a dedicated render thread into offscreen images,
+   * so that painting on the EDT only copies the latest completed frame.
+   * Keeps the EDT responsive when drawing frames is expensive, e.g. for large windows.
+   */
+  default boolean enableOffscreenRendering() {
+    return false;
+  }
+
+  /**
+   * Record the timing of the painted frames, see {@link com.jediterm.terminal.ui.TerminalPanel#getFrameStatistics()}.
+   */
+  default boolean enableFrameStatistics() {
+    return false;
+  }
+
+  /**
+   * Show the frame rate and the frame time percentiles over the terminal, implies {@link #enableFrameStatistics()}.
+   */
+  default boolean showFrameStatisticsOverlay() {
+    return false;
+  }
+
+  /**
+   * While the terminal is not showing, e.g. in a background tab, stop painting it and defer finding the hyperlinks
+   * of the written lines until they are shown, so that a hidden terminal costs little more than parsing its output.
+   */
+  default boolean suspendWhileHidden() {
+    return false;
+  }
   
   boolean altSendsEscape();
 
@@ -0,0 +1,46 @@
+package com.jediterm.terminal.ui;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BlinkingTextTrackerTest extends TestCase {
+  public void testBlinkingCellsAreMergedPerRow() {
+    BlinkingTextTracker tracker = new BlinkingTextTracker();
+    tracker.clearBlinkingCells(0, 5, 5);
+    assertFalse(tracker.hasBlinkingCells());
+    tracker.addBlinkingCells(1, 10, 3);
+    tracker.addBlinkingCells(1, 2, 4);
+    tracker.addBlinkingCells(3, 0, 1);
+    assertTrue(tracker.hasBlinkingCells());
+    assertEquals(List.of("1:2-13", "3:0-1"), getBlinkingRows(tracker));
+  }
+
+  public void testOnlyRepaintedRowsAreCleared() {
+    BlinkingTextTracker tracker = new BlinkingTextTracker();
+    tracker.clearBlinkingCells(0, 5, 5);
+    tracker.addBlinkingCells(1, 0, 2);
+    tracker.addBlinkingCells(4, 0, 2);
+    tracker.clearBlinkingCells(0, 2, 5);
+    assertEquals(List.of("4:0-2"), getBlinkingRows(tracker));
+    tracker.clearBlinkingCells(4, 5, 5);
+    assertFalse(tracker.hasBlinkingCells());
+  }
+
+  public void testResizeClearsAllRows() {
+    BlinkingTextTracker tracker = new BlinkingTextTracker();
+    tracker.clearBlinkingCells(0, 5, 5);
+    tracker.addBlinkingCells(2, 0, 2);
+    tracker.clearBlinkingCells(0, 1, 8);
+    assertFalse(tracker.hasBlinkingCells());
+    tracker.addBlinkingCells(8, 0, 2);
+    assertFalse(tracker.hasBlinkingCells());
+  }
+
+  private static List<String> getBlinkingRows(BlinkingTextTracker tracker) {
+    List<String> rows = new ArrayList<>();
+    tracker.processBlinkingRows((row, startColumn, endColumn) -> rows.add(row + ":" + startColumn + "-" + endColumn));
+    return rows;
+  }
+}
@@ -0,0 +1,62 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.CursorShape;
+import com.jediterm.terminal.TerminalDisplay;
+import com.jediterm.terminal.emulator.mouse.MouseFormat;
+import com.jediterm.terminal.emulator.mouse.MouseMode;
+import com.jediterm.terminal.model.TerminalSelection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+class NullTerminalDisplay implements TerminalDisplay {
+  @Override
+  public void setCursor(int x, int y) {
+  }
+
+  @Override
+  public void setCursorShape(@Nullable CursorShape cursorShape) {
+  }
+
+  @Override
+  public void beep() {
+  }
+
+  @Override
+  public void scrollArea(int scrollRegionTop, int scrollRegionSize, int dy) {
+  }
+
+  @Override
+  public void setCursorVisible(boolean isCursorVisible) {
+  }
+
+  @Override
+  public void useAlternateScreenBuffer(boolean useAlternateScreenBuffer) {
+  }
+
+  @Override
+  public String getWindowTitle() {
+    return null;
+  }
+
+  @Override
+  public void setWindowTitle(@NotNull String windowTitle) {
+  }
+
+  @Override
+  public @Nullable TerminalSelection getSelection() {
+    return null;
+  }
+
+  @Override
+  public void terminalMouseModeSet(@NotNull MouseMode mouseMode) {
+  }
+
+  @Override
+  public void setMouseFormat(@NotNull MouseFormat mouseFormat) {
+  }
+
+  @Override
+  public boolean ambiguousCharsAreDoubleWidth() {
+    return false;
+  }
+}
@@ -0,0 +1,159 @@
+package com.jediterm.terminal.ui;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SharedTerminalExecutorServiceManagerTest extends TestCase {
+  public void testSessionTasksRunInOrder() throws Exception {
+    List<SharedTerminalExecutorServiceManager> managers = new ArrayList<>();
+    List<List<Integer>> executed = new ArrayList<>();
+    AtomicBoolean concurrentRun = new AtomicBoolean();
+    for (int session = 0; session < 10; session++) {
+      SharedTerminalExecutorServiceManager manager = new SharedTerminalExecutorServiceManager();
+      List<Integer> sessionExecuted = Collections.synchronizedList(new ArrayList<>());
+      AtomicInteger running = new AtomicInteger();
+      for (int i = 0; i < 1000; i++) {
+        int task = i;
+        manager.getSingleThreadScheduledExecutor().execute(() -> {
+          if (running.incrementAndGet() != 1) {
+            concurrentRun.set(true);
+          }
+          sessionExecuted.add(task);
+          running.decrementAndGet();
+        });
+      }
+      managers.add(manager);
+      executed.add(sessionExecuted);
+    }
+    for (SharedTerminalExecutorServiceManager manager : managers) {
+      manager.shutdownWhenAllExecuted();
+      assertTrue(manager.getSingleThreadScheduledExecutor().awaitTermination(10, TimeUnit.SECONDS));
+    }
+    assertFalse(concurrentRun.get());
+    for (List<Integer> sessionExecuted : executed) {
+      assertEquals(1000, sessionExecuted.size());
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(i, (int)sessionExecuted.get(i));
+      }
+    }
+  }
+
+  public void testBlockedSessionsDoNotStallOthers() throws Exception {
+    // more blocked sessions than processors, e.g. writing to processes that do not read their input
+    int blockedCount = Runtime.getRuntime().availableProcessors() + 1;
+    List<SharedTerminalExecutorServiceManager> blocked = new ArrayList<>();
+    CountDownLatch started = new CountDownLatch(blockedCount);
+    CountDownLatch release = new CountDownLatch(1);
+    for (int i = 0; i < blockedCount; i++) {
+      SharedTerminalExecutorServiceManager manager = new SharedTerminalExecutorServiceManager();
+      manager.getSingleThreadScheduledExecutor().execute(() -> {
+        started.countDown();
+        try {
+          release.await();
+        }
+        catch (InterruptedException ignored) {
+        }
+      });
+      blocked.add(manager);
+    }
+    try {
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      ScheduledExecutorService executor = new SharedTerminalExecutorServiceManager().getSingleThreadScheduledExecutor();
+      assertEquals("done", executor.submit(() -> "done").get(10, TimeUnit.SECONDS));
+    }
+    finally {
+      release.countDown();
+    }
+    for (SharedTerminalExecutorServiceManager manager : blocked) {
+      manager.shutdownWhenAllExecuted();
+      assertTrue(manager.getSingleThreadScheduledExecutor().awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+
+  public void testDelayedTasks() throws Exception {
+    ScheduledExecutorService executor = new SharedTerminalExecutorServiceManager().getSingleThreadScheduledExecutor();
+    List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+    ScheduledFuture<?> cancelled = executor.schedule(() -> executed.add("cancelled"), 50, TimeUnit.MILLISECONDS);
+    executor.schedule(() -> {
+      executed.add("delayed");
+      done.countDown();
+    }, 100, TimeUnit.MILLISECONDS);
+    executor.execute(() -> executed.add("immediate"));
+    assertTrue(cancelled.cancel(false));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(List.of("immediate", "delayed"), executed);
+  }
+
+  public void testPeriodicTask() throws Exception {
+    ScheduledExecutorService executor = new SharedTerminalExecutorServiceManager().getSingleThreadScheduledExecutor();
+    CountDownLatch runs = new CountDownLatch(3);
+    ScheduledFuture<?> future = executor.scheduleWithFixedDelay(runs::countDown, 0, 10, TimeUnit.MILLISECONDS);
+    assertTrue(runs.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(future.isCancelled());
+  }
+
+  public void testPeriodicTaskCancelledWhileRunning() throws Exception {
+    ScheduledExecutorService executor = new SharedTerminalExecutorServiceManager().getSingleThreadScheduledExecutor();
+    CountDownLatch cancelled = new CountDownLatch(1);
+    AtomicInteger runs = new AtomicInteger();
+    AtomicReference<ScheduledFuture<?>> future = new AtomicReference<>();
+    CountDownLatch scheduled = new CountDownLatch(1);
+    future.set(executor.scheduleWithFixedDelay(() -> {
+      try {
+        scheduled.await();
+      }
+      catch (InterruptedException ignored) {
+      }
+      runs.incrementAndGet();
+      future.get().cancel(false);
+      cancelled.countDown();
+    }, 0, 10, TimeUnit.MILLISECONDS));
+    scheduled.countDown();
+    assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(1, runs.get());
+  }
+
+  public void testShutdownSessionOnly() throws Exception {
+    SharedTerminalExecutorServiceManager first = new SharedTerminalExecutorServiceManager();
+    SharedTerminalExecutorServiceManager second = new SharedTerminalExecutorServiceManager();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    first.getUnboundedExecutorService().execute(() -> {
+      started.countDown();
+      try {
+        release.await();
+      }
+      catch (InterruptedException ignored) {
+      }
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    first.shutdownWhenAllExecuted();
+    try {
+      first.getUnboundedExecutorService().execute(() -> {});
+      fail();
+    }
+    catch (RejectedExecutionException ignored) {
+    }
+    assertFalse(first.getUnboundedExecutorService().isTerminated());
+    assertEquals("done", second.getUnboundedExecutorService().submit(() -> "done").get(10, TimeUnit.SECONDS));
+    release.countDown();
+    assertTrue(first.getUnboundedExecutorService().awaitTermination(10, TimeUnit.SECONDS));
+    assertTrue(first.getSingleThreadScheduledExecutor().awaitTermination(10, TimeUnit.SECONDS));
+  }
+}
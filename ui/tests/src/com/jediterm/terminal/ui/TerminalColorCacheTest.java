@@ -0,0 +1,47 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.emulator.ColorPalette;
+import com.jediterm.terminal.emulator.ColorPaletteImpl;
+import junit.framework.TestCase;
+
+import java.awt.*;
+
+public class TerminalColorCacheTest extends TestCase {
+  private static final TerminalColorCache.ResolvedColors COLORS =
+    new TerminalColorCache.ResolvedColors(Color.BLACK, Color.DARK_GRAY, Color.WHITE);
+
+  public void testStylesAreComparedByValue() {
+    TerminalColorCache cache = new TerminalColorCache();
+    cache.put(new TextStyle(TerminalColor.index(1), null), TerminalColorCache.NORMAL, COLORS);
+    assertSame(COLORS, cache.get(new TextStyle(TerminalColor.index(1), null), TerminalColorCache.NORMAL));
+    assertNull(cache.get(new TextStyle(TerminalColor.index(2), null), TerminalColorCache.NORMAL));
+  }
+
+  public void testStatesAreCachedSeparately() {
+    TerminalColorCache cache = new TerminalColorCache();
+    cache.put(TextStyle.EMPTY, TerminalColorCache.SELECTED, COLORS);
+    assertNull(cache.get(TextStyle.EMPTY, TerminalColorCache.NORMAL));
+    assertNull(cache.get(TextStyle.EMPTY, TerminalColorCache.SELECTED | TerminalColorCache.BLINK_INVERTED));
+    assertSame(COLORS, cache.get(TextStyle.EMPTY, TerminalColorCache.SELECTED));
+  }
+
+  public void testClearedWhenDependenciesChange() {
+    TerminalColorCache cache = new TerminalColorCache();
+    assertFalse(validate(cache, ColorPaletteImpl.XTERM_PALETTE, TerminalColor.WHITE));
+    cache.put(TextStyle.EMPTY, TerminalColorCache.NORMAL, COLORS);
+    assertTrue(validate(cache, ColorPaletteImpl.XTERM_PALETTE, TerminalColor.WHITE));
+    assertSame(COLORS, cache.get(TextStyle.EMPTY, TerminalColorCache.NORMAL));
+    assertFalse(validate(cache, ColorPaletteImpl.WINDOWS_PALETTE, TerminalColor.WHITE));
+    assertEquals(0, cache.size());
+    cache.put(TextStyle.EMPTY, TerminalColorCache.NORMAL, COLORS);
+    assertFalse(validate(cache, ColorPaletteImpl.WINDOWS_PALETTE, TerminalColor.BLACK));
+    assertEquals(0, cache.size());
+  }
+
+  private static boolean validate(TerminalColorCache cache, ColorPalette palette, TerminalColor defaultForeground) {
+    return cache.validate(palette, defaultForeground, TerminalColor.BLACK, TextStyle.EMPTY, TextStyle.EMPTY, TextStyle.EMPTY,
+                          false);
+  }
+}
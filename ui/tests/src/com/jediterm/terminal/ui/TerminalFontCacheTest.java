@@ -0,0 +1,86 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TerminalFontCacheTest extends TestCase {
+  private static final TerminalFontCache.ResolvedFont FONT =
+    new TerminalFontCache.ResolvedFont(new Font(Font.MONOSPACED, Font.PLAIN, 12), 3);
+
+  public void testGraphemesAreComparedByValue() {
+    TerminalFontCache cache = new TerminalFontCache();
+    cache.put("a漢b".toCharArray(), 1, 2, false, false, FONT);
+    assertSame(FONT, cache.get("漢".toCharArray(), 0, 1, false, false));
+    assertSame(FONT, cache.get("x漢".toCharArray(), 1, 2, false, false));
+    assertNull(cache.get("漢字".toCharArray(), 0, 2, false, false));
+  }
+
+  public void testStylesAreCachedSeparately() {
+    TerminalFontCache cache = new TerminalFontCache();
+    cache.put("漢".toCharArray(), 0, 1, true, false, FONT);
+    assertNull(cache.get("漢".toCharArray(), 0, 1, false, false));
+    assertNull(cache.get("漢".toCharArray(), 0, 1, true, true));
+    assertSame(FONT, cache.get("漢".toCharArray(), 0, 1, true, false));
+  }
+
+  public void testClearedWhenDependenciesChange() {
+    TerminalFontCache cache = new TerminalFontCache();
+    Font font = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    assertFalse(cache.validate(font, font, font, font, false, null));
+    cache.put("漢".toCharArray(), 0, 1, false, false, FONT);
+    assertTrue(cache.validate(font, font, font, font, false, null));
+    assertEquals(1, cache.size());
+    assertFalse(cache.validate(font.deriveFont(14f), font, font, font, false, null));
+    assertEquals(0, cache.size());
+  }
+
+  public void testFontIsResolvedOncePerGrapheme() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 3, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    terminal.writeCharacters("→ ←→");
+
+    List<String> resolvedGraphemes = new ArrayList<>();
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider(), textBuffer, styleState) {
+      @Override
+      protected @NotNull Font getFontToDisplay(char[] text, int start, int end, @NotNull TextStyle style) {
+        resolvedGraphemes.add(new String(text, start, end - start));
+        return super.getFontToDisplay(text, start, end, style);
+      }
+    };
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    try {
+      panel.setSimpleCharsFastPath(false);
+      paint(panel);
+      paint(panel);
+      assertEquals(List.of("→", " ", "←"), resolvedGraphemes);
+    }
+    finally {
+      panel.dispose();
+    }
+  }
+
+  private static void paint(TerminalPanel panel) {
+    Dimension size = panel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      panel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.jediterm.terminal.ui;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TerminalFrameSchedulerTest extends TestCase {
+  private long myNanos = TimeUnit.SECONDS.toNanos(1);
+  private final List<Runnable> myEdtTasks = new ArrayList<>();
+  private Runnable myTimerAction;
+  private long myTimerNanos;
+  private int myFramesCount;
+  private long myLastFrameNanos;
+
+  private final TerminalFrameScheduler.FrameTimer myTimer = new TerminalFrameScheduler.FrameTimer() {
+    @Override
+    public void restart(long delayMillis, @NotNull Runnable action) {
+      myTimerAction = action;
+      myTimerNanos = myNanos + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    @Override
+    public void stop() {
+      myTimerAction = null;
+    }
+  };
+
+  public void testRequestsAreCoalesced() {
+    TerminalFrameScheduler scheduler = createScheduler(10);
+    for (int i = 0; i < 1000; i++) {
+      scheduler.requestFrame();
+    }
+    assertEquals(1, myEdtTasks.size());
+    advance(1);
+    // the first frame runs at once
+    assertEquals(1, myFramesCount);
+    for (int i = 0; i < 1000; i++) {
+      scheduler.requestFrame();
+    }
+    // the following requests wait for the next frame allowed by the frame rate
+    advance(99);
+    assertEquals(1, myFramesCount);
+    advance(1);
+    assertEquals(2, myFramesCount);
+    advance(1000);
+    assertEquals(2, myFramesCount);
+  }
+
+  public void testNoFramesWhenIdle() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    scheduler.requestFrame();
+    advance(100);
+    assertEquals(1, myFramesCount);
+    advance(1000);
+    assertEquals(1, myFramesCount);
+    assertFalse(scheduler.isFrameScheduled());
+    assertNull(myTimerAction);
+  }
+
+  public void testDelayedFrame() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    long requestNanos = myNanos;
+    scheduler.requestFrameAfter(200);
+    advance(199);
+    assertEquals(0, myFramesCount);
+    advance(1);
+    assertEquals(1, myFramesCount);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(200), myLastFrameNanos - requestNanos);
+  }
+
+  public void testEarlierRequestWins() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    scheduler.requestFrameAfter(1000);
+    scheduler.requestFrame();
+    advance(1);
+    assertEquals(1, myFramesCount);
+    advance(2000);
+    assertEquals(1, myFramesCount);
+  }
+
+  public void testStop() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    scheduler.requestFrameAfter(50);
+    scheduler.stop();
+    scheduler.requestFrame();
+    advance(200);
+    assertEquals(0, myFramesCount);
+  }
+
+  public void testSuspendedRequestsRunOneFrameOnResume() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    scheduler.requestFrameAfter(50);
+    scheduler.suspend();
+    for (int i = 0; i < 1000; i++) {
+      scheduler.requestFrame();
+    }
+    advance(200);
+    assertEquals(0, myFramesCount);
+    assertTrue(myEdtTasks.isEmpty());
+    scheduler.resume();
+    advance(200);
+    assertEquals(1, myFramesCount);
+  }
+
+  public void testResumeWithoutRequests() {
+    TerminalFrameScheduler scheduler = createScheduler(50);
+    scheduler.suspend();
+    scheduler.resume();
+    advance(100);
+    assertEquals(0, myFramesCount);
+  }
+
+  private @NotNull TerminalFrameScheduler createScheduler(int maxFps) {
+    return new TerminalFrameScheduler(maxFps, () -> {
+      myFramesCount++;
+      myLastFrameNanos = myNanos;
+    }, () -> myNanos, myEdtTasks::add, myTimer);
+  }
+
+  /**
+   * Runs the pending EDT tasks and the timer while the time advances millisecond by millisecond.
+   */
+  private void advance(int millis) {
+    runEdtTasks();
+    for (int i = 0; i < millis; i++) {
+      myNanos += TimeUnit.MILLISECONDS.toNanos(1);
+      if (myTimerAction != null && myNanos - myTimerNanos >= 0) {
+        Runnable action = myTimerAction;
+        myTimerAction = null;
+        action.run();
+      }
+      runEdtTasks();
+    }
+  }
+
+  private void runEdtTasks() {
+    while (!myEdtTasks.isEmpty()) {
+      myEdtTasks.remove(0).run();
+    }
+  }
+}
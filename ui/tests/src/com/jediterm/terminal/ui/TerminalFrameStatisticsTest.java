@@ -0,0 +1,114 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class TerminalFrameStatisticsTest extends TestCase {
+  public void testPhasePercentiles() {
+    TerminalFrameStatistics statistics = new TerminalFrameStatistics();
+    for (int i = 1; i <= 100; i++) {
+      recordFrame(statistics, i * 1000L, 2);
+    }
+    assertEquals(100, statistics.getFrameCount());
+    assertEquals(50_000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 50));
+    assertEquals(99_000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 99));
+    assertEquals(100_000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 100));
+    assertEquals(2.0, statistics.getAverageRowCount());
+    assertEquals(6.0, statistics.getAverageRunCount());
+    assertEquals(100, statistics.getFramesPerSecond());
+  }
+
+  public void testModelWalkExcludesDrawing() {
+    TerminalFrameStatistics statistics = new TerminalFrameStatistics();
+    statistics.frameStarted();
+    statistics.addPhaseNanos(TerminalFrameStatistics.Phase.BACKGROUND_FILL, 300);
+    statistics.addPhaseNanos(TerminalFrameStatistics.Phase.TEXT_DRAW, 500);
+    statistics.addRowsNanos(1000);
+    statistics.frameCompleted();
+    assertEquals(200, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.MODEL_WALK, 50));
+  }
+
+  public void testRollingWindow() {
+    TerminalFrameStatistics statistics = new TerminalFrameStatistics(10);
+    for (int i = 0; i < 10; i++) {
+      recordFrame(statistics, 1_000_000, 1);
+    }
+    for (int i = 0; i < 5; i++) {
+      recordFrame(statistics, 1000, 1);
+    }
+    assertEquals(15, statistics.getFrameCount());
+    assertEquals(1000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 50));
+    assertEquals(1_000_000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 60));
+
+    statistics.reset();
+    assertEquals(0, statistics.getFrameCount());
+    assertEquals(0, statistics.getFrameNanosPercentile(99));
+    recordFrame(statistics, 7000, 1);
+    assertEquals(7000, statistics.getPhaseNanosPercentile(TerminalFrameStatistics.Phase.TEXT_DRAW, 99));
+  }
+
+  public void testDump() {
+    TerminalFrameStatistics statistics = new TerminalFrameStatistics();
+    recordFrame(statistics, 1000, 3);
+    String dump = statistics.dump();
+    assertTrue(dump, dump.startsWith("frames: 1 (window 1)"));
+    assertTrue(dump, dump.contains("text_draw"));
+    assertTrue(dump, dump.contains("rows drawn: 3.0, runs drawn: 9.0 per frame"));
+  }
+
+  public void testPanelRecordsFrames() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 4, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    terminal.writeCharacters("hello");
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider(), textBuffer, styleState);
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    try {
+      assertNull(panel.getFrameStatistics());
+      panel.setFrameStatisticsEnabled(true);
+      TerminalFrameStatistics statistics = panel.getFrameStatistics();
+      assertNotNull(statistics);
+      paint(panel);
+      assertEquals(1, statistics.getFrameCount());
+      // the rows below the last screen line are not drawn
+      assertEquals(1.0, statistics.getAverageRowCount());
+      assertTrue(statistics.getFrameNanosPercentile(50) > 0);
+      panel.setFrameStatisticsEnabled(false);
+      paint(panel);
+      assertNull(panel.getFrameStatistics());
+      assertEquals(1, statistics.getFrameCount());
+    }
+    finally {
+      panel.dispose();
+    }
+  }
+
+  private static void recordFrame(TerminalFrameStatistics statistics, long textDrawNanos, int rowCount) {
+    statistics.frameStarted();
+    statistics.addPhaseNanos(TerminalFrameStatistics.Phase.TEXT_DRAW, textDrawNanos);
+    for (int i = 0; i < rowCount; i++) {
+      statistics.addRow(3);
+    }
+    statistics.frameCompleted();
+  }
+
+  private static void paint(TerminalPanel panel) {
+    Dimension size = panel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      panel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+  }
+}
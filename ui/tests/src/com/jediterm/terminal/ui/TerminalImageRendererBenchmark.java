@@ -0,0 +1,83 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.ArrayTerminalDataStream;
+import com.jediterm.terminal.emulator.Emulator;
+import com.jediterm.terminal.emulator.JediEmulator;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures the render throughput of {@link TerminalImageRenderer} for the output in a file, e.g. a recorded build log.
+ * Renders the screen repeatedly, and then every screen of the history while scrolling through it.
+ * Runs headless, e.g. with {@code -Djava.awt.headless=true}.
+ * <p/>
+ * Arguments: &lt;output file&gt; [columns] [rows] [frames count] [PNG file to save the screen to].
+ */
+public final class TerminalImageRendererBenchmark {
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Arguments: <output file> [columns] [rows] [frames count] [PNG file]");
+      System.exit(1);
+    }
+    String output = Files.readString(Path.of(args[0]), StandardCharsets.UTF_8);
+    int columns = args.length > 1 ? Integer.parseInt(args[1]) : 160;
+    int rows = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    int framesCount = args.length > 3 ? Integer.parseInt(args[3]) : 500;
+
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(columns, rows, styleState, 10000);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    Emulator emulator = new JediEmulator(new ArrayTerminalDataStream(output.toCharArray()), terminal);
+    while (emulator.hasNext()) {
+      emulator.next();
+    }
+
+    TerminalImageRenderer renderer = new TerminalImageRenderer(new DefaultSettingsProvider(), textBuffer, styleState);
+    try {
+      BufferedImage image = renderer.renderScreen();
+      int historyLinesCount = textBuffer.getHistoryLinesCount();
+      System.out.printf("%dx%d cells, %d history lines, %dx%d pixels, %d frames%n", columns, rows, historyLinesCount,
+                        image.getWidth(), image.getHeight(), framesCount);
+
+      double screenFps = measure(framesCount, i -> renderer.render(image, 0, rows));
+      System.out.printf("screen:            %8.1f frames/s%n", screenFps);
+      if (historyLinesCount > 0) {
+        double scrollFps = measure(framesCount, i -> renderer.render(image, -historyLinesCount + i % (historyLinesCount + 1), rows));
+        System.out.printf("history scrolling: %8.1f frames/s%n", scrollFps);
+      }
+
+      if (args.length > 4) {
+        try (OutputStream out = Files.newOutputStream(Path.of(args[4]))) {
+          TerminalImageRenderer.writePng(renderer.renderScreen(), out);
+        }
+      }
+    }
+    finally {
+      renderer.dispose();
+    }
+  }
+
+  private static double measure(int framesCount, FrameRenderer frameRenderer) {
+    for (int i = 0; i < framesCount / 10; i++) {
+      frameRenderer.render(i);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < framesCount; i++) {
+      frameRenderer.render(i);
+    }
+    return framesCount / ((System.nanoTime() - start) / 1e9);
+  }
+
+  private interface FrameRenderer {
+    void render(int frameIndex);
+  }
+}
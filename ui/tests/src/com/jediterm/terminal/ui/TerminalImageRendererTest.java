@@ -0,0 +1,84 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class TerminalImageRendererTest extends TestCase {
+  private StyleState myStyleState;
+  private TerminalTextBuffer myTextBuffer;
+  private TerminalImageRenderer myRenderer;
+
+  @Override
+  protected void setUp() {
+    myStyleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(10, 3, myStyleState, 100);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, myStyleState);
+    for (int i = 0; i < 6; i++) {
+      myStyleState.setCurrent(new TextStyle(null, TerminalColor.rgb(i * 40, 0, 0)));
+      terminal.writeCharacters("line " + i);
+      terminal.carriageReturn();
+      terminal.newLine();
+    }
+    myRenderer = new TerminalImageRenderer(new DefaultSettingsProvider(), myTextBuffer, myStyleState);
+    myRenderer.setCursorVisible(false);
+  }
+
+  @Override
+  protected void tearDown() {
+    myRenderer.dispose();
+  }
+
+  public void testScreenSize() {
+    BufferedImage image = myRenderer.renderScreen();
+    Dimension size = myRenderer.getImageSize(3);
+    assertEquals(size.width, image.getWidth());
+    assertEquals(size.height, image.getHeight());
+    assertTrue(image.getWidth() > 0 && image.getHeight() > 0);
+  }
+
+  public void testHistoryLines() {
+    int historyLinesCount = myTextBuffer.getHistoryLinesCount();
+    assertEquals(4, historyLinesCount);
+    BufferedImage image = myRenderer.render(-historyLinesCount, 2);
+    assertEquals(myRenderer.getImageSize(2).height, image.getHeight());
+    assertEquals(new Color(0, 0, 0).getRGB(), getRowBackground(image, 0));
+    assertEquals(new Color(40, 0, 0).getRGB(), getRowBackground(image, 1));
+
+    BufferedImage screen = myRenderer.renderScreen();
+    assertEquals(new Color(160, 0, 0).getRGB(), getRowBackground(screen, 0));
+    assertEquals(new Color(200, 0, 0).getRGB(), getRowBackground(screen, 1));
+  }
+
+  public void testPng() throws IOException {
+    BufferedImage image = myRenderer.renderScreen();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TerminalImageRenderer.writePng(image, out);
+    BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(image.getWidth(), decoded.getWidth());
+    assertEquals(image.getRGB(0, 0), decoded.getRGB(0, 0));
+  }
+
+  public void testStyleStateIsNotChanged() {
+    myRenderer.renderScreen();
+    // the default colors of the settings are used, the style state may belong to a running session
+    assertEquals(TextStyle.EMPTY, myStyleState.getDefaultStyle());
+  }
+
+  private int getRowBackground(BufferedImage image, int row) {
+    Dimension lineSize = myRenderer.getImageSize(1);
+    // the top of the first cell, after the left inset, is not covered by the glyph
+    return image.getRGB(lineSize.width - lineSize.width / 10 * 10 + 1, row * lineSize.height);
+  }
+}
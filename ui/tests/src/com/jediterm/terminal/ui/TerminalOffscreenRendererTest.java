@@ -0,0 +1,102 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TerminalOffscreenRendererTest extends TestCase {
+  public void testFrameIsCopiedAfterRender() throws InterruptedException {
+    CountDownLatch completed = new CountDownLatch(1);
+    TerminalOffscreenRenderer<Color> renderer = new TerminalOffscreenRenderer<>((gfx, color) -> {
+      gfx.setColor(color);
+      gfx.fillRect(0, 0, 10, 10);
+    }, completed::countDown);
+    try {
+      BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+      assertFalse(renderer.paintFrame(image.createGraphics(), 10, 10));
+      renderer.requestFrame(Color.RED, 10, 10, 1);
+      assertTrue(completed.await(10, TimeUnit.SECONDS));
+      assertTrue(renderer.hasFrame(10, 10));
+      assertFalse(renderer.hasFrame(20, 10));
+      assertTrue(renderer.paintFrame(image.createGraphics(), 10, 10));
+      assertEquals(Color.RED.getRGB(), image.getRGB(5, 5));
+    }
+    finally {
+      renderer.dispose();
+    }
+  }
+
+  public void testSameImageAsDirectPainting() throws InterruptedException {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(40, 5, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    terminal.writeCharacters("$ ls -la");
+    terminal.carriageReturn();
+    terminal.newLine();
+    styleState.setCurrent(new TextStyle(TerminalColor.index(4), null));
+    terminal.writeCharacters("drwxr-xr-x  src");
+    styleState.setCurrent(TextStyle.EMPTY);
+
+    TerminalPanel directPanel = createPanel(new DefaultSettingsProvider(), textBuffer, styleState);
+    TerminalPanel offscreenPanel = createPanel(new DefaultSettingsProvider() {
+      @Override
+      public boolean enableOffscreenRendering() {
+        return true;
+      }
+    }, textBuffer, styleState);
+    try {
+      BufferedImage expected = paint(directPanel);
+      // the first painting requests the frame
+      paint(offscreenPanel);
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (!isFramePainted(offscreenPanel) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      BufferedImage actual = paint(offscreenPanel);
+      for (int y = 0; y < expected.getHeight(); y++) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+          assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+        }
+      }
+    }
+    finally {
+      directPanel.dispose();
+      offscreenPanel.dispose();
+    }
+  }
+
+  private static TerminalPanel createPanel(DefaultSettingsProvider settingsProvider, TerminalTextBuffer textBuffer,
+                                           StyleState styleState) {
+    TerminalPanel panel = new TerminalPanel(settingsProvider, textBuffer, styleState);
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    return panel;
+  }
+
+  private static boolean isFramePainted(TerminalPanel panel) {
+    return panel.getOffscreenRenderer().hasFrame(panel.getWidth(), panel.getHeight());
+  }
+
+  private static BufferedImage paint(TerminalPanel panel) {
+    Dimension size = panel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      panel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+}
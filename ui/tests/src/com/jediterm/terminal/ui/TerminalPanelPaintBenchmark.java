@@ -0,0 +1,87 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Measures painting a screen of compiler output with and without drawing the simple chars in one call.
+ * Runs headless, e.g. with {@code -Djava.awt.headless=true}.
+ * <p/>
+ * Arguments: [frames count].
+ */
+public final class TerminalPanelPaintBenchmark {
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int ITERATIONS = 7;
+
+  public static void main(String[] args) {
+    int framesCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(160, 50, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    TextStyle errorStyle = new TextStyle(TerminalColor.index(1), null);
+    for (int i = 0; i < 49; i++) {
+      String path = "/home/user/project/src/main/java/com/example/service/RequestHandler" + i % 7 + ".java:" + (i * 37 % 500 + 1);
+      if (i % 5 == 0) {
+        styleState.setCurrent(errorStyle);
+        terminal.writeCharacters("error: ");
+        styleState.setCurrent(TextStyle.EMPTY);
+        terminal.writeCharacters(path + ": cannot find symbol 'myRequestCount'");
+      }
+      else {
+        terminal.writeCharacters("[INFO] Compiling " + path + " (" + (i * 131 % 9000) + " bytes)");
+      }
+      terminal.carriageReturn();
+      terminal.newLine();
+    }
+
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider(), textBuffer, styleState);
+    panel.init(new JScrollBar());
+    Dimension size = panel.getPreferredSize();
+    panel.setSize(size);
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    System.out.printf("%dx%d cells, %dx%d pixels, %d frames%n", textBuffer.getWidth(), textBuffer.getHeight(),
+                      size.width, size.height, framesCount);
+    try {
+      double grapheme = measure(panel, graphics, false, framesCount);
+      double simple = measure(panel, graphics, true, framesCount);
+      System.out.printf("grapheme by grapheme: %7.3f ms/frame%n", grapheme);
+      System.out.printf("simple chars at once: %7.3f ms/frame, speedup %5.2f%n", simple, grapheme / simple);
+    }
+    finally {
+      graphics.dispose();
+      panel.dispose();
+    }
+  }
+
+  private static double measure(TerminalPanel panel, Graphics2D graphics, boolean fastPath, int framesCount) {
+    panel.setSimpleCharsFastPath(fastPath);
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      paint(panel, graphics, framesCount);
+    }
+    long[] times = new long[ITERATIONS];
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      paint(panel, graphics, framesCount);
+      times[i] = System.nanoTime() - start;
+    }
+    Arrays.sort(times);
+    return times[ITERATIONS / 2] / 1e6 / framesCount;
+  }
+
+  private static void paint(TerminalPanel panel, Graphics2D graphics, int framesCount) {
+    for (int i = 0; i < framesCount; i++) {
+      panel.paintComponent(graphics);
+    }
+  }
+}
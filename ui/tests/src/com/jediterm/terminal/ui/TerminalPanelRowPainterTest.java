@@ -0,0 +1,125 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.core.compatibility.Point;
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class TerminalPanelRowPainterTest extends TestCase {
+  private static final Color SELECTION_BACKGROUND = new Color(82, 109, 165);
+  private static final Color RUN_BACKGROUND = new Color(10, 120, 30);
+
+  public void testOverlaysAndPaddingBackgrounds() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 3, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    TextStyle runStyle = new TextStyle(null, TerminalColor.rgb(10, 120, 30));
+    styleState.setCurrent(runStyle);
+    terminal.writeCharacters("ab");
+    styleState.setCurrent(TextStyle.EMPTY);
+    terminal.writeCharacters("cd");
+    styleState.setCurrent(runStyle);
+    terminal.writeCharacters("ef");
+    styleState.setCurrent(TextStyle.EMPTY);
+    terminal.carriageReturn();
+    terminal.newLine();
+    terminal.writeCharacters("xyz");
+
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider() {
+      @Override
+      public boolean useInverseSelectionColor() {
+        return false;
+      }
+    }, textBuffer, styleState);
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    try {
+      panel.selectAll();
+      panel.getSelection().updateEnd(new Point(2, 0));
+      BufferedImage image = paint(panel);
+      Dimension cell = panel.myCharSize;
+      int insetX = panel.getInsetX();
+      int background = panel.getBackground().getRGB();
+
+      for (int column = 0; column <= 2; column++) {
+        assertEquals("column " + column, SELECTION_BACKGROUND.getRGB(), getCellBackground(image, cell, insetX, column, 0));
+      }
+      assertEquals(background, getCellBackground(image, cell, insetX, 3, 0));
+      assertEquals(RUN_BACKGROUND.getRGB(), getCellBackground(image, cell, insetX, 4, 0));
+      assertEquals(RUN_BACKGROUND.getRGB(), getCellBackground(image, cell, insetX, 5, 0));
+      assertEquals(background, getCellBackground(image, cell, insetX, 6, 0));
+      assertEquals(background, getCellBackground(image, cell, insetX, 19, 0));
+      assertEquals(background, getCellBackground(image, cell, insetX, 0, 1));
+      assertEquals(background, getCellBackground(image, cell, insetX, 19, 1));
+    }
+    finally {
+      panel.dispose();
+    }
+  }
+
+  public void testOnlyClippedRowsArePainted() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(20, 4, styleState, 10);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    for (int i = 0; i < 8; i++) {
+      // the wide char is drawn grapheme by grapheme
+      terminal.writeCharacters("line " + i + " \u4e2d");
+      terminal.carriageReturn();
+      terminal.newLine();
+    }
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider(), textBuffer, styleState);
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    try {
+      BufferedImage expected = paint(panel);
+      Dimension size = panel.getSize();
+      int rowHeight = panel.myCharSize.height;
+      BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+      Graphics2D graphics = image.createGraphics();
+      try {
+        graphics.setColor(Color.MAGENTA);
+        graphics.fillRect(0, 0, size.width, size.height);
+        graphics.setClip(0, 2 * rowHeight, size.width, rowHeight);
+        panel.paintComponent(graphics);
+      }
+      finally {
+        graphics.dispose();
+      }
+      for (int y = 0; y < size.height; y++) {
+        for (int x = 0; x < size.width; x++) {
+          int expectedRgb = y >= 2 * rowHeight && y < 3 * rowHeight ? expected.getRGB(x, y) : Color.MAGENTA.getRGB();
+          assertEquals("pixel " + x + "," + y, expectedRgb, image.getRGB(x, y));
+        }
+      }
+    }
+    finally {
+      panel.dispose();
+    }
+  }
+
+  private static int getCellBackground(BufferedImage image, Dimension cell, int insetX, int column, int row) {
+    // the top left corner of a cell is not covered by the glyphs of the letters
+    return image.getRGB(insetX + column * cell.width, row * cell.height);
+  }
+
+  private static BufferedImage paint(TerminalPanel panel) {
+    Dimension size = panel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      panel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+}
@@ -0,0 +1,71 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.TerminalColor;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.EnumSet;
+
+public class TerminalPanelSimpleCharsTest extends TestCase {
+  public void testSimpleText() {
+    assertTrue(isSimpleText("int main() { return 0; } // déjà vu"));
+    assertFalse(isSimpleText("a→b"));
+    assertFalse(isSimpleText("soft­hyphen"));
+    assertFalse(isSimpleText("tab\there"));
+  }
+
+  public void testSameImageAsGraphemeLayout() {
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(40, 5, styleState, 0);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    terminal.writeCharacters("src/Main.java:12: error: ';' expected");
+    terminal.carriageReturn();
+    terminal.newLine();
+    styleState.setCurrent(new TextStyle(TerminalColor.index(2), null, EnumSet.of(TextStyle.Option.BOLD)));
+    terminal.writeCharacters("BUILD SUCCESSFUL in 3s");
+    styleState.setCurrent(TextStyle.EMPTY);
+    terminal.writeCharacters(" -> arrow → mixed");
+
+    TerminalPanel panel = new TerminalPanel(new DefaultSettingsProvider(), textBuffer, styleState);
+    panel.init(new JScrollBar());
+    panel.setSize(panel.getPreferredSize());
+    try {
+      panel.setSimpleCharsFastPath(false);
+      BufferedImage expected = paint(panel);
+      panel.setSimpleCharsFastPath(true);
+      BufferedImage actual = paint(panel);
+      for (int y = 0; y < expected.getHeight(); y++) {
+        for (int x = 0; x < expected.getWidth(); x++) {
+          assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+        }
+      }
+    }
+    finally {
+      panel.dispose();
+    }
+  }
+
+  private static boolean isSimpleText(String text) {
+    return TerminalPanel.isSimpleText(text.toCharArray(), 0, text.length());
+  }
+
+  private static BufferedImage paint(TerminalPanel panel) {
+    Dimension size = panel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      panel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+}
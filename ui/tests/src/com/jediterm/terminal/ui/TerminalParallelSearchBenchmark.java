@@ -0,0 +1,69 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures how the parallel search scales with the number of threads on a buffer with 1M lines.
+ * Run with a large enough heap, e.g. {@code -Xmx4g}.
+ * <p/>
+ * Arguments: [lines count] [max parallelism].
+ */
+public final class TerminalParallelSearchBenchmark {
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int ITERATIONS = 7;
+
+  public static void main(String[] args) {
+    int linesCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int maxParallelism = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+
+    StyleState styleState = new StyleState();
+    TerminalTextBuffer textBuffer = new TerminalTextBuffer(120, 40, styleState, linesCount);
+    JediTerminal terminal = new JediTerminal(new NullTerminalDisplay(), textBuffer, styleState);
+    for (int i = 0; i < linesCount; i++) {
+      terminal.writeCharacters("[" + i + "] INFO com.example.Service - processed request id=" + (i * 31L % 1000003) +
+                               (i % 1000 == 0 ? " status=FAILED" : " status=OK"));
+      terminal.carriageReturn();
+      terminal.newLine();
+    }
+    TerminalLine[] lines = TerminalParallelSearch.snapshotLines(textBuffer);
+    System.out.printf("%d lines, %d available processors%n", lines.length, Runtime.getRuntime().availableProcessors());
+
+    double baseline = 0;
+    for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        int matches = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+          matches = search(lines, pool).getItems().size();
+        }
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+          long start = System.nanoTime();
+          search(lines, pool);
+          times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        double medianMs = times[ITERATIONS / 2] / 1e6;
+        if (parallelism == 1) {
+          baseline = medianMs;
+        }
+        System.out.printf("parallelism %2d: %8.1f ms, speedup %5.2f, %d matches%n",
+                          parallelism, medianMs, baseline / medianMs, matches);
+      }
+      finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  private static FindResult search(TerminalLine[] lines, ForkJoinPool pool) {
+    return TerminalParallelSearch.search(lines, "status=FAILED", false, pool, () -> false);
+  }
+}
@@ -0,0 +1,106 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.TextStyle;
+import com.jediterm.terminal.model.CharBuffer;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalLine;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TerminalParallelSearchTest extends TestCase {
+  private TerminalTextBuffer myTextBuffer;
+  private JediTerminal myTerminal;
+  private ForkJoinPool myPool;
+
+  @Override
+  protected void setUp() {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(10, 5, styleState, 20000);
+    myTerminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, styleState);
+    myPool = new ForkJoinPool(4);
+  }
+
+  @Override
+  protected void tearDown() {
+    myPool.shutdown();
+  }
+
+  public void testSameItemsAsSequentialSearch() {
+    for (int i = 0; i < 5000; i++) {
+      // every line is wrapped, so matches cross the line and segment borders
+      writeLine("abc" + i + " xyzab" + (i % 3 == 0 ? "c" : "d"));
+    }
+    assertSameResults("abc", false);
+    assertSameResults("ABC", true);
+    assertSameResults("xyzabc", false);
+    assertSameResults("bcabc", false);
+    assertSameResults("absent", false);
+  }
+
+  public void testSnapshotIsNotAffectedByLaterOutput() {
+    writeLine("foo");
+    writeLine("bar");
+    FindResult result = TerminalParallelSearch.search(TerminalParallelSearch.snapshotLines(myTextBuffer), "foo", false,
+      myPool, () -> false);
+    myTerminal.writeCharacters("foo");
+    assertEquals(1, result.getItems().size());
+    assertEquals("foo", result.getItems().get(0).getText());
+  }
+
+  public void testSnapshotIsNotAffectedByHistoryEdits() {
+    writeLine("foo");
+    for (int i = 0; i < 5; i++) {
+      writeLine("bar");
+    }
+    TerminalLine historyLine = myTextBuffer.getLine(-myTextBuffer.getHistoryLinesCount());
+    assertEquals("foo", historyLine.getText());
+    TerminalLine[] lines = TerminalParallelSearch.snapshotLines(myTextBuffer);
+    // e.g. a hyperlink highlighted in the history
+    myTextBuffer.lock();
+    try {
+      historyLine.writeString(0, new CharBuffer("baz"), TextStyle.EMPTY);
+    }
+    finally {
+      myTextBuffer.unlock();
+    }
+    FindResult result = TerminalParallelSearch.search(lines, "foo", false, myPool, () -> false);
+    assertEquals(1, result.getItems().size());
+    assertEquals(0, result.getItems().get(0).getStart().y);
+  }
+
+  public void testCancelled() {
+    writeLine("foo");
+    FindResult result = TerminalParallelSearch.search(TerminalParallelSearch.snapshotLines(myTextBuffer), "foo", false,
+      myPool, () -> true);
+    assertTrue(result.getItems().isEmpty());
+  }
+
+  private void writeLine(@NotNull String line) {
+    myTerminal.writeUnwrappedString(line);
+    myTerminal.carriageReturn();
+    myTerminal.newLine();
+  }
+
+  private void assertSameResults(@NotNull String pattern, boolean ignoreCase) {
+    FindResult expected = TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, pattern, ignoreCase);
+    FindResult actual = TerminalParallelSearch.search(myTextBuffer, pattern, ignoreCase, myPool);
+    assertNotNull(expected);
+    assertNotNull(actual);
+    assertEquals(toStrings(expected), toStrings(actual));
+  }
+
+  private static @NotNull List<String> toStrings(@NotNull FindResult result) {
+    List<String> strings = new ArrayList<>();
+    for (FindResult.FindItem item : result.getItems()) {
+      strings.add(item.getIndex() + ":" + item.getStart() + "-" + item.getEnd() + ":" + item.getText());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,147 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.core.compatibility.Point;
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class TerminalRegexSearchTest extends TestCase {
+  private TerminalTextBuffer myTextBuffer;
+  private JediTerminal myTerminal;
+
+  @Override
+  protected void setUp() {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(10, 5, styleState, 1000);
+    myTerminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, styleState);
+  }
+
+  public void testMatchInWrappedLine() {
+    writeLine("0123456789abcdef");
+    writeLine("x");
+    FindResult result = createSearch("8[0-9a-z]+c", 10, 0).nextPage(true, 0);
+    assertEquals(List.of("89abc"), texts(result));
+    FindResult.FindItem item = result.getItems().get(0);
+    assertEquals(new Point(8, 0), item.getStart());
+    assertEquals(new Point(2, 1), item.getEnd());
+  }
+
+  public void testPagesDown() {
+    for (int i = 0; i < 25; i++) {
+      writeLine("id=" + i);
+    }
+    TerminalRegexSearch search = createSearch("id=\\d+", 10, 0);
+    List<String> found = new ArrayList<>();
+    while (search.hasMore(true, 0)) {
+      FindResult page = search.nextPage(true, 0);
+      assertTrue(page.getItems().size() <= 10);
+      found.addAll(texts(page));
+    }
+    assertEquals(25, found.size());
+    assertEquals("id=0", found.get(0));
+    assertEquals("id=24", found.get(24));
+  }
+
+  public void testMaxHitsInLogicalLine() {
+    StringBuilder line = new StringBuilder();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      line.append("x").append(i).append(' ');
+      expected.add("x" + i);
+    }
+    writeLine(line.toString());
+    writeLine("end");
+
+    TerminalRegexSearch search = createSearch("x\\d+", 10, 0);
+    assertEquals(expected.subList(0, 10), texts(search.nextPage(true, 0)));
+    assertEquals(expected.subList(10, 20), texts(search.nextPage(true, 0)));
+    assertEquals(expected.subList(20, 25), texts(search.nextPage(true, 0)));
+    assertFalse(search.hasMore(true, 0));
+
+    search = createSearch("x\\d+", 10, myTextBuffer.getHistoryLinesCount() + 5);
+    List<String> found = new ArrayList<>();
+    while (search.hasMore(false, 0)) {
+      FindResult page = search.nextPage(false, 0);
+      assertTrue(page.getItems().size() <= 10);
+      found.addAll(texts(page));
+    }
+    found.sort(Comparator.comparingInt(text -> Integer.parseInt(text.substring(1))));
+    assertEquals(expected, found);
+  }
+
+  public void testPagesUpAreOrdered() {
+    for (int i = 0; i < 25; i++) {
+      writeLine("id=" + i);
+    }
+    TerminalRegexSearch search = createSearch("id=\\d+", 10, 20);
+    FindResult page = search.nextPage(false, 0);
+    assertEquals(List.of("id=10", "id=11", "id=12", "id=13", "id=14", "id=15", "id=16", "id=17", "id=18", "id=19"), texts(page));
+    assertEquals(List.of("id=20", "id=21", "id=22", "id=23", "id=24"), texts(search.nextPage(true, 0)));
+  }
+
+  public void testCatastrophicBacktrackingDoesNotHang() {
+    for (int i = 0; i < 5; i++) {
+      myTerminal.writeUnwrappedString("aaaaaaaaaa");
+    }
+    writeLine("");
+    writeLine("ab");
+    TerminalRegexSearch search = createSearch("(a|aa)+b", 10, 0);
+    long start = System.nanoTime();
+    List<String> found = new ArrayList<>();
+    while (search.hasMore(true, 0)) {
+      found.addAll(texts(search.nextPage(true, 0)));
+    }
+    assertTrue((System.nanoTime() - start) / 1_000_000 < 10 * TerminalRegexSearch.PAGE_TIME_BUDGET_MILLIS);
+    assertTrue(found.contains("ab"));
+  }
+
+  public void testServiceFetchesMoreResults() {
+    for (int i = 0; i < 25; i++) {
+      writeLine("id=" + i);
+    }
+    List<Runnable> tasks = new ArrayList<>();
+    List<FindResult> results = new ArrayList<>();
+    TerminalSearchService service = new TerminalSearchService(myTextBuffer, null, tasks::add, Runnable::run, tasks::add, null);
+    service.searchRegex(Pattern.compile("ID=1\\d*", Pattern.CASE_INSENSITIVE), 5, 0, results::add);
+    runAll(tasks);
+    assertEquals(List.of("id=1", "id=10", "id=11", "id=12", "id=13"), texts(results.get(results.size() - 1)));
+    service.fetchMoreResults(true);
+    runAll(tasks);
+    assertEquals(10, results.get(results.size() - 1).getItems().size());
+    service.fetchMoreResults(false);
+    runAll(tasks);
+    assertEquals(10, results.get(results.size() - 1).getItems().size());
+  }
+
+  private static void runAll(@NotNull List<Runnable> tasks) {
+    while (!tasks.isEmpty()) {
+      tasks.remove(0).run();
+    }
+  }
+
+  private @NotNull TerminalRegexSearch createSearch(@NotNull String regex, int maxHitsPerPage, int startLine) {
+    return new TerminalRegexSearch(myTextBuffer, Pattern.compile(regex), maxHitsPerPage, startLine);
+  }
+
+  private void writeLine(@NotNull String line) {
+    myTerminal.writeUnwrappedString(line);
+    myTerminal.carriageReturn();
+    myTerminal.newLine();
+  }
+
+  private static @NotNull List<String> texts(@NotNull FindResult result) {
+    List<String> texts = new ArrayList<>();
+    for (FindResult.FindItem item : result.getItems()) {
+      texts.add(item.getText());
+    }
+    return texts;
+  }
+}
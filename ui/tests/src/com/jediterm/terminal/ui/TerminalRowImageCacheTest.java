@@ -0,0 +1,132 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import com.jediterm.terminal.ui.settings.DefaultSettingsProvider;
+import junit.framework.TestCase;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+public class TerminalRowImageCacheTest extends TestCase {
+  private TerminalTextBuffer myTextBuffer;
+  private JediTerminal myTerminal;
+  private TerminalPanel myPanel;
+
+  @Override
+  protected void setUp() {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(40, 5, styleState, 100);
+    myTerminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, styleState);
+    for (int i = 0; i < 20; i++) {
+      writeLine("line " + i);
+    }
+    myPanel = new TerminalPanel(new DefaultSettingsProvider(), myTextBuffer, styleState);
+    myPanel.init(new JScrollBar());
+    myPanel.setSize(myPanel.getPreferredSize());
+    // disabled by default
+    assertFalse(myPanel.getRowImageCache().isEnabled());
+    myPanel.getRowImageCache().setBudgetBytes(16L * 1024 * 1024);
+  }
+
+  @Override
+  protected void tearDown() {
+    myPanel.dispose();
+  }
+
+  public void testSameImageAsDirectPainting() {
+    TerminalRowImageCache cache = myPanel.getRowImageCache();
+    long budget = cache.getBudgetBytes();
+    cache.setBudgetBytes(0);
+    BufferedImage expected = paint();
+    cache.setBudgetBytes(budget);
+    assertImagesEqual(expected, paint());
+    assertImagesEqual(expected, paint());
+    assertTrue(cache.getHitCount() > 0);
+  }
+
+  public void testUnchangedRowsAreNotDrawnAgain() {
+    TerminalRowImageCache cache = myPanel.getRowImageCache();
+    paint();
+    long misses = cache.getMissCount();
+    paint();
+    assertEquals(misses, cache.getMissCount());
+
+    myTerminal.writeCharacters("changed");
+    paint();
+    // only the cursor line is drawn again
+    assertEquals(misses + 1, cache.getMissCount());
+  }
+
+  public void testOnlyRowsWithChangedFoundItemsAreDrawnAgain() {
+    TerminalRowImageCache cache = myPanel.getRowImageCache();
+    myPanel.setFindResult(TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, "line 17", false));
+    paint();
+    long misses = cache.getMissCount();
+    // e.g. a live update of the search
+    myPanel.setFindResult(TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, "line 17", false));
+    paint();
+    assertEquals(misses, cache.getMissCount());
+
+    myPanel.setFindResult(TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, "line 18", false));
+    paint();
+    // the rows of "line 17" and "line 18"
+    assertEquals(misses + 2, cache.getMissCount());
+  }
+
+  public void testEvictionByBudget() {
+    TerminalRowImageCache cache = myPanel.getRowImageCache();
+    paint();
+    int rowCount = cache.getRowCount();
+    long rowBytes = cache.getSizeBytes() / rowCount;
+    cache.setBudgetBytes(rowBytes * (rowCount - 1));
+    // evicted on the painting thread
+    assertEquals(rowCount, cache.getRowCount());
+    paint();
+    assertEquals(rowCount - 1, cache.getRowCount());
+    assertTrue(cache.getEvictionCount() > 0);
+  }
+
+  public void testNotUsedWhenVisibleRowsExceedBudget() {
+    TerminalRowImageCache cache = myPanel.getRowImageCache();
+    paint();
+    long rowBytes = cache.getSizeBytes() / cache.getRowCount();
+    cache.setBudgetBytes(rowBytes * 2);
+    cache.resetStatistics();
+    BufferedImage image = paint();
+    // no images are drawn only to be evicted by the following rows
+    assertEquals(0, cache.getMissCount());
+    assertEquals(0, cache.getHitCount());
+    cache.setBudgetBytes(0);
+    assertImagesEqual(paint(), image);
+  }
+
+  private void writeLine(String line) {
+    myTerminal.writeCharacters(line);
+    myTerminal.carriageReturn();
+    myTerminal.newLine();
+  }
+
+  private BufferedImage paint() {
+    Dimension size = myPanel.getSize();
+    BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D graphics = image.createGraphics();
+    try {
+      myPanel.paintComponent(graphics);
+    }
+    finally {
+      graphics.dispose();
+    }
+    return image;
+  }
+
+  private static void assertImagesEqual(BufferedImage expected, BufferedImage actual) {
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+}
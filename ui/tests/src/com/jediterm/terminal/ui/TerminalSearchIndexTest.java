@@ -0,0 +1,109 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TerminalSearchIndexTest extends TestCase {
+  private TerminalTextBuffer myTextBuffer;
+  private JediTerminal myTerminal;
+  private TerminalSearchIndex myIndex;
+
+  @Override
+  protected void setUp() {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(10, 5, styleState, 100);
+    myTerminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, styleState);
+    myIndex = new TerminalSearchIndex(myTextBuffer);
+    myTextBuffer.addChangesListener(myIndex);
+  }
+
+  public void testFindsHistoryAndScreenMatches() {
+    writeLines("foo", "bar", "foobar", "baz", "qux", "foo", "quux", "corge", "grault");
+    assertSameResults("foo", false);
+    assertSameResults("bar", false);
+    assertSameResults("grault", false);
+    assertSameResults("absent", false);
+  }
+
+  public void testMatchCrossingLineBoundary() {
+    // a line of the terminal width is wrapped, so the match continues on the next line
+    writeLines("xxxxxxxabc", "def", "1", "2", "3", "4", "5", "6");
+    assertEquals(1, search("abcdef", false).getItems().size());
+    assertSameResults("abcdef", false);
+    assertSameResults("cde", false);
+  }
+
+  public void testIgnoreCase() {
+    writeLines("Hello", "HELLO", "hello", "1", "2", "3", "4", "5");
+    assertEquals(1, search("Hello", false).getItems().size());
+    assertEquals(3, search("hello", true).getItems().size());
+    assertSameResults("hello", true);
+    assertSameResults("HELLO", false);
+  }
+
+  public void testDiscardedLinesAreNotCandidates() {
+    for (int i = 0; i < 300; i++) {
+      writeLines(i % 7 == 0 ? "needle" + i : "hay" + i);
+    }
+    assertEquals(100, myTextBuffer.getHistoryLinesCount());
+    int[] candidates = myIndex.findCandidateLines("needle");
+    assertNotNull(candidates);
+    for (int line : candidates) {
+      assertTrue(line >= 0 && line < myTextBuffer.getHistoryLinesCount());
+      assertTrue(myTextBuffer.getLine(line - myTextBuffer.getHistoryLinesCount()).getText().startsWith("needle"));
+    }
+    assertSameResults("needle", false);
+    assertSameResults("hay29", false);
+  }
+
+  public void testIndexIsUpdatedAfterClearingHistory() {
+    writeLines("foo", "bar", "baz", "1", "2", "3", "4", "5");
+    assertSameResults("foo", false);
+    myTextBuffer.clearHistory();
+    assertSameResults("foo", false);
+    writeLines("foo", "1", "2", "3", "4", "5");
+    assertSameResults("foo", false);
+  }
+
+  public void testShortPatternIsNotIndexed() {
+    writeLines("ab", "1", "2", "3", "4", "5");
+    assertNull(myIndex.findCandidateLines("ab"));
+    assertSameResults("ab", false);
+  }
+
+  private void writeLines(String @NotNull ... lines) {
+    for (String line : lines) {
+      myTerminal.writeCharacters(line);
+      myTerminal.carriageReturn();
+      myTerminal.newLine();
+    }
+  }
+
+  private @NotNull SubstringFinder.FindResult search(@NotNull String pattern, boolean ignoreCase) {
+    SubstringFinder.FindResult result = TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, pattern, ignoreCase, myIndex);
+    assertNotNull(result);
+    return result;
+  }
+
+  private void assertSameResults(@NotNull String pattern, boolean ignoreCase) {
+    SubstringFinder.FindResult expected = TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, pattern, ignoreCase);
+    SubstringFinder.FindResult actual = search(pattern, ignoreCase);
+    assertNotNull(expected);
+    assertEquals(toStrings(expected), toStrings(actual));
+  }
+
+  private static @NotNull List<String> toStrings(@NotNull SubstringFinder.FindResult result) {
+    List<String> strings = new ArrayList<>();
+    for (SubstringFinder.FindResult.FindItem item : result.getItems()) {
+      strings.add(item.getStart() + "-" + item.getEnd() + ":" + item.getText());
+    }
+    return strings;
+  }
+}
@@ -0,0 +1,185 @@
+package com.jediterm.terminal.ui;
+
+import com.jediterm.terminal.SubstringFinder.FindResult;
+import com.jediterm.terminal.model.JediTerminal;
+import com.jediterm.terminal.model.StyleState;
+import com.jediterm.terminal.model.TerminalTextBuffer;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TerminalSearchServiceTest extends TestCase {
+  private TerminalTextBuffer myTextBuffer;
+  private JediTerminal myTerminal;
+  private final List<Runnable> myTasks = new ArrayList<>();
+  private final List<FindResult> myResults = new ArrayList<>();
+  private TerminalSearchService myService;
+
+  @Override
+  protected void setUp() {
+    init(10000);
+  }
+
+  private void init(int maxHistoryLinesCount) {
+    init(maxHistoryLinesCount, false);
+  }
+
+  private void init(int maxHistoryLinesCount, boolean indexed) {
+    StyleState styleState = new StyleState();
+    myTextBuffer = new TerminalTextBuffer(20, 10, styleState, maxHistoryLinesCount);
+    myTerminal = new JediTerminal(new NullTerminalDisplay(), myTextBuffer, styleState);
+    TerminalSearchIndex searchIndex = null;
+    if (indexed) {
+      searchIndex = new TerminalSearchIndex(myTextBuffer);
+      myTextBuffer.addChangesListener(searchIndex);
+    }
+    myService = new TerminalSearchService(myTextBuffer, searchIndex, myTasks::add, Runnable::run, myTasks::add, null);
+    myTextBuffer.addChangesListener(myService);
+  }
+
+  public void testSameItemsAsSynchronousSearch() {
+    for (int i = 0; i < 7000; i++) {
+      writeLine(i % 13 == 0 ? "line " + i + " match" : "line " + i);
+    }
+    search("match", 3500);
+    assertTrue(myResults.size() > 1);
+    assertEquals(toStrings(synchronousSearch("match")), toStrings(last()));
+    assertEquals(539, last().getItems().size());
+  }
+
+  public void testIndexedSearchInChunks() {
+    init(10000, true);
+    for (int i = 0; i < 7000; i++) {
+      writeLine(i % 13 == 0 ? "line " + i + " match" : "line " + i);
+    }
+    search("match", 3500);
+    assertTrue(myResults.size() > 1);
+    assertEquals(toStrings(synchronousSearch("match")), toStrings(last()));
+    assertEquals(539, last().getItems().size());
+  }
+
+  public void testFirstResultIsNearViewport() {
+    for (int i = 0; i < 7000; i++) {
+      writeLine("line " + i);
+    }
+    search("line 5", 5000);
+    FindResult first = myResults.get(0);
+    assertFalse(first.getItems().isEmpty());
+    for (FindResult.FindItem item : first.getItems()) {
+      assertTrue(item.getStart().y >= 5000);
+    }
+    // the first found item stays selected when the following chunks are merged
+    assertEquals(first.selectedItem().getStart(), last().selectedItem().getStart());
+    assertEquals(toStrings(synchronousSearch("line 5")), toStrings(last()));
+  }
+
+  public void testNewSearchCancelsPrevious() {
+    writeLine("foo");
+    writeLine("bar");
+    myService.search("foo", false, 0, myResults::add);
+    Runnable cancelled = myTasks.remove(0);
+    search("bar", 0);
+    cancelled.run();
+    assertEquals(1, myResults.size());
+    assertEquals("bar", last().getItems().get(0).getText());
+  }
+
+  public void testViewportOnScreen() {
+    for (int i = 0; i < 30; i++) {
+      writeLine("line " + i);
+    }
+    search("line 2", 1000);
+    assertEquals(toStrings(synchronousSearch("line 2")), toStrings(last()));
+  }
+
+  public void testEmptyPattern() {
+    search("", 0);
+    assertEquals(1, myResults.size());
+    assertNull(last());
+  }
+
+  public void testResultIsUpdatedWithNewOutput() {
+    writeLine("match 1");
+    search("match", 0);
+    assertEquals(1, last().getItems().size());
+    writeLine("no");
+    writeLine("match 2");
+    runTasks();
+    assertEquals(toStrings(synchronousSearch("match")), toStrings(last()));
+    assertEquals(2, last().getItems().size());
+  }
+
+  public void testItemsOfDiscardedLinesAreDropped() {
+    init(100);
+    writeLine("match 0");
+    for (int i = 1; i < 50; i++) {
+      writeLine("line " + i);
+    }
+    writeLine("match 50");
+    search("match", 0);
+    assertEquals(2, last().getItems().size());
+    for (int i = 51; i < 150; i++) {
+      writeLine(i % 10 == 0 ? "match " + i : "line " + i);
+    }
+    runTasks();
+    // the history keeps 100 lines, "match 0" is discarded
+    assertEquals(toStrings(synchronousSearch("match")), toStrings(last()));
+    assertEquals(10, last().getItems().size());
+  }
+
+  public void testResultIsRestartedAfterClear() {
+    writeLine("match");
+    search("match", 0);
+    myTextBuffer.clearHistory();
+    myTerminal.clearScreen();
+    runTasks();
+    assertEquals(toStrings(synchronousSearch("match")), toStrings(last()));
+    assertTrue(last().getItems().isEmpty());
+  }
+
+  public void testNoUpdatesAfterCancel() {
+    search("match", 0);
+    int resultsCount = myResults.size();
+    myService.cancel();
+    writeLine("match");
+    runTasks();
+    assertEquals(resultsCount, myResults.size());
+  }
+
+  private void search(@NotNull String pattern, int viewportLine) {
+    myService.search(pattern, false, viewportLine, myResults::add);
+    runTasks();
+  }
+
+  private void runTasks() {
+    while (!myTasks.isEmpty()) {
+      myTasks.remove(0).run();
+    }
+  }
+
+  private void writeLine(@NotNull String line) {
+    myTerminal.writeCharacters(line);
+    myTerminal.carriageReturn();
+    myTerminal.newLine();
+  }
+
+  private @NotNull FindResult synchronousSearch(@NotNull String pattern) {
+    FindResult result = TerminalSearchUtil.searchInTerminalTextBuffer(myTextBuffer, pattern, false);
+    assertNotNull(result);
+    return result;
+  }
+
+  private FindResult last() {
+    return myResults.get(myResults.size() - 1);
+  }
+
+  private static @NotNull List<String> toStrings(@NotNull FindResult result) {
+    List<String> strings = new ArrayList<>();
+    for (FindResult.FindItem item : result.getItems()) {
+      strings.add(item.getIndex() + ":" + item.getStart() + "-" + item.getEnd() + ":" + item.getText());
+    }
+    return strings;
+  }
+}
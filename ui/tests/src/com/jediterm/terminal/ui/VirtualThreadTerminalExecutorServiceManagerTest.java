@@ -0,0 +1,54 @@
+package com.jediterm.terminal.ui;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class VirtualThreadTerminalExecutorServiceManagerTest extends TestCase {
+  public void testSupportedSinceJava21() {
+    assertEquals(Runtime.version().feature() >= 21, VirtualThreadTerminalExecutorServiceManager.isSupported());
+    if (!VirtualThreadTerminalExecutorServiceManager.isSupported()) {
+      try {
+        new VirtualThreadTerminalExecutorServiceManager();
+        fail();
+      }
+      catch (UnsupportedOperationException ignored) {
+      }
+    }
+  }
+
+  public void testTasksRunOnVirtualThreads() throws Exception {
+    if (!VirtualThreadTerminalExecutorServiceManager.isSupported()) return;
+    VirtualThreadTerminalExecutorServiceManager manager = new VirtualThreadTerminalExecutorServiceManager();
+    assertTrue(manager.getUnboundedExecutorService().submit(VirtualThreadTerminalExecutorServiceManagerTest::isVirtual)
+                 .get(10, TimeUnit.SECONDS));
+
+    List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+    List<Boolean> virtual = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 100; i++) {
+      int task = i;
+      manager.getSingleThreadScheduledExecutor().execute(() -> {
+        executed.add(task);
+        virtual.add(isVirtual());
+      });
+    }
+    manager.shutdownWhenAllExecuted();
+    assertTrue(manager.getSingleThreadScheduledExecutor().awaitTermination(10, TimeUnit.SECONDS));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int)executed.get(i));
+    }
+    assertFalse(virtual.contains(false));
+  }
+
+  private static boolean isVirtual() {
+    try {
+      return (Boolean)Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+    }
+    catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}